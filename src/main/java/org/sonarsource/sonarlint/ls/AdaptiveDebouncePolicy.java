@@ -0,0 +1,125 @@
+/*
+ * SonarLint Language Server
+ * Copyright (C) 2009-2022 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.ls;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import org.sonarsource.sonarlint.ls.settings.AnalysisSettings;
+
+/**
+ * Compute how long to wait after a change before triggering the analysis of a file.
+ * Cheap files are analyzed as soon as the user makes a short pause, while expensive files wait for a real pause in typing.
+ */
+public class AdaptiveDebouncePolicy {
+
+  /**
+   * Weight of the last sample in the exponential moving averages
+   */
+  private static final double SMOOTHING = 0.3;
+  /**
+   * A pause is considered "real" when it lasts this many times the usual interval between two keystrokes
+   */
+  private static final double TYPING_PAUSE_FACTOR = 3.0;
+  /**
+   * Wait at least this many times the measured analysis duration, to not spend more time analyzing than typing
+   */
+  private static final double ANALYSIS_COST_FACTOR = 1.5;
+  /**
+   * Longer intervals between two changes are pauses, not typing cadence
+   */
+  private static final long MAX_KEYSTROKE_INTERVAL_MS = 2000;
+
+  private final int defaultDelayMs;
+  private final LongSupplier clock;
+  private final Map<URI, FileStats> statsPerFile = new ConcurrentHashMap<>();
+  private volatile int minDelayMs;
+  private volatile int maxDelayMs;
+  // Negative until the first interval is measured
+  private volatile double keystrokeIntervalMs = -1;
+
+  public AdaptiveDebouncePolicy(int defaultDelayMs) {
+    this(defaultDelayMs, System::currentTimeMillis);
+  }
+
+  AdaptiveDebouncePolicy(int defaultDelayMs, LongSupplier clock) {
+    this.defaultDelayMs = defaultDelayMs;
+    this.clock = clock;
+    this.minDelayMs = Math.min(AnalysisSettings.DEFAULT_MIN_DEBOUNCE_MS, defaultDelayMs);
+    this.maxDelayMs = Math.max(AnalysisSettings.DEFAULT_MAX_DEBOUNCE_MS, defaultDelayMs);
+  }
+
+  public void setBounds(int minDelayMs, int maxDelayMs) {
+    this.minDelayMs = minDelayMs;
+    this.maxDelayMs = Math.max(minDelayMs, maxDelayMs);
+  }
+
+  /**
+   * Record a change in the given file
+   * @return the delay in milliseconds to wait before analyzing the file, if no other change happens in between
+   */
+  public long didChange(URI fileUri) {
+    var now = clock.getAsLong();
+    var stats = statsPerFile.computeIfAbsent(fileUri, uri -> new FileStats());
+    var previousChange = stats.lastChangeMs;
+    stats.lastChangeMs = now;
+    if (previousChange > 0) {
+      var interval = now - previousChange;
+      if (interval <= MAX_KEYSTROKE_INTERVAL_MS) {
+        keystrokeIntervalMs = movingAverage(keystrokeIntervalMs, interval);
+      }
+    }
+    return delayFor(stats);
+  }
+
+  public void analysisDone(URI fileUri, long analysisDurationMs) {
+    var stats = statsPerFile.computeIfAbsent(fileUri, uri -> new FileStats());
+    stats.analysisDurationMs = movingAverage(stats.analysisDurationMs, analysisDurationMs);
+  }
+
+  public void didClose(URI fileUri) {
+    statsPerFile.remove(fileUri);
+  }
+
+  private long delayFor(FileStats stats) {
+    if (stats.analysisDurationMs < 0) {
+      // Nothing learnt yet about this file
+      return clamp(defaultDelayMs);
+    }
+    var costDelay = stats.analysisDurationMs * ANALYSIS_COST_FACTOR;
+    var typingDelay = keystrokeIntervalMs < 0 ? 0 : (keystrokeIntervalMs * TYPING_PAUSE_FACTOR);
+    return clamp(Math.round(Math.max(costDelay, typingDelay)));
+  }
+
+  private long clamp(long delayMs) {
+    return Math.max(minDelayMs, Math.min(maxDelayMs, delayMs));
+  }
+
+  private static double movingAverage(double average, long sample) {
+    return average < 0 ? sample : (SMOOTHING * sample + (1 - SMOOTHING) * average);
+  }
+
+  private static class FileStats {
+    private volatile long lastChangeMs;
+    // Negative until the first analysis is done
+    private volatile double analysisDurationMs = -1;
+  }
+}
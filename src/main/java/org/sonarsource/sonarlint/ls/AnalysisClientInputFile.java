@@ -19,32 +19,38 @@
  */
 package org.sonarsource.sonarlint.ls;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
+import java.util.concurrent.atomic.LongAdder;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.sonarsource.sonarlint.core.analysis.api.ClientInputFile;
 import org.sonarsource.sonarlint.core.commons.Language;
+import org.sonarsource.sonarlint.ls.file.VersionnedOpenFile;
 
 public class AnalysisClientInputFile implements ClientInputFile {
 
   private final URI fileUri;
-  private final String content;
+  private final VersionnedOpenFile openFile;
   private final Language sqLanguage;
   private final String relativePath;
   private final boolean isTest;
+  private final LongAdder bytesSaved = new LongAdder();
 
   public AnalysisClientInputFile(URI uri, String relativePath, String content, boolean isTest, @Nullable String clientLanguageId) {
+    this(uri, relativePath, new VersionnedOpenFile(uri, clientLanguageId, 0, content), isTest);
+  }
+
+  public AnalysisClientInputFile(URI uri, String relativePath, VersionnedOpenFile openFile, boolean isTest) {
     this.relativePath = relativePath;
     this.fileUri = uri;
-    this.content = content;
+    this.openFile = openFile;
     this.isTest = isTest;
-    this.sqLanguage = toSqLanguage(clientLanguageId);
+    this.sqLanguage = toSqLanguage(openFile.getLanguageId());
   }
 
   @Override
@@ -74,12 +80,22 @@ public class AnalysisClientInputFile implements ClientInputFile {
 
   @Override
   public String contents() throws IOException {
-    return content;
+    return openFile.getContent();
   }
 
   @Override
   public InputStream inputStream() {
-    return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    if (openFile.isUtf8Encoded()) {
+      bytesSaved.add(openFile.getUtf8Length());
+    }
+    return openFile.newUtf8InputStream();
+  }
+
+  /**
+   * Number of bytes that did not need to be encoded again, because the content of the snapshot was already encoded
+   */
+  public long getBytesSaved() {
+    return bytesSaved.sum();
   }
 
   @Override
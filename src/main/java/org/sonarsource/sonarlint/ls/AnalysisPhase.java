@@ -0,0 +1,47 @@
+/*
+ * SonarLint Language Server
+ * Copyright (C) 2009-2022 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.ls;
+
+/**
+ * Steps of the processing of an {@link AnalysisTask}, reported in the analysis queue status
+ */
+enum AnalysisPhase {
+  SCM_CHECK("Checking files ignored by SCM"),
+  PRE_FILTER("Checking file content"),
+  FOLDER_GROUPING("Grouping files by workspace folder"),
+  JAVA_CONFIG_FETCH("Fetching Java configuration"),
+  SERVER_EXCLUSIONS("Checking server exclusions"),
+  CONFIGURATION_BUILD("Building analysis configuration"),
+  WAITING_FOR_ENGINE("Waiting for an analysis slot"),
+  ENGINE_ANALYSIS("Analyzing"),
+  ISSUE_TRACKING("Tracking server issues"),
+  TAINT_RELOAD("Reloading taint vulnerabilities"),
+  PUBLICATION("Publishing diagnostics");
+
+  private final String label;
+
+  AnalysisPhase(String label) {
+    this.label = label;
+  }
+
+  String getLabel() {
+    return label;
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * SonarLint Language Server
+ * Copyright (C) 2009-2022 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.ls;
+
+import java.util.Optional;
+import java.util.regex.Pattern;
+import org.sonarsource.sonarlint.ls.settings.PreFilterSettings;
+
+/**
+ * Cheap checks of the content of a file, to not run analyzers on content they would spend a long time on without reporting useful issues
+ */
+final class AnalysisPreFilter {
+
+  enum Reason {
+    MINIFIED("minified"),
+    GENERATED("generated"),
+    BINARY("binary");
+
+    private final String label;
+
+    Reason(String label) {
+      this.label = label;
+    }
+
+    String getLabel() {
+      return label;
+    }
+  }
+
+  /**
+   * Generated files are recognized by a marker in their header. Only markers written by code generators are used, as opposed to
+   * phrases like "DO NOT ALTER" that license headers also contain.
+   */
+  private static final int HEADER_LENGTH = 1024;
+  private static final Pattern GENERATED_MARKER = Pattern.compile("@generated|<auto-generated|Code generated [^\\r\\n]* DO NOT EDIT\\.");
+  /**
+   * The average line length is not meaningful for short files
+   */
+  static final int MIN_LENGTH_FOR_AVERAGE = 4096;
+
+  private AnalysisPreFilter() {
+    // utility class
+  }
+
+  static Optional<Reason> check(String content, PreFilterSettings settings) {
+    if (!settings.isEnabled() || content.isEmpty()) {
+      return Optional.empty();
+    }
+    var lineCount = 1;
+    var maxLineLength = 0;
+    var lineLength = 0;
+    var nonTextChars = 0;
+    for (var i = 0; i < content.length(); i++) {
+      var c = content.charAt(i);
+      if (c == '\n' || c == '\r') {
+        if (c == '\r' && i + 1 < content.length() && content.charAt(i + 1) == '\n') {
+          i++;
+        }
+        lineCount++;
+        maxLineLength = Math.max(maxLineLength, lineLength);
+        lineLength = 0;
+      } else {
+        lineLength++;
+        if (isNonText(c)) {
+          nonTextChars++;
+        }
+      }
+    }
+    maxLineLength = Math.max(maxLineLength, lineLength);
+
+    if (settings.getMaxNonTextPercent() != PreFilterSettings.DISABLED && nonTextChars * 100L > (long) settings.getMaxNonTextPercent() * content.length()) {
+      return Optional.of(Reason.BINARY);
+    }
+    if (settings.getMaxLineLength() != PreFilterSettings.DISABLED && maxLineLength > settings.getMaxLineLength()) {
+      return Optional.of(Reason.MINIFIED);
+    }
+    if (settings.getMaxAverageLineLength() != PreFilterSettings.DISABLED && content.length() >= MIN_LENGTH_FOR_AVERAGE
+      && content.length() / lineCount > settings.getMaxAverageLineLength()) {
+      return Optional.of(Reason.MINIFIED);
+    }
+    if (settings.isSkipGenerated() && GENERATED_MARKER.matcher(content.substring(0, Math.min(content.length(), HEADER_LENGTH))).find()) {
+      return Optional.of(Reason.GENERATED);
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * Control characters other than whitespace, and characters that could not be decoded
+   */
+  private static boolean isNonText(char c) {
+    return (c < 0x20 && c != '\t' && c != '\f') || c == '\uFFFD';
+  }
+}
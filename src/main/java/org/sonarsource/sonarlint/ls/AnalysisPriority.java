@@ -0,0 +1,50 @@
+/*
+ * SonarLint Language Server
+ * Copyright (C) 2009-2022 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.ls;
+
+/**
+ * Analysis tasks are picked from the queue by priority, then in submission order. Constants are declared from the most to the least urgent.
+ */
+enum AnalysisPriority {
+  /**
+   * The file currently focused in the editor
+   */
+  FOCUSED,
+  /**
+   * Files being edited
+   */
+  INTERACTIVE,
+  /**
+   * Files just opened
+   */
+  OPEN,
+  /**
+   * Re-analysis of all open files after a configuration change (rules, binding, classpath, ...)
+   */
+  BULK;
+
+  boolean isMoreUrgentThan(AnalysisPriority other) {
+    return compareTo(other) < 0;
+  }
+
+  static AnalysisPriority mostUrgent(AnalysisPriority p1, AnalysisPriority p2) {
+    return p1.isMoreUrgentThan(p2) ? p1 : p2;
+  }
+}
@@ -21,23 +21,44 @@ package org.sonarsource.sonarlint.ls;
 
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
+import org.eclipse.lsp4j.jsonrpc.CompletableFutures;
+import org.sonarsource.sonarlint.core.commons.progress.CanceledException;
+import org.sonarsource.sonarlint.ls.SonarLintExtendedLanguageServer.AnalysisQueueStatus;
 import org.sonarsource.sonarlint.ls.connected.ProjectBindingManager;
 import org.sonarsource.sonarlint.ls.file.OpenFilesCache;
 import org.sonarsource.sonarlint.ls.file.VersionnedOpenFile;
 import org.sonarsource.sonarlint.ls.folders.WorkspaceFolderWrapper;
 import org.sonarsource.sonarlint.ls.folders.WorkspaceFoldersManager;
 import org.sonarsource.sonarlint.ls.log.LanguageClientLogger;
+import org.sonarsource.sonarlint.ls.progress.ProgressFacade;
+import org.sonarsource.sonarlint.ls.progress.ProgressManager;
+import org.sonarsource.sonarlint.ls.settings.AnalysisSettings;
+import org.sonarsource.sonarlint.ls.settings.AnalysisTriggerMode;
 import org.sonarsource.sonarlint.ls.settings.WorkspaceFolderSettings;
 import org.sonarsource.sonarlint.ls.settings.WorkspaceFolderSettingsChangeListener;
 import org.sonarsource.sonarlint.ls.settings.WorkspaceSettings;
@@ -45,6 +66,8 @@ import org.sonarsource.sonarlint.ls.settings.WorkspaceSettingsChangeListener;
 import org.sonarsource.sonarlint.ls.util.Utils;
 
 import static java.lang.String.format;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.mapping;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
 
@@ -55,8 +78,12 @@ import static java.util.stream.Collectors.toSet;
 public class AnalysisScheduler implements WorkspaceSettingsChangeListener, WorkspaceFolderSettingsChangeListener {
 
   private static final CompletableFuture<Void> COMPLETED_FUTURE = CompletableFuture.completedFuture(null);
-  private static final int DEFAULT_TIMER_MS = 2000;
-  private static final int QUEUE_POLLING_PERIOD_MS = 200;
+  static final int DEFAULT_TIMER_MS = 2000;
+  /**
+   * Files whose timer expires within this window after the first expired one are analyzed in the same batch
+   */
+  private static final int BATCHING_WINDOW_MS = 50;
+  private static final long PROGRESS_REFRESH_MS = 500;
 
   static final String SONARLINT_SOURCE = "sonarlint";
   public static final String SONARQUBE_TAINT_SOURCE = "SonarQube Taint Analyzer";
@@ -65,143 +92,457 @@ public class AnalysisScheduler implements WorkspaceSettingsChangeListener, Works
   public static final String ITEM_FLOW = "flow";
 
   private final OpenFilesCache openFilesCache;
-  // entries in this map mean that the file is "dirty"
+  // entries in this map mean that the file is "dirty", value is the deadline (in nanoseconds) of the last armed timer
   private final Map<URI, Long> eventMap = new ConcurrentHashMap<>();
+  private final DelayQueue<DebounceTimer> timers = new DelayQueue<>();
+  private final Object idleTimerLock = new Object();
+  // Single timer for all files edited in on-idle mode, guarded by idleTimerLock
+  @CheckForNull
+  private DebounceTimer idleTimer;
 
   private final WorkspaceFoldersManager workspaceFoldersManager;
   private final ProjectBindingManager bindingManager;
   private final EventWatcher watcher;
   private final LanguageClientLogger lsLogOutput;
   private final AnalysisTaskExecutor analysisTaskExecutor;
+  private final ProgressManager progressManager;
 
-  private final ExecutorService asyncExecutor;
+  private final AnalysisTaskQueue taskQueue;
+  // Reports the progress of chunked analyses, each one blocks a thread until all its chunks are done
+  private final ExecutorService progressExecutor;
+  private final AdaptiveDebouncePolicy debouncePolicy;
+  private volatile URI focusedFileUri;
+  private volatile int bulkChunkSize = AnalysisSettings.DEFAULT_BULK_CHUNK_SIZE;
+  private volatile AnalysisTriggerMode triggerMode = AnalysisSettings.DEFAULT_TRIGGER_MODE;
+  private volatile int idleDelayMs = AnalysisSettings.DEFAULT_IDLE_DELAY_MS;
 
-  public AnalysisScheduler(LanguageClientLogger lsLogOutput, WorkspaceFoldersManager workspaceFoldersManager, ProjectBindingManager bindingManager, OpenFilesCache openFilesCache,
-    AnalysisTaskExecutor analysisTaskExecutor) {
-    this(lsLogOutput, workspaceFoldersManager, bindingManager, openFilesCache, analysisTaskExecutor, DEFAULT_TIMER_MS);
+  AnalysisScheduler(LanguageClientLogger lsLogOutput, WorkspaceFoldersManager workspaceFoldersManager, ProjectBindingManager bindingManager, OpenFilesCache openFilesCache,
+    AnalysisTaskExecutor analysisTaskExecutor, ProgressManager progressManager, int defaultTimerMs) {
+    this(lsLogOutput, workspaceFoldersManager, bindingManager, openFilesCache, analysisTaskExecutor, progressManager, new AdaptiveDebouncePolicy(defaultTimerMs));
   }
 
-  AnalysisScheduler(LanguageClientLogger lsLogOutput, WorkspaceFoldersManager workspaceFoldersManager, ProjectBindingManager bindingManager, OpenFilesCache openFilesCache,
-    AnalysisTaskExecutor analysisTaskExecutor, int defaultTimerMs) {
+  public AnalysisScheduler(LanguageClientLogger lsLogOutput, WorkspaceFoldersManager workspaceFoldersManager, ProjectBindingManager bindingManager, OpenFilesCache openFilesCache,
+    AnalysisTaskExecutor analysisTaskExecutor, ProgressManager progressManager, AdaptiveDebouncePolicy debouncePolicy) {
     this.lsLogOutput = lsLogOutput;
     this.workspaceFoldersManager = workspaceFoldersManager;
     this.bindingManager = bindingManager;
     this.openFilesCache = openFilesCache;
     this.analysisTaskExecutor = analysisTaskExecutor;
-    this.asyncExecutor = Executors.newSingleThreadExecutor(Utils.threadFactory("SonarLint Language Server Analysis Scheduler", false));
-    this.watcher = new EventWatcher(defaultTimerMs);
+    this.progressManager = progressManager;
+    this.taskQueue = new AnalysisTaskQueue(lsLogOutput, analysisTaskExecutor::run, Utils.threadFactory("SonarLint Language Server Analysis Scheduler", false),
+      AnalysisSettings.DEFAULT.getNbWorkers());
+    this.progressExecutor = Executors.newCachedThreadPool(Utils.threadFactory("SonarLint Language Server Analysis Progress", true));
+    this.debouncePolicy = debouncePolicy;
+    this.watcher = new EventWatcher();
   }
 
   public void didOpen(VersionnedOpenFile file) {
-    analyzeAsync(List.of(file), true);
+    analyzeAsync(List.of(file), true, AnalysisPriority.OPEN);
+  }
+
+  /**
+   * The file currently focused in the editor is analyzed before any other file
+   */
+  public void didFocus(URI fileUri) {
+    focusedFileUri = fileUri;
+    taskQueue.prioritize(fileUri, AnalysisPriority.FOCUSED);
   }
 
   public void didChange(URI fileUri) {
-    eventMap.put(fileUri, System.currentTimeMillis());
+    switch (triggerMode) {
+      case ON_SAVE:
+        // Analysis is triggered by didSave
+        break;
+      case ON_IDLE:
+        armIdleTimer(fileUri);
+        break;
+      default:
+        armDebounceTimer(fileUri);
+        break;
+    }
+  }
+
+  private void armDebounceTimer(URI fileUri) {
+    var preempted = taskQueue.preempt(fileUri);
+    if (!preempted.isEmpty()) {
+      // The file is being analyzed with outdated content, restart right away instead of waiting for the debounce delay
+      eventMap.remove(fileUri);
+      debouncePolicy.didChange(fileUri);
+      preempted.forEach(this::restart);
+      return;
+    }
+    var deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(debouncePolicy.didChange(fileUri));
+    // Re-arm the timer of this file. Previously armed timers are ignored when they expire, since their deadline no longer matches.
+    eventMap.put(fileUri, deadline);
+    timers.put(new DebounceTimer(fileUri, deadline));
+  }
+
+  /**
+   * Any edit postpones the analysis of all edited files, so that they are analyzed together once no file has been edited for the idle delay
+   */
+  private void armIdleTimer(URI fileUri) {
+    synchronized (idleTimerLock) {
+      var deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(idleDelayMs);
+      eventMap.put(fileUri, deadline);
+      eventMap.replaceAll((uri, previousDeadline) -> deadline);
+      if (idleTimer != null) {
+        timers.remove(idleTimer);
+      }
+      idleTimer = new DebounceTimer(null, deadline);
+      timers.put(idleTimer);
+    }
+  }
+
+  int countArmedTimers() {
+    return timers.size();
+  }
+
+  /**
+   * In {@link AnalysisTriggerMode#ON_SAVE} mode, analyze the saved content right away. In other modes, the saved text is ignored.
+   */
+  public void didSave(URI fileUri, @Nullable String savedContent) {
+    if (triggerMode != AnalysisTriggerMode.ON_SAVE) {
+      return;
+    }
+    var file = openFilesCache.didSave(fileUri, savedContent);
+    eventMap.remove(fileUri);
+    file.ifPresent(f -> {
+      var preempted = taskQueue.preempt(fileUri);
+      if (!preempted.isEmpty()) {
+        preempted.forEach(this::restart);
+      } else {
+        analyzeAsync(List.of(f), false, AnalysisPriority.INTERACTIVE);
+      }
+    });
+  }
+
+  private static class DebounceTimer implements Delayed {
+    // All files whose deadline matches when null
+    @CheckForNull
+    private final URI fileUri;
+    private final long deadline;
+
+    DebounceTimer(@Nullable URI fileUri, long deadline) {
+      this.fileUri = fileUri;
+      this.deadline = deadline;
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+      return unit.convert(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed o) {
+      return Long.compare(getDelay(TimeUnit.NANOSECONDS), o.getDelay(TimeUnit.NANOSECONDS));
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return this == obj;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(fileUri, deadline);
+    }
   }
 
   private class EventWatcher extends Thread {
-    private Future<?> onChangeCurrentTask = COMPLETED_FUTURE;
-    private boolean stop = false;
-    private final int defaultTimerMs;
+    private volatile boolean stop = false;
 
-    EventWatcher(int defaultTimerMs) {
-      this.defaultTimerMs = defaultTimerMs;
+    EventWatcher() {
       this.setDaemon(true);
       this.setName("sonarlint-auto-trigger");
     }
 
     public void stopWatcher() {
       stop = true;
-      onChangeCurrentTask.cancel(false);
       this.interrupt();
     }
 
     @Override
     public void run() {
       while (!stop) {
-        checkTimers();
         try {
-          Thread.sleep(QUEUE_POLLING_PERIOD_MS);
+          // Sleep until the earliest deadline, no wakeup at all when no file is dirty
+          var expired = timers.take();
+          triggerFiles(collectExpiredFiles(expired));
         } catch (InterruptedException e) {
           // continue until stop flag is set
         }
       }
     }
 
-    private void checkTimers() {
-      var now = System.currentTimeMillis();
-
-      var it = eventMap.entrySet().iterator();
+    private List<VersionnedOpenFile> collectExpiredFiles(DebounceTimer firstExpired) {
       var filesToTrigger = new ArrayList<VersionnedOpenFile>();
-      while (it.hasNext()) {
-        var e = it.next();
-        if (e.getValue() + defaultTimerMs < now) {
-          openFilesCache.getFile(e.getKey()).ifPresent(filesToTrigger::add);
-        }
+      collectIfLatest(firstExpired, filesToTrigger);
+      // Only this thread consumes the queue, so the head can't be taken by someone else between peek and remove
+      var next = timers.peek();
+      while (next != null && next.getDelay(TimeUnit.MILLISECONDS) <= BATCHING_WINDOW_MS) {
+        timers.remove(next);
+        collectIfLatest(next, filesToTrigger);
+        next = timers.peek();
+      }
+      return filesToTrigger;
+    }
+
+    private void collectIfLatest(DebounceTimer timer, List<VersionnedOpenFile> filesToTrigger) {
+      if (timer.fileUri == null) {
+        eventMap.keySet().forEach(fileUri -> collectIfLatest(fileUri, timer.deadline, filesToTrigger));
+      } else {
+        collectIfLatest(timer.fileUri, timer.deadline, filesToTrigger);
+      }
+    }
+
+    private void collectIfLatest(URI fileUri, long deadline, List<VersionnedOpenFile> filesToTrigger) {
+      // Timer was re-armed (or file was closed) since this one was queued
+      if (eventMap.remove(fileUri, deadline)) {
+        openFilesCache.getFile(fileUri).ifPresent(filesToTrigger::add);
       }
-      triggerFiles(filesToTrigger);
     }
 
     private void triggerFiles(List<VersionnedOpenFile> filesToTrigger) {
+      // Files already waiting in the queue are merged into the pending task, and running analyses of modified files were preempted on change,
+      // so previously submitted tasks are left untouched: they may concern other files
       if (!filesToTrigger.isEmpty()) {
-        if (!onChangeCurrentTask.isDone()) {
-          lsLogOutput.debug("Attempt to cancel previous analysis...");
-          onChangeCurrentTask.cancel(false);
-          // Wait for the next loop of EventWatcher to recheck if task has been successfully cancelled and then trigger the analysis
-          return;
-        }
-        filesToTrigger.forEach(f -> eventMap.remove(f.getUri()));
-        onChangeCurrentTask = analyzeAsync(filesToTrigger, false);
+        analyzeAsync(filesToTrigger, false, AnalysisPriority.INTERACTIVE);
       }
     }
   }
 
+  private void restart(AnalysisTask preempted) {
+    var newestFiles = preempted.getFilesToAnalyze().stream()
+      .map(f -> openFilesCache.getFile(f.getUri()))
+      .flatMap(Optional::stream)
+      .collect(toSet());
+    if (!newestFiles.isEmpty()) {
+      taskQueue.submit(new AnalysisTask(newestFiles, preempted.shouldFetchServerIssues(), preempted.getLane(), preempted.getPriority()));
+    }
+  }
+
+  /**
+   * Analyze a file that was skipped because it is too large, or because of its content
+   */
+  public void forceAnalysis(URI fileUri) {
+    analysisTaskExecutor.allowSkippedFileAnalysis(fileUri);
+    openFilesCache.getFile(fileUri).ifPresent(file -> analyzeAsync(List.of(file), false, AnalysisPriority.INTERACTIVE));
+  }
+
   public void didClose(URI fileUri) {
+    analysisTaskExecutor.didClose(fileUri);
     eventMap.remove(fileUri);
+    if (fileUri.equals(focusedFileUri)) {
+      focusedFileUri = null;
+    }
+    debouncePolicy.didClose(fileUri);
   }
 
   /**
    * Handle analysis asynchronously to not block client events for too long
    */
-  Future<?> analyzeAsync(List<VersionnedOpenFile> files, boolean shouldFetchServerIssues) {
-    var trueFileUris = files.stream().filter(f -> {
+  Future<?> analyzeAsync(List<VersionnedOpenFile> files, boolean shouldFetchServerIssues, AnalysisPriority priority) {
+    var trueFileUris = filterLocalFiles(files);
+    if (trueFileUris.isEmpty()) {
+      return COMPLETED_FUTURE;
+    }
+    logQueuing(trueFileUris);
+    return submit(trueFileUris, shouldFetchServerIssues, priority);
+  }
+
+  private Set<VersionnedOpenFile> filterLocalFiles(Collection<VersionnedOpenFile> files) {
+    return files.stream().filter(f -> {
       if (!Utils.uriHasFileSchema(f.getUri())) {
         lsLogOutput.warn(format("URI '%s' is not in local filesystem, analysis not supported", f.getUri()));
         return false;
       }
       return true;
     }).collect(toSet());
-    if (trueFileUris.isEmpty()) {
-      return COMPLETED_FUTURE;
-    }
-    if (trueFileUris.size() == 1) {
-      VersionnedOpenFile openFile = trueFileUris.iterator().next();
+  }
+
+  private void logQueuing(Set<VersionnedOpenFile> files) {
+    if (files.size() == 1) {
+      VersionnedOpenFile openFile = files.iterator().next();
       lsLogOutput.debug(format("Queuing analysis of file '%s' (version %d)", openFile.getUri(), openFile.getVersion()));
     } else {
-      lsLogOutput.debug(format("Queuing analysis of %d files", trueFileUris.size()));
+      lsLogOutput.debug(format("Queuing analysis of %d files", files.size()));
     }
-    var task = new AnalysisTask(trueFileUris, shouldFetchServerIssues);
-    var future = asyncExecutor.submit(() -> analysisTaskExecutor.run(task));
-    task.setFuture(future);
-    return future;
+  }
+
+  private Future<?> submit(Set<VersionnedOpenFile> trueFileUris, boolean shouldFetchServerIssues, AnalysisPriority priority) {
+    var futures = new ArrayList<CompletableFuture<Void>>();
+    var otherFiles = new HashSet<>(trueFileUris);
+    var focusedFile = trueFileUris.stream().filter(f -> f.getUri().equals(focusedFileUri)).findFirst();
+    focusedFile.ifPresent(f -> {
+      // The focused file is analyzed on its own, to not wait for the other files
+      otherFiles.remove(f);
+      futures.add(taskQueue.submit(new AnalysisTask(Set.of(f), shouldFetchServerIssues, laneOf(f), AnalysisPriority.FOCUSED)));
+    });
+    // One task per workspace folder, so that folders are analyzed in parallel while analyses of a given folder stay serialized
+    otherFiles.stream()
+      .collect(groupingBy(f -> Optional.ofNullable(laneOf(f)), toSet()))
+      .forEach((lane, filesOfLane) -> futures.add(taskQueue.submit(new AnalysisTask(filesOfLane, shouldFetchServerIssues, lane.orElse(null), priority))));
+    return combine(futures);
+  }
+
+  @CheckForNull
+  private URI laneOf(VersionnedOpenFile file) {
+    return workspaceFoldersManager.findFolderForFile(file.getUri()).map(WorkspaceFolderWrapper::getUri).orElse(null);
+  }
+
+  private static Future<?> combine(List<CompletableFuture<Void>> futuresList) {
+    var futures = futuresList.toArray(CompletableFuture[]::new);
+    if (futures.length == 1) {
+      return futures[0];
+    }
+    var allTasks = CompletableFuture.allOf(futures);
+    allTasks.whenComplete((r, t) -> {
+      if (allTasks.isCancelled()) {
+        Arrays.stream(futures).forEach(f -> f.cancel(false));
+      }
+    });
+    return allTasks;
+  }
+
+  public AnalysisQueueStatus getQueueStatus() {
+    return taskQueue.getStatus();
   }
 
   public void initialize() {
     watcher.start();
   }
 
+  /**
+   * Re-analyze many files in chunks of bounded size. For each workspace folder, the next chunk is only queued when the previous one is done,
+   * so that more urgent analyses can run in between, and only the content of the files of the current chunks is retained.
+   */
+  Future<?> analyzeInChunks(String title, Collection<VersionnedOpenFile> files) {
+    var trueFileUris = filterLocalFiles(files);
+    if (trueFileUris.isEmpty()) {
+      return COMPLETED_FUTURE;
+    }
+    logQueuing(trueFileUris);
+    var focusedFile = trueFileUris.stream().filter(f -> f.getUri().equals(focusedFileUri)).findFirst();
+    focusedFile.ifPresent(f -> {
+      trueFileUris.remove(f);
+      submit(Set.of(f), false, AnalysisPriority.BULK);
+    });
+    var chunkSize = bulkChunkSize;
+    var chunkedAnalysis = new ChunkedAnalysis(trueFileUris.size());
+    trueFileUris.stream()
+      .collect(groupingBy(f -> Optional.ofNullable(laneOf(f)), mapping(VersionnedOpenFile::getUri, toList())))
+      .forEach((lane, uris) -> chunkedAnalysis.addLane(lane.orElse(null), partition(uris, chunkSize)));
+    return chunkedAnalysis.start(title);
+  }
+
+  private static <T> List<List<T>> partition(List<T> list, int size) {
+    var partitions = new ArrayList<List<T>>();
+    for (var i = 0; i < list.size(); i += size) {
+      partitions.add(list.subList(i, Math.min(i + size, list.size())));
+    }
+    return partitions;
+  }
+
+  private class ChunkedAnalysis {
+    private final int nbFiles;
+    private final Map<URI, List<List<URI>>> chunksPerLane = new HashMap<>();
+    private final AtomicInteger nbAnalyzedFiles = new AtomicInteger();
+    private final Set<Future<?>> queuedChunks = ConcurrentHashMap.newKeySet();
+    private volatile boolean canceled;
+
+    ChunkedAnalysis(int nbFiles) {
+      this.nbFiles = nbFiles;
+    }
+
+    void addLane(@Nullable URI lane, List<List<URI>> chunks) {
+      chunksPerLane.put(lane, chunks);
+    }
+
+    CompletableFuture<Void> start(String title) {
+      var allChunks = CompletableFuture.allOf(chunksPerLane.entrySet().stream()
+        .map(e -> queueNext(e.getKey(), e.getValue().iterator()))
+        .toArray(CompletableFuture[]::new));
+      allChunks.whenComplete((r, t) -> {
+        if (allChunks.isCancelled()) {
+          cancel();
+        }
+      });
+      CompletableFutures.computeAsync(progressExecutor, cancelToken -> {
+        progressManager.doWithProgress(title, null, cancelToken, progress -> reportProgressUntilDone(allChunks, progress));
+        return null;
+      });
+      return allChunks;
+    }
+
+    private CompletableFuture<Void> queueNext(@Nullable URI lane, Iterator<List<URI>> laneChunks) {
+      if (canceled || !laneChunks.hasNext()) {
+        return COMPLETED_FUTURE;
+      }
+      var chunk = laneChunks.next();
+      // Take the content only now, to analyze the latest version and to not retain the content of all files until the end
+      var files = chunk.stream()
+        .map(openFilesCache::getFile)
+        .flatMap(Optional::stream)
+        .collect(toSet());
+      if (files.isEmpty()) {
+        nbAnalyzedFiles.addAndGet(chunk.size());
+        return queueNext(lane, laneChunks);
+      }
+      var chunkFuture = taskQueue.submit(new AnalysisTask(files, false, lane, AnalysisPriority.BULK));
+      queuedChunks.add(chunkFuture);
+      return chunkFuture
+        // A chunk can be canceled because one of its files was modified, continue with the next one anyway
+        .handle((r, t) -> (Void) null)
+        .thenCompose(v -> {
+          queuedChunks.remove(chunkFuture);
+          nbAnalyzedFiles.addAndGet(chunk.size());
+          return queueNext(lane, laneChunks);
+        });
+    }
+
+    private void reportProgressUntilDone(CompletableFuture<Void> allChunks, ProgressFacade progress) {
+      var monitor = progress.asCoreMonitor();
+      if (monitor == null) {
+        return;
+      }
+      while (!allChunks.isDone()) {
+        if (monitor.isCanceled()) {
+          cancel();
+          throw new CanceledException();
+        }
+        var analyzed = nbAnalyzedFiles.get();
+        monitor.setMessage(format("%d/%d files", analyzed, nbFiles));
+        monitor.setFraction((float) analyzed / nbFiles);
+        try {
+          allChunks.get(PROGRESS_REFRESH_MS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException | CancellationException e) {
+          // Check again
+        } catch (InterruptedException e) {
+          Utils.interrupted(e);
+          return;
+        }
+      }
+    }
+
+    private void cancel() {
+      canceled = true;
+      queuedChunks.forEach(f -> f.cancel(false));
+    }
+  }
+
   public void shutdown() {
     watcher.stopWatcher();
     eventMap.clear();
-    Utils.shutdownAndAwait(asyncExecutor, true);
+    timers.clear();
+    taskQueue.shutdown();
+    Utils.shutdownAndAwait(progressExecutor, true);
   }
 
   public void analyzeAllOpenFilesInFolder(@Nullable WorkspaceFolderWrapper folder) {
     var openedFileUrisInFolder = openFilesCache.getAll().stream()
       .filter(f -> belongToFolder(folder, f.getUri()))
       .collect(Collectors.toList());
-    analyzeAsync(openedFileUrisInFolder, false);
+    analyzeInChunks("Analyze open files", openedFileUrisInFolder);
   }
 
   private boolean belongToFolder(WorkspaceFolderWrapper folder, URI fileUri) {
@@ -211,6 +552,14 @@ public class AnalysisScheduler implements WorkspaceSettingsChangeListener, Works
 
   @Override
   public void onChange(@CheckForNull WorkspaceSettings oldValue, WorkspaceSettings newValue) {
+    var analysisSettings = newValue.getAnalysisSettings();
+    debouncePolicy.setBounds(analysisSettings.getMinDebounceMs(), analysisSettings.getMaxDebounceMs());
+    taskQueue.setNbWorkers(analysisSettings.getNbWorkers());
+    bulkChunkSize = analysisSettings.getBulkChunkSize();
+    triggerMode = analysisSettings.getTriggerMode();
+    idleDelayMs = analysisSettings.getIdleDelayMs();
+    openFilesCache.setOffHeapThreshold(analysisSettings.getLargeFileSoftLimit());
+    analysisTaskExecutor.setMaxConcurrentAnalyses(analysisSettings.getMaxConcurrentAnalyses());
     if (oldValue == null) {
       // This is when settings are loaded, not really a user change
       return;
@@ -238,21 +587,21 @@ public class AnalysisScheduler implements WorkspaceSettingsChangeListener, Works
       .filter(VersionnedOpenFile::isCOrCpp)
       .filter(f -> belongToFolder(folder, f.getUri()))
       .collect(Collectors.toList());
-    analyzeAsync(openedCorCppFileUrisInFolder, false);
+    analyzeInChunks("Analyze open C and C++ files", openedCorCppFileUrisInFolder);
   }
 
   private void analyzeAllUnboundOpenFiles() {
     var openedUnboundFileUris = openFilesCache.getAll().stream()
       .filter(f -> bindingManager.getBinding(f.getUri()).isEmpty())
       .collect(Collectors.toList());
-    analyzeAsync(openedUnboundFileUris, false);
+    analyzeInChunks("Analyze open files", openedUnboundFileUris);
   }
 
   private void analyzeAllOpenJavaFiles() {
     var openedJavaFileUris = openFilesCache.getAll().stream()
       .filter(VersionnedOpenFile::isJava)
       .collect(toList());
-    analyzeAsync(openedJavaFileUris, false);
+    analyzeInChunks("Analyze open Java files", openedJavaFileUris);
   }
 
   public void didClasspathUpdate() {
@@ -38,30 +38,120 @@
   */
 package org.sonarsource.sonarlint.ls;
 
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Future;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import org.sonarsource.sonarlint.core.commons.progress.CanceledException;
 import org.sonarsource.sonarlint.ls.file.VersionnedOpenFile;
 
 class AnalysisTask {
 
-  private final Set<VersionnedOpenFile> filesToAnalyze;
-  private final boolean shouldFetchServerIssues;
+  // Files, flag and priority can be updated while the task is pending, guarded by the queue
+  private final Map<URI, VersionnedOpenFile> filesToAnalyze = new LinkedHashMap<>();
+  private boolean shouldFetchServerIssues;
+  private final URI lane;
+  private AnalysisPriority priority;
   private Future<?> future;
+  private long submittedAtNanos;
+  private long startedAtNanos;
+  private volatile AnalysisPhase phase;
 
   public AnalysisTask(Set<VersionnedOpenFile> filesToAnalyze, boolean shouldFetchServerIssues) {
-    this.filesToAnalyze = filesToAnalyze;
+    this(filesToAnalyze, shouldFetchServerIssues, null, AnalysisPriority.OPEN);
+  }
+
+  /**
+   * @param lane tasks with the same lane are never run concurrently. This is the URI of the workspace folder containing the files,
+   *             or <code>null</code> for files outside any folder.
+   */
+  public AnalysisTask(Set<VersionnedOpenFile> filesToAnalyze, boolean shouldFetchServerIssues, @Nullable URI lane, AnalysisPriority priority) {
+    filesToAnalyze.forEach(f -> this.filesToAnalyze.put(f.getUri(), f));
     this.shouldFetchServerIssues = shouldFetchServerIssues;
+    this.lane = lane;
+    this.priority = priority;
   }
 
   public Set<VersionnedOpenFile> getFilesToAnalyze() {
-    return filesToAnalyze;
+    return new LinkedHashSet<>(filesToAnalyze.values());
   }
 
   public boolean shouldFetchServerIssues() {
     return shouldFetchServerIssues;
   }
 
+  @CheckForNull
+  public URI getLane() {
+    return lane;
+  }
+
+  public AnalysisPriority getPriority() {
+    return priority;
+  }
+
+  void raisePriority(AnalysisPriority newPriority) {
+    priority = AnalysisPriority.mostUrgent(priority, newPriority);
+  }
+
+  boolean concerns(URI fileUri) {
+    return filesToAnalyze.containsKey(fileUri);
+  }
+
+  boolean isEmpty() {
+    return filesToAnalyze.isEmpty();
+  }
+
+  /**
+   * Take over the analysis of the files of a more recent task that are also part of this one
+   * @return <code>true</code> if at least one file was taken over
+   */
+  boolean absorb(AnalysisTask newerTask) {
+    var absorbed = false;
+    var it = newerTask.filesToAnalyze.values().iterator();
+    while (it.hasNext()) {
+      var newerFile = it.next();
+      if (concerns(newerFile.getUri())) {
+        filesToAnalyze.merge(newerFile.getUri(), newerFile, (current, newer) -> newer.getVersion() >= current.getVersion() ? newer : current);
+        it.remove();
+        absorbed = true;
+      }
+    }
+    if (absorbed) {
+      shouldFetchServerIssues |= newerTask.shouldFetchServerIssues;
+      raisePriority(newerTask.priority);
+    }
+    return absorbed;
+  }
+
+  long getSubmittedAtNanos() {
+    return submittedAtNanos;
+  }
+
+  void setSubmittedAtNanos(long submittedAtNanos) {
+    this.submittedAtNanos = submittedAtNanos;
+  }
+
+  long getStartedAtNanos() {
+    return startedAtNanos;
+  }
+
+  void setStartedAtNanos(long startedAtNanos) {
+    this.startedAtNanos = startedAtNanos;
+  }
+
+  @CheckForNull
+  AnalysisPhase getPhase() {
+    return phase;
+  }
+
+  void setPhase(AnalysisPhase phase) {
+    this.phase = phase;
+  }
+
   public boolean isCanceled() {
     return (future != null && future.isCancelled()) || Thread.currentThread().isInterrupted();
   }
@@ -24,19 +24,24 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import org.sonarsource.sonarlint.core.analysis.api.AnalysisResults;
 import org.sonarsource.sonarlint.core.analysis.api.ClientInputFile;
+import org.sonarsource.sonarlint.core.client.api.common.AbstractAnalysisConfiguration;
 import org.sonarsource.sonarlint.core.client.api.common.AbstractAnalysisConfiguration.AbstractBuilder;
 import org.sonarsource.sonarlint.core.client.api.common.PluginDetails;
 import org.sonarsource.sonarlint.core.client.api.common.analysis.Issue;
@@ -51,16 +56,21 @@ import org.sonarsource.sonarlint.ls.connected.ProjectBindingManager;
 import org.sonarsource.sonarlint.ls.connected.ProjectBindingWrapper;
 import org.sonarsource.sonarlint.ls.connected.TaintVulnerabilitiesCache;
 import org.sonarsource.sonarlint.ls.file.FileTypeClassifier;
+import org.sonarsource.sonarlint.ls.file.OpenFilesCache;
+import org.sonarsource.sonarlint.ls.file.ReleasedContentException;
 import org.sonarsource.sonarlint.ls.file.VersionnedOpenFile;
 import org.sonarsource.sonarlint.ls.folders.WorkspaceFolderWrapper;
 import org.sonarsource.sonarlint.ls.folders.WorkspaceFoldersManager;
 import org.sonarsource.sonarlint.ls.java.JavaConfigCache;
 import org.sonarsource.sonarlint.ls.log.LanguageClientLogOutput;
 import org.sonarsource.sonarlint.ls.log.LanguageClientLogger;
+import org.sonarsource.sonarlint.ls.metrics.AnalysisMetrics;
+import org.sonarsource.sonarlint.ls.settings.AnalysisSettings;
 import org.sonarsource.sonarlint.ls.settings.SettingsManager;
 import org.sonarsource.sonarlint.ls.settings.WorkspaceFolderSettings;
 import org.sonarsource.sonarlint.ls.standalone.StandaloneEngineManager;
 import org.sonarsource.sonarlint.ls.telemetry.SonarLintTelemetry;
+import org.sonarsource.sonarlint.ls.util.ResizableSemaphore;
 
 import static java.lang.String.format;
 import static java.util.Optional.ofNullable;
@@ -74,6 +84,8 @@ import static org.sonarsource.sonarlint.ls.util.Utils.pluralize;
 
 public class AnalysisTaskExecutor {
 
+  private static final long ENGINE_SLOT_POLLING_MS = 100;
+
   private final ScmIgnoredCache filesIgnoredByScmCache;
   private final LanguageClientLogger lsLogOutput;
   private final WorkspaceFoldersManager workspaceFoldersManager;
@@ -88,12 +100,20 @@ public class AnalysisTaskExecutor {
   private final StandaloneEngineManager standaloneEngineManager;
   private final DiagnosticPublisher diagnosticPublisher;
   private final SonarLintExtendedLanguageClient lsClient;
+  private final AdaptiveDebouncePolicy debouncePolicy;
+  private final OpenFilesCache openFilesCache;
+  private final AnalysisMetrics metrics;
+  // Files analyzed on user request, although they are too large or were skipped by the pre-filter
+  private final Set<URI> forcedFiles = ConcurrentHashMap.newKeySet();
+  // Analyses are CPU and memory intensive, so limit how many of them run at the same time, whatever the number of workers
+  private final ResizableSemaphore engineSlots = new ResizableSemaphore(AnalysisSettings.DEFAULT.getMaxConcurrentAnalyses());
 
   public AnalysisTaskExecutor(ScmIgnoredCache filesIgnoredByScmCache, LanguageClientLogger lsLogOutput,
     WorkspaceFoldersManager workspaceFoldersManager, ProjectBindingManager bindingManager, JavaConfigCache javaConfigCache, SettingsManager settingsManager,
     FileTypeClassifier fileTypeClassifier, IssuesCache issuesCache, TaintVulnerabilitiesCache taintVulnerabilitiesCache, SonarLintTelemetry telemetry,
     SkippedPluginsNotifier skippedPluginsNotifier, StandaloneEngineManager standaloneEngineManager, DiagnosticPublisher diagnosticPublisher,
-    SonarLintExtendedLanguageClient lsClient) {
+    SonarLintExtendedLanguageClient lsClient, AdaptiveDebouncePolicy debouncePolicy, OpenFilesCache openFilesCache,
+    AnalysisMetrics metrics) {
     this.filesIgnoredByScmCache = filesIgnoredByScmCache;
     this.lsLogOutput = lsLogOutput;
     this.workspaceFoldersManager = workspaceFoldersManager;
@@ -108,6 +128,9 @@ public class AnalysisTaskExecutor {
     this.standaloneEngineManager = standaloneEngineManager;
     this.diagnosticPublisher = diagnosticPublisher;
     this.lsClient = lsClient;
+    this.debouncePolicy = debouncePolicy;
+    this.openFilesCache = openFilesCache;
+    this.metrics = metrics;
   }
 
   public void run(AnalysisTask task) {
@@ -117,28 +140,108 @@ public class AnalysisTaskExecutor {
     } catch (CanceledException e) {
       lsLogOutput.debug("Analysis canceled");
     } catch (Exception e) {
-      lsLogOutput.error("Analysis failed", e);
+      if (ReleasedContentException.isCauseOf(e)) {
+        lsLogOutput.debug("Analysis outdated, files were modified while they were analyzed");
+      } else {
+        lsLogOutput.error("Analysis failed", e);
+      }
+    } finally {
+      metrics.logSummaryIfDue(lsLogOutput);
     }
   }
 
   private void analyze(AnalysisTask task) {
     var filesToAnalyze = task.getFilesToAnalyze().stream().collect(Collectors.toMap(VersionnedOpenFile::getUri, f -> f));
+    var language = languageOf(filesToAnalyze.values());
 
-    var scmIgnored = filesToAnalyze.keySet().stream()
+    var scmIgnored = measure(task, AnalysisPhase.SCM_CHECK, language, AnalysisMetrics.ANY, () -> filesToAnalyze.keySet().stream()
       .filter(this::scmIgnored)
-      .collect(toSet());
+      .collect(toSet()));
 
     scmIgnored.forEach(f -> {
       lsLogOutput.debug(format("Skip analysis for SCM ignored file: '%s'", f));
       clearIssueCacheAndPublishEmptyDiagnostics(f);
       filesToAnalyze.remove(f);
     });
+    measure(task, AnalysisPhase.PRE_FILTER, language, AnalysisMetrics.ANY, () -> skipFilesNotWorthAnalyzing(filesToAnalyze));
+    task.checkCanceled();
 
-    var filesToAnalyzePerFolder = filesToAnalyze.entrySet().stream()
-      .collect(groupingBy(entry -> workspaceFoldersManager.findFolderForFile(entry.getKey()), mapping(Entry::getValue, toMap(VersionnedOpenFile::getUri, f -> f))));
+    var filesToAnalyzePerFolder = measure(task, AnalysisPhase.FOLDER_GROUPING, language, AnalysisMetrics.ANY, () -> filesToAnalyze.entrySet().stream()
+      .collect(
+        groupingBy(entry -> workspaceFoldersManager.findFolderForFile(entry.getKey()), mapping(Entry::getValue, toMap(VersionnedOpenFile::getUri, f -> f)))));
     filesToAnalyzePerFolder.forEach((folder, filesToAnalyzeInFolder) -> analyze(task, folder, filesToAnalyzeInFolder));
   }
 
+  private <T> T measure(AnalysisTask task, AnalysisPhase phase, String language, String bindingMode, Supplier<T> step) {
+    task.setPhase(phase);
+    long start = System.currentTimeMillis();
+    var result = step.get();
+    metrics.record(phase.name(), language, bindingMode, System.currentTimeMillis() - start);
+    return result;
+  }
+
+  private void measure(AnalysisTask task, AnalysisPhase phase, String language, String bindingMode, Runnable step) {
+    measure(task, phase, language, bindingMode, () -> {
+      step.run();
+      return null;
+    });
+  }
+
+  private static String languageOf(Collection<VersionnedOpenFile> files) {
+    var languages = files.stream().map(f -> ofNullable(f.getLanguageId()).orElse("unknown")).distinct().limit(2).collect(toList());
+    return languages.size() == 1 ? languages.get(0) : "mixed";
+  }
+
+  private static String bindingModeOf(Optional<ProjectBindingWrapper> binding) {
+    return binding.isPresent() ? AnalysisMetrics.CONNECTED : AnalysisMetrics.STANDALONE;
+  }
+
+  private void skipFilesNotWorthAnalyzing(Map<URI, VersionnedOpenFile> filesToAnalyze) {
+    if (filesToAnalyze.isEmpty()) {
+      return;
+    }
+    var analysisSettings = settingsManager.getCurrentSettings().getAnalysisSettings();
+    var hardLimit = analysisSettings.getLargeFileHardLimit();
+    for (var file : List.copyOf(filesToAnalyze.values())) {
+      if (forcedFiles.contains(file.getUri())) {
+        diagnosticPublisher.hideSkippedFileNotice(file.getUri());
+      } else if (file.getContentLength() > hardLimit) {
+        lsLogOutput.debug(format("Skip analysis of file '%s', its size exceeds the limit of %d KB", file.getUri(), hardLimit / 1024));
+        diagnosticPublisher.showLargeFileNotice(file.getUri(), file.getContentLength());
+        skip(file, filesToAnalyze);
+      } else {
+        var preFilterSettings = analysisSettings.getPreFilterSettings().forLanguage(file.getLanguageId());
+        var skipReason = AnalysisPreFilter.check(file.getContent(), preFilterSettings);
+        if (skipReason.isPresent()) {
+          var reason = skipReason.get().getLabel();
+          lsLogOutput.debug(format("Skip analysis of file '%s', its content looks %s", file.getUri(), reason));
+          metrics.increment(AnalysisMetrics.PRE_FILTER_SKIPS + "." + reason, 1);
+          diagnosticPublisher.showSkippedFileNotice(file.getUri(), reason);
+          skip(file, filesToAnalyze);
+        } else {
+          diagnosticPublisher.hideSkippedFileNotice(file.getUri());
+        }
+      }
+    }
+  }
+
+  private void skip(VersionnedOpenFile file, Map<URI, VersionnedOpenFile> filesToAnalyze) {
+    issuesCache.clear(file.getUri());
+    diagnosticPublisher.publishDiagnostics(file.getUri());
+    filesToAnalyze.remove(file.getUri());
+  }
+
+  /**
+   * Analyze the file even if it is larger than the hard limit or skipped by the pre-filter, until it is closed
+   */
+  public void allowSkippedFileAnalysis(URI fileUri) {
+    forcedFiles.add(fileUri);
+  }
+
+  public void didClose(URI fileUri) {
+    forcedFiles.remove(fileUri);
+  }
+
   private boolean scmIgnored(URI fileUri) {
     var isIgnored = filesIgnoredByScmCache.isIgnored(fileUri).orElse(false);
     return Boolean.TRUE.equals(isIgnored);
@@ -170,7 +273,9 @@ public class AnalysisTaskExecutor {
     Map<URI, VersionnedOpenFile> javaFiles = ofNullable(splitJavaAndNonJavaFiles.get(true)).orElse(Map.of());
     Map<URI, VersionnedOpenFile> nonJavaFiles = ofNullable(splitJavaAndNonJavaFiles.get(false)).orElse(Map.of());
 
-    Map<URI, GetJavaConfigResponse> javaFilesWithConfig = collectJavaFilesWithConfig(javaFiles);
+    Map<URI, GetJavaConfigResponse> javaFilesWithConfig = javaFiles.isEmpty() ? Map.of()
+      : measure(task, AnalysisPhase.JAVA_CONFIG_FETCH, "java", bindingModeOf(binding), () -> collectJavaFilesWithConfig(javaFiles));
+    task.checkCanceled();
 
     var settings = workspaceFolder.map(WorkspaceFolderWrapper::getSettings)
       .orElse(settingsManager.getCurrentDefaultFolderSettings());
@@ -247,12 +352,14 @@ public class AnalysisTaskExecutor {
       .orElse(findCommonPrefix(filesToAnalyze.keySet().stream().map(Paths::get).collect(toList())).toUri());
 
     var nonExcludedFiles = new HashMap<>(filesToAnalyze);
+    task.checkCanceled();
     if (binding.isPresent()) {
       var connectedEngine = binding.get().getEngine();
-      var excludedByServerConfiguration = connectedEngine.getExcludedFiles(binding.get().getBinding(),
-        filesToAnalyze.keySet(),
-        uri -> getFileRelativePath(Paths.get(baseDirUri), uri),
-        uri -> fileTypeClassifier.isTest(settings, uri, javaConfigCache.getOrFetch(uri)));
+      var excludedByServerConfiguration = measure(task, AnalysisPhase.SERVER_EXCLUSIONS, languageOf(filesToAnalyze.values()), AnalysisMetrics.CONNECTED,
+        () -> connectedEngine.getExcludedFiles(binding.get().getBinding(),
+          filesToAnalyze.keySet(),
+          uri -> getFileRelativePath(Paths.get(baseDirUri), uri),
+          uri -> fileTypeClassifier.isTest(settings, uri, javaConfigCache.getOrFetch(uri))));
       excludedByServerConfiguration.forEach(f -> {
         lsLogOutput.debug(format("Skip analysis of file '%s' excluded by server configuration", f));
         nonExcludedFiles.remove(f);
@@ -260,12 +367,49 @@ public class AnalysisTaskExecutor {
       });
     }
 
+    reuseIssuesOfUnchangedFiles(task, settings, binding, nonExcludedFiles, javaConfigs);
+
     if (!nonExcludedFiles.isEmpty()) {
       analyzeSingleModuleNonExcluded(task, settings, binding, nonExcludedFiles, baseDirUri, javaConfigs);
     }
 
   }
 
+  /**
+   * Undo/redo or closing and reopening a file often leads to a content that was already analyzed with the same configuration.
+   * Bulk analyses are requested after a configuration change that is not part of the fingerprint (e.g. quality profile), and in bound folders
+   * fetching server issues requires to go through issue tracking, so they are never skipped.
+   */
+  private void reuseIssuesOfUnchangedFiles(AnalysisTask task, WorkspaceFolderSettings settings, Optional<ProjectBindingWrapper> binding,
+    Map<URI, VersionnedOpenFile> filesToAnalyze, Map<URI, GetJavaConfigResponse> javaConfigs) {
+    if (task.getPriority() == AnalysisPriority.BULK || (task.shouldFetchServerIssues() && binding.isPresent())) {
+      return;
+    }
+    var unchangedFiles = filesToAnalyze.values().stream()
+      .filter(f -> issuesCache.reuseIssuesIfUnchanged(f, fingerprint(f, settings, binding, javaConfigs)))
+      .map(VersionnedOpenFile::getUri)
+      .collect(toList());
+    metrics.increment(AnalysisMetrics.UNCHANGED_CONTENT_HITS, unchangedFiles.size());
+    metrics.increment(AnalysisMetrics.UNCHANGED_CONTENT_MISSES, (long) filesToAnalyze.size() - unchangedFiles.size());
+    unchangedFiles.forEach(f -> {
+      lsLogOutput.debug(format("File '%s' is unchanged since its last analysis, reuse its issues", f));
+      filesToAnalyze.remove(f);
+      diagnosticPublisher.publishDiagnostics(f);
+    });
+  }
+
+  private long fingerprint(VersionnedOpenFile file, WorkspaceFolderSettings settings, Optional<ProjectBindingWrapper> binding,
+    Map<URI, GetJavaConfigResponse> javaConfigs) {
+    var currentSettings = settingsManager.getCurrentSettings();
+    Object rulesConfiguration = binding.isPresent() ? binding.get().getConnectionId()
+      : Objects.hash(currentSettings.getExcludedRules(), currentSettings.getIncludedRules(), currentSettings.getRuleParameters());
+    var javaConfig = javaConfigs.get(file.getUri());
+    var javaConfigHash = javaConfig == null ? 0
+      : Objects.hash(javaConfig.getProjectRoot(), javaConfig.getSourceLevel(), Arrays.hashCode(javaConfig.getClasspath()), javaConfig.isTest(), javaConfig.getVmLocation());
+    var configurationHash = Objects.hash(file.getLanguageId(), settings, rulesConfiguration, javaConfigHash);
+    return 31 * file.getContentHash() + configurationHash;
+  }
+
   String getFileRelativePath(Path baseDir, URI uri) {
     try {
       return baseDir.relativize(Paths.get(uri)).toString();
@@ -308,14 +452,34 @@ public class AnalysisTaskExecutor {
     var ruleKeys = new HashSet<String>();
     var issueListener = createIssueListener(filesToAnalyze, ruleKeys);
 
+    var language = languageOf(filesToAnalyze.values());
     AnalysisResultsWrapper analysisResults;
     var filesSuccessfullyAnalyzed = new HashSet<>(filesToAnalyze.keySet());
-    if (binding.isPresent()) {
-      analysisResults = analyzeConnected(task, binding.get(), settings, baseDirUri, filesToAnalyze, javaConfigs, issueListener);
-    } else {
-      analysisResults = analyzeStandalone(task, settings, baseDirUri, filesToAnalyze, javaConfigs, issueListener);
+    try {
+      if (binding.isPresent()) {
+        analysisResults = analyzeConnected(task, binding.get(), settings, baseDirUri, filesToAnalyze, javaConfigs, issueListener);
+      } else {
+        analysisResults = analyzeStandalone(task, settings, baseDirUri, filesToAnalyze, javaConfigs, issueListener);
+      }
+      task.checkCanceled();
+    } catch (CanceledException e) {
+      // Issues streamed so far are partial, go back to the ones of the previous analysis
+      filesToAnalyze.forEach((fileUri, openFile) -> {
+        issuesCache.analysisCanceled(openFile);
+        diagnosticPublisher.publishDiagnostics(fileUri);
+      });
+      throw e;
+    } catch (RuntimeException e) {
+      if (ReleasedContentException.isCauseOf(e)) {
+        // The analyzed versions were superseded, newer ones will be analyzed. Meanwhile, go back to the issues of the previous analysis
+        filesToAnalyze.forEach((fileUri, openFile) -> {
+          issuesCache.analysisCanceled(openFile);
+          diagnosticPublisher.publishDiagnostics(fileUri);
+        });
+      }
+      throw e;
     }
-    task.checkCanceled();
+    learnAnalysisDuration(filesToAnalyze.keySet(), analysisResults.analysisTime);
     skippedPluginsNotifier.notifyOnceForSkippedPlugins(analysisResults.results, analysisResults.allPlugins);
 
     var analyzedLanguages = analysisResults.results.languagePerFile().values();
@@ -334,12 +498,18 @@ public class AnalysisTaskExecutor {
 
     if (!filesSuccessfullyAnalyzed.isEmpty()) {
       var totalIssueCount = new AtomicInteger();
-      filesSuccessfullyAnalyzed.forEach(f -> {
-        issuesCache.analysisSucceeded(filesToAnalyze.get(f));
+      measure(task, AnalysisPhase.PUBLICATION, language, bindingModeOf(binding), () -> filesSuccessfullyAnalyzed.forEach(f -> {
+        var analyzedFile = filesToAnalyze.get(f);
+        if (isOutdated(analyzedFile)) {
+          lsLogOutput.debug(format("File '%s' was modified during analysis, skip publication of outdated issues", f));
+          issuesCache.analysisOutdated(analyzedFile);
+          return;
+        }
+        issuesCache.analysisSucceeded(analyzedFile, fingerprint(analyzedFile, settings, binding, javaConfigs));
         var foundIssues = issuesCache.count(f);
         totalIssueCount.addAndGet(foundIssues);
         diagnosticPublisher.publishDiagnostics(f);
-      });
+      }));
       telemetry.addReportedRules(ruleKeys);
       lsLogOutput.info(format("Found %s %s", totalIssueCount.get(), pluralize(totalIssueCount.get(), "issue")));
     }
@@ -353,12 +523,21 @@ public class AnalysisTaskExecutor {
         URI uri = inputFile.getClientObject();
         var versionnedOpenFile = filesToAnalyze.get(uri);
         issuesCache.reportIssue(versionnedOpenFile, issue);
-        diagnosticPublisher.publishDiagnostics(uri);
+        if (!isOutdated(versionnedOpenFile)) {
+          diagnosticPublisher.publishDiagnosticsWhileStreaming(uri);
+        }
         ruleKeys.add(issue.getRuleKey());
       }
     };
   }
 
+  /**
+   * A newer version of the file is open, so issues would be displayed on the wrong lines. Another analysis will follow anyway.
+   */
+  private boolean isOutdated(VersionnedOpenFile analyzedFile) {
+    return openFilesCache.isOutdated(analyzedFile);
+  }
+
   private static final class TaskProgressMonitor implements ClientProgressMonitor {
     private final AnalysisTask task;
 
@@ -387,6 +566,15 @@ public class AnalysisTaskExecutor {
     }
   }
 
+  /**
+   * The duration of a batch says nothing about the cost of each of its files, so only single file analyses feed the debounce policy
+   */
+  void learnAnalysisDuration(Set<URI> analyzedFiles, int analysisTimeMs) {
+    if (analyzedFiles.size() == 1) {
+      debouncePolicy.analysisDone(analyzedFiles.iterator().next(), analysisTimeMs);
+    }
+  }
+
   static class AnalysisResultsWrapper {
     private final AnalysisResults results;
     private final int analysisTime;
@@ -402,30 +590,37 @@ public class AnalysisTaskExecutor {
   private AnalysisResultsWrapper analyzeStandalone(AnalysisTask task, WorkspaceFolderSettings settings, URI baseDirUri, Map<URI, VersionnedOpenFile> filesToAnalyze,
     Map<URI, GetJavaConfigResponse> javaConfigs, IssueListener issueListener) {
     var baseDir = Paths.get(baseDirUri);
+    var language = languageOf(filesToAnalyze.values());
 
-    var configuration = buildCommonAnalysisConfiguration(settings, baseDirUri, filesToAnalyze, javaConfigs, baseDir, StandaloneAnalysisConfiguration.builder())
-      .addExcludedRules(settingsManager.getCurrentSettings().getExcludedRules())
-      .addIncludedRules(settingsManager.getCurrentSettings().getIncludedRules())
-      .addRuleParameters(settingsManager.getCurrentSettings().getRuleParameters())
-      .build();
+    var configuration = measure(task, AnalysisPhase.CONFIGURATION_BUILD, language, AnalysisMetrics.STANDALONE,
+      () -> buildCommonAnalysisConfiguration(settings, baseDirUri, filesToAnalyze, javaConfigs, baseDir, StandaloneAnalysisConfiguration.builder())
+        .addExcludedRules(settingsManager.getCurrentSettings().getExcludedRules())
+        .addIncludedRules(settingsManager.getCurrentSettings().getIncludedRules())
+        .addRuleParameters(settingsManager.getCurrentSettings().getRuleParameters())
+        .build());
 
     lsLogOutput.debug(format("Analysis triggered with configuration:%n%s", configuration.toString()));
 
     var engine = standaloneEngineManager.getOrCreateStandaloneEngine();
-    return analyzeWithTiming(() -> engine.analyze(configuration, issueListener, new LanguageClientLogOutput(lsLogOutput, true), new TaskProgressMonitor(task)),
+    var results = analyzeWithTiming(task, language, AnalysisMetrics.STANDALONE,
+      () -> engine.analyze(configuration, issueListener, new LanguageClientLogOutput(lsLogOutput, true), new TaskProgressMonitor(task)),
       engine.getPluginDetails(),
       () -> {
       });
+    reportEncodedBytesSaved(configuration);
+    return results;
   }
 
   private AnalysisResultsWrapper analyzeConnected(AnalysisTask task, ProjectBindingWrapper binding, WorkspaceFolderSettings settings, URI baseDirUri,
     Map<URI, VersionnedOpenFile> filesToAnalyze,
     Map<URI, GetJavaConfigResponse> javaConfigs, IssueListener issueListener) {
     var baseDir = Paths.get(baseDirUri);
+    var language = languageOf(filesToAnalyze.values());
 
-    var configuration = buildCommonAnalysisConfiguration(settings, baseDirUri, filesToAnalyze, javaConfigs, baseDir, ConnectedAnalysisConfiguration.builder())
-      .setProjectKey(settings.getProjectKey())
-      .build();
+    var configuration = measure(task, AnalysisPhase.CONFIGURATION_BUILD, language, AnalysisMetrics.CONNECTED,
+      () -> buildCommonAnalysisConfiguration(settings, baseDirUri, filesToAnalyze, javaConfigs, baseDir, ConnectedAnalysisConfiguration.builder())
+        .setProjectKey(settings.getProjectKey())
+        .build());
 
     if (settingsManager.getCurrentSettings().hasLocalRuleConfiguration()) {
       lsLogOutput.debug("Local rules settings are ignored, using quality profile from server");
@@ -442,15 +637,19 @@ public class AnalysisTaskExecutor {
         issuesPerFiles.computeIfAbsent(inputFile.getClientObject(), uri -> new ArrayList<>()).add(i);
       }
     };
-    return analyzeWithTiming(() -> engine.analyze(configuration, accumulatorIssueListener, new LanguageClientLogOutput(lsLogOutput, true), new TaskProgressMonitor(task)),
+    var results = analyzeWithTiming(task, language, AnalysisMetrics.CONNECTED,
+      () -> engine.analyze(configuration, accumulatorIssueListener, new LanguageClientLogOutput(lsLogOutput, true), new TaskProgressMonitor(task)),
       engine.getPluginDetails(),
       () -> filesToAnalyze.forEach((fileUri, openFile) -> {
+        task.checkCanceled();
+        var fileLanguage = languageOf(List.of(openFile));
         var issues = issuesPerFiles.computeIfAbsent(fileUri, uri -> List.of());
         var filePath = FileUtils.toSonarQubePath(getFileRelativePath(baseDir, fileUri));
-        serverIssueTracker.matchAndTrack(filePath, issues, issueListener, task.shouldFetchServerIssues());
+        measure(task, AnalysisPhase.ISSUE_TRACKING, fileLanguage, AnalysisMetrics.CONNECTED,
+          () -> serverIssueTracker.matchAndTrack(filePath, issues, issueListener, task.shouldFetchServerIssues()));
         if (task.shouldFetchServerIssues()) {
-          var serverIssues = engine.getServerIssues(binding.getBinding(), filePath);
-          taintVulnerabilitiesCache.reload(fileUri, serverIssues);
+          measure(task, AnalysisPhase.TAINT_RELOAD, fileLanguage, AnalysisMetrics.CONNECTED,
+            () -> taintVulnerabilitiesCache.reload(fileUri, engine.getServerIssues(binding.getBinding(), filePath)));
           long foundVulnerabilities = taintVulnerabilitiesCache.getAsDiagnostics(fileUri).count();
           if (foundVulnerabilities > 0) {
             lsLogOutput
@@ -458,6 +657,19 @@ public class AnalysisTaskExecutor {
           }
         }
       }));
+    reportEncodedBytesSaved(configuration);
+    return results;
+  }
+
+  private void reportEncodedBytesSaved(AbstractAnalysisConfiguration configuration) {
+    var bytesSaved = configuration.inputFiles().stream()
+      .filter(AnalysisClientInputFile.class::isInstance)
+      .mapToLong(f -> ((AnalysisClientInputFile) f).getBytesSaved())
+      .sum();
+    if (bytesSaved > 0) {
+      metrics.increment(AnalysisMetrics.ENCODED_BYTES_SAVED, bytesSaved);
+      lsLogOutput.debug(format("Reused %d bytes of already encoded content", bytesSaved));
+    }
   }
 
   private <G extends AbstractBuilder<G>> G buildCommonAnalysisConfiguration(WorkspaceFolderSettings settings, URI baseDirUri, Map<URI, VersionnedOpenFile> filesToAnalyze,
@@ -473,21 +685,45 @@ public class AnalysisTaskExecutor {
     }
     filesToAnalyze.forEach((uri, openFile) -> configurationBuilder
       .addInputFiles(
-        new AnalysisClientInputFile(uri, getFileRelativePath(baseDir, uri), openFile.getContent(),
-          fileTypeClassifier.isTest(settings, uri, ofNullable(javaConfigs.get(uri))),
-          openFile.getLanguageId())));
+        new AnalysisClientInputFile(uri, getFileRelativePath(baseDir, uri), openFile,
+          fileTypeClassifier.isTest(settings, uri, ofNullable(javaConfigs.get(uri))))));
     return configurationBuilder;
   }
 
   /**
-   * @param analyze Analysis callback
+   * @param analyze Analysis callback, only run once an engine slot is available
    * @param postAnalysisTask Code that will be run after the analysis, but still counted in the total analysis duration.
    */
-  private static AnalysisResultsWrapper analyzeWithTiming(Supplier<AnalysisResults> analyze, Collection<PluginDetails> allPlugins, Runnable postAnalysisTask) {
+  private AnalysisResultsWrapper analyzeWithTiming(AnalysisTask task, String language, String bindingMode, Supplier<AnalysisResults> analyze,
+    Collection<PluginDetails> allPlugins, Runnable postAnalysisTask) {
+    measure(task, AnalysisPhase.WAITING_FOR_ENGINE, language, bindingMode, () -> acquireEngineSlot(task));
     long start = System.currentTimeMillis();
-    var analysisResults = analyze.get();
+    AnalysisResults analysisResults;
+    try {
+      analysisResults = measure(task, AnalysisPhase.ENGINE_ANALYSIS, language, bindingMode, analyze);
+    } finally {
+      engineSlots.release();
+    }
     postAnalysisTask.run();
     int analysisTime = (int) (System.currentTimeMillis() - start);
     return new AnalysisResultsWrapper(analysisResults, analysisTime, allPlugins);
   }
+
+  private void acquireEngineSlot(AnalysisTask task) {
+    try {
+      while (!engineSlots.tryAcquire(ENGINE_SLOT_POLLING_MS, TimeUnit.MILLISECONDS)) {
+        task.checkCanceled();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CanceledException();
+    }
+  }
+
+  /**
+   * Change the maximum number of engine analyses running at the same time. Running analyses are not affected.
+   */
+  public void setMaxConcurrentAnalyses(int maxConcurrentAnalyses) {
+    engineSlots.resize(Math.max(1, maxConcurrentAnalyses));
+  }
 }
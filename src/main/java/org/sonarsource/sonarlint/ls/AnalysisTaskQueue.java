@@ -0,0 +1,346 @@
+/*
+ * SonarLint Language Server
+ * Copyright (C) 2009-2022 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.ls;
+
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import javax.annotation.CheckForNull;
+import org.sonarsource.sonarlint.ls.SonarLintExtendedLanguageServer.AnalysisQueueStatus;
+import org.sonarsource.sonarlint.ls.SonarLintExtendedLanguageServer.AnalysisThroughput;
+import org.sonarsource.sonarlint.ls.SonarLintExtendedLanguageServer.PendingAnalysis;
+import org.sonarsource.sonarlint.ls.SonarLintExtendedLanguageServer.RunningAnalysis;
+import org.sonarsource.sonarlint.ls.log.LanguageClientLogger;
+
+import static java.lang.String.format;
+import static java.util.Optional.ofNullable;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Run analysis tasks on a pool of workers. Tasks sharing the same lane (the same workspace folder) are run one after the other,
+ * while tasks of different lanes can run in parallel. Among the tasks that can be started, the most urgent one is picked first,
+ * see {@link AnalysisPriority}. Tasks of the same priority are run in submission order.
+ * <p>
+ * Files submitted while they are already waiting in the queue are merged into the pending task, so that they are analyzed only once.
+ */
+class AnalysisTaskQueue {
+
+  private static final long SHUTDOWN_TIMEOUT_MS = 1000;
+
+  private final LanguageClientLogger lsLogOutput;
+  private final Consumer<AnalysisTask> taskRunner;
+  private final ThreadFactory threadFactory;
+
+  private final Object lock = new Object();
+  private final Deque<AnalysisTask> pendingTasks = new ArrayDeque<>();
+  private final Set<URI> busyLanes = new HashSet<>();
+  private final Set<AnalysisTask> runningTasks = new HashSet<>();
+  private final Set<Thread> workers = new HashSet<>();
+  // When the running analysis of a file was preempted, to measure how long it takes to restart it
+  private final Map<URI, Long> preemptionTimesNanos = new HashMap<>();
+  private final CompletedTasksWindow completedTasks = new CompletedTasksWindow();
+  private boolean stopped;
+  private int targetWorkers;
+  private int liveWorkers;
+
+  AnalysisTaskQueue(LanguageClientLogger lsLogOutput, Consumer<AnalysisTask> taskRunner, ThreadFactory threadFactory, int nbWorkers) {
+    this.lsLogOutput = lsLogOutput;
+    this.taskRunner = taskRunner;
+    this.threadFactory = threadFactory;
+    this.targetWorkers = Math.max(1, nbWorkers);
+  }
+
+  CompletableFuture<Void> submit(AnalysisTask task) {
+    var future = new CompletableFuture<Void>();
+    task.setFuture(future);
+    task.setSubmittedAtNanos(System.nanoTime());
+    synchronized (lock) {
+      if (stopped) {
+        future.cancel(false);
+        return future;
+      }
+      var absorbingTasks = coalesce(task);
+      if (task.isEmpty() && !absorbingTasks.isEmpty()) {
+        lsLogOutput.debug("All files are already waiting for analysis, no new analysis queued");
+        var absorbingFutures = absorbingTasks.stream().map(t -> (CompletableFuture<?>) t.getFuture()).toArray(CompletableFuture[]::new);
+        var mergedFuture = CompletableFuture.allOf(absorbingFutures);
+        task.setFuture(mergedFuture);
+        return mergedFuture;
+      }
+      pendingTasks.add(task);
+      startMissingWorkers();
+      lock.notifyAll();
+    }
+    return future;
+  }
+
+  /**
+   * Move files of the new task that are already part of a pending task to that task
+   * @return the pending tasks that took over some files
+   */
+  private List<AnalysisTask> coalesce(AnalysisTask newTask) {
+    var absorbingTasks = new ArrayList<AnalysisTask>();
+    for (var pendingTask : pendingTasks) {
+      if (newTask.isEmpty()) {
+        break;
+      }
+      if (!pendingTask.getFuture().isCancelled() && pendingTask.absorb(newTask)) {
+        absorbingTasks.add(pendingTask);
+      }
+    }
+    return absorbingTasks;
+  }
+
+  /**
+   * Cancel running tasks analyzing the given file. The analysis will stop at the next safe point, and the lane will be freed only then.
+   * @return the canceled tasks
+   */
+  List<AnalysisTask> preempt(URI fileUri) {
+    synchronized (lock) {
+      var preempted = runningTasks.stream()
+        .filter(t -> !t.getFuture().isDone() && t.concerns(fileUri))
+        .collect(toList());
+      var now = System.nanoTime();
+      preempted.forEach(t -> {
+        lsLogOutput.debug(format("Canceling running analysis of %d file(s), '%s' was modified", t.getFilesToAnalyze().size(), fileUri));
+        t.getFuture().cancel(false);
+        t.getFilesToAnalyze().forEach(f -> preemptionTimesNanos.putIfAbsent(f.getUri(), now));
+      });
+      return preempted;
+    }
+  }
+
+  AnalysisQueueStatus getStatus() {
+    var now = System.nanoTime();
+    synchronized (lock) {
+      var pending = pendingTasks.stream()
+        .filter(t -> !t.getFuture().isCancelled())
+        .map(t -> new PendingAnalysis(uris(t), t.getPriority().name(), NANOSECONDS.toMillis(now - t.getSubmittedAtNanos())))
+        .collect(toList());
+      var running = runningTasks.stream()
+        .map(t -> new RunningAnalysis(uris(t), ofNullable(t.getPhase()).map(AnalysisPhase::getLabel).orElse("Starting"),
+          NANOSECONDS.toMillis(now - t.getStartedAtNanos())))
+        .collect(toList());
+      return new AnalysisQueueStatus(pending, running, completedTasks.computeThroughput());
+    }
+  }
+
+  private static List<String> uris(AnalysisTask task) {
+    return task.getFilesToAnalyze().stream().map(f -> f.getUri().toString()).collect(toList());
+  }
+
+  /**
+   * Raise the priority of pending tasks analyzing the given file
+   */
+  void prioritize(URI fileUri, AnalysisPriority priority) {
+    synchronized (lock) {
+      pendingTasks.stream()
+        .filter(t -> t.concerns(fileUri))
+        .forEach(t -> t.raisePriority(priority));
+    }
+  }
+
+  /**
+   * Extra workers will stop after their current task, missing workers are started right away
+   */
+  void setNbWorkers(int nbWorkers) {
+    synchronized (lock) {
+      targetWorkers = Math.max(1, nbWorkers);
+      startMissingWorkers();
+      lock.notifyAll();
+    }
+  }
+
+  /**
+   * Cancel all tasks, interrupt running analyses and wait for a bounded time for workers to stop
+   */
+  void shutdown() {
+    synchronized (lock) {
+      stopped = true;
+      pendingTasks.forEach(t -> t.getFuture().cancel(false));
+      pendingTasks.clear();
+      runningTasks.forEach(t -> t.getFuture().cancel(false));
+      workers.forEach(Thread::interrupt);
+      lock.notifyAll();
+      var deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SHUTDOWN_TIMEOUT_MS);
+      try {
+        while (!workers.isEmpty()) {
+          var remainingMs = NANOSECONDS.toMillis(deadline - System.nanoTime());
+          if (remainingMs <= 0) {
+            lsLogOutput.warn(format("%d analysis worker(s) did not stop in time", workers.size()));
+            return;
+          }
+          lock.wait(remainingMs);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private void startMissingWorkers() {
+    while (liveWorkers < targetWorkers) {
+      liveWorkers++;
+      var worker = threadFactory.newThread(this::work);
+      workers.add(worker);
+      worker.start();
+    }
+  }
+
+  private void work() {
+    try {
+      runTasks();
+    } finally {
+      synchronized (lock) {
+        workers.remove(Thread.currentThread());
+        lock.notifyAll();
+      }
+    }
+  }
+
+  private void runTasks() {
+    AnalysisTask task;
+    while ((task = takeNext()) != null) {
+      try {
+        taskRunner.accept(task);
+      } catch (Exception e) {
+        lsLogOutput.error("Analysis task failed", e);
+      } finally {
+        synchronized (lock) {
+          busyLanes.remove(task.getLane());
+          runningTasks.remove(task);
+          if (!task.getFuture().isCancelled()) {
+            completedTasks.add(task, System.nanoTime());
+          }
+          lock.notifyAll();
+        }
+        ((CompletableFuture<?>) task.getFuture()).complete(null);
+      }
+    }
+  }
+
+  private AnalysisTask takeNext() {
+    synchronized (lock) {
+      while (true) {
+        if (stopped || liveWorkers > targetWorkers) {
+          liveWorkers--;
+          return null;
+        }
+        var next = pickNext();
+        if (next != null) {
+          pendingTasks.remove(next);
+          busyLanes.add(next.getLane());
+          runningTasks.add(next);
+          next.setStartedAtNanos(System.nanoTime());
+          logRestartDelay(next);
+          return next;
+        }
+        try {
+          lock.wait();
+        } catch (InterruptedException e) {
+          liveWorkers--;
+          Thread.currentThread().interrupt();
+          return null;
+        }
+      }
+    }
+  }
+
+  private void logRestartDelay(AnalysisTask task) {
+    task.getFilesToAnalyze().stream()
+      .map(f -> preemptionTimesNanos.remove(f.getUri()))
+      .filter(Objects::nonNull)
+      .min(Long::compare)
+      .ifPresent(preemptedAt -> lsLogOutput.debug(format("Analysis restarted %d ms after preemption", NANOSECONDS.toMillis(System.nanoTime() - preemptedAt))));
+  }
+
+  /**
+   * Ring buffer of the timings of the most recently completed tasks
+   */
+  private static class CompletedTasksWindow {
+    private static final int SIZE = 256;
+    private final long[] completedAtNanos = new long[SIZE];
+    private final long[] queueTimesNanos = new long[SIZE];
+    private final long[] latenciesNanos = new long[SIZE];
+    private final int[] nbFiles = new int[SIZE];
+    private int next;
+    private int count;
+
+    void add(AnalysisTask task, long now) {
+      completedAtNanos[next] = now;
+      queueTimesNanos[next] = task.getStartedAtNanos() - task.getSubmittedAtNanos();
+      latenciesNanos[next] = now - task.getSubmittedAtNanos();
+      nbFiles[next] = task.getFilesToAnalyze().size();
+      next = (next + 1) % SIZE;
+      count = Math.min(count + 1, SIZE);
+    }
+
+    AnalysisThroughput computeThroughput() {
+      if (count == 0) {
+        return new AnalysisThroughput(0, 0, 0, 0, 0, 0);
+      }
+      var oldest = count < SIZE ? 0 : next;
+      var newest = (next + SIZE - 1) % SIZE;
+      var files = 0;
+      var totalQueueTime = 0L;
+      var latencies = new long[count];
+      for (var i = 0; i < count; i++) {
+        files += nbFiles[i];
+        totalQueueTime += queueTimesNanos[i];
+        latencies[i] = latenciesNanos[i];
+      }
+      Arrays.sort(latencies);
+      var averageLatency = Arrays.stream(latencies).sum() / count;
+      var p95Latency = latencies[Math.min(count - 1, (int) Math.ceil(count * 0.95) - 1)];
+      var spanNanos = completedAtNanos[newest] - completedAtNanos[oldest];
+      var filesPerMinute = spanNanos > 0 ? (files * (double) TimeUnit.MINUTES.toNanos(1) / spanNanos) : 0;
+      return new AnalysisThroughput(count, files, filesPerMinute, NANOSECONDS.toMillis(totalQueueTime / count), NANOSECONDS.toMillis(averageLatency),
+        NANOSECONDS.toMillis(p95Latency));
+    }
+  }
+
+  @CheckForNull
+  private AnalysisTask pickNext() {
+    AnalysisTask best = null;
+    var it = pendingTasks.iterator();
+    while (it.hasNext()) {
+      var task = it.next();
+      if (task.getFuture().isCancelled()) {
+        it.remove();
+      } else if (!busyLanes.contains(task.getLane()) && (best == null || task.getPriority().isMoreUrgentThan(best.getPriority()))) {
+        best = task;
+      }
+    }
+    return best;
+  }
+}
@@ -59,6 +59,7 @@ import org.sonarsource.sonarlint.ls.commands.ShowAllLocationsCommand;
 import org.sonarsource.sonarlint.ls.connected.ProjectBindingManager;
 import org.sonarsource.sonarlint.ls.connected.ProjectBindingWrapper;
 import org.sonarsource.sonarlint.ls.connected.TaintVulnerabilitiesCache;
+import org.sonarsource.sonarlint.ls.file.OpenFilesCache;
 import org.sonarsource.sonarlint.ls.settings.SettingsManager;
 import org.sonarsource.sonarlint.ls.standalone.StandaloneEngineManager;
 import org.sonarsource.sonarlint.ls.telemetry.SonarLintTelemetry;
@@ -77,13 +78,15 @@ public class CommandManager {
   static final String SONARLINT_UPDATE_ALL_BINDINGS_COMMAND = "SonarLint.UpdateAllBindings";
   static final String SONARLINT_BROWSE_TAINT_VULNERABILITY = "SonarLint.BrowseTaintVulnerability";
   static final String SONARLINT_SHOW_TAINT_VULNERABILITY_FLOWS = "SonarLint.ShowTaintVulnerabilityFlows";
+  static final String SONARLINT_FORCE_ANALYSIS = "SonarLint.ForceAnalysis";
   static final List<String> SONARLINT_SERVERSIDE_COMMANDS = List.of(
     SONARLINT_QUICK_FIX_APPLIED,
     SONARLINT_UPDATE_ALL_BINDINGS_COMMAND,
     SONARLINT_OPEN_RULE_DESCRIPTION_FROM_CODE_ACTION_COMMAND,
     SONARLINT_OPEN_STANDALONE_RULE_DESCRIPTION_COMMAND,
     SONARLINT_BROWSE_TAINT_VULNERABILITY,
-    SONARLINT_SHOW_TAINT_VULNERABILITY_FLOWS);
+    SONARLINT_SHOW_TAINT_VULNERABILITY_FLOWS,
+    SONARLINT_FORCE_ANALYSIS);
   // Client side
   static final String SONARLINT_DEACTIVATE_RULE_COMMAND = "SonarLint.DeactivateRule";
 
@@ -96,9 +99,12 @@ public class CommandManager {
   private final StandaloneEngineManager standaloneEngineManager;
   private final TaintVulnerabilitiesCache taintVulnerabilitiesCache;
   private final IssuesCache issuesCache;
+  private final OpenFilesCache openFilesCache;
+  private final AnalysisScheduler analysisScheduler;
 
   CommandManager(SonarLintExtendedLanguageClient client, SettingsManager settingsManager, ProjectBindingManager bindingManager,
-    SonarLintTelemetry telemetry, StandaloneEngineManager standaloneEngineManager, TaintVulnerabilitiesCache taintVulnerabilitiesCache, IssuesCache issuesCache) {
+    SonarLintTelemetry telemetry, StandaloneEngineManager standaloneEngineManager, TaintVulnerabilitiesCache taintVulnerabilitiesCache, IssuesCache issuesCache,
+    OpenFilesCache openFilesCache, AnalysisScheduler analysisScheduler) {
     this.client = client;
     this.settingsManager = settingsManager;
     this.bindingManager = bindingManager;
@@ -106,6 +112,8 @@ public class CommandManager {
     this.standaloneEngineManager = standaloneEngineManager;
     this.taintVulnerabilitiesCache = taintVulnerabilitiesCache;
     this.issuesCache = issuesCache;
+    this.openFilesCache = openFilesCache;
+    this.analysisScheduler = analysisScheduler;
   }
 
   public List<Either<Command, CodeAction>> computeCodeActions(CodeActionParams params, CancelChecker cancelToken) {
@@ -114,7 +122,13 @@ public class CommandManager {
     var binding = bindingManager.getBinding(uri);
     for (var diagnostic : params.getContext().getDiagnostics()) {
       cancelToken.checkCanceled();
-      if (SONARLINT_SOURCE.equals(diagnostic.getSource())) {
+      if (SONARLINT_SOURCE.equals(diagnostic.getSource()) && hasCode(diagnostic, DiagnosticPublisher.HIDDEN_ISSUES_CODE)) {
+        // Not an issue, nothing to fix
+        continue;
+      }
+      if (SONARLINT_SOURCE.equals(diagnostic.getSource()) && isSkippedFileNotice(diagnostic)) {
+        codeActions.add(newQuickFix(diagnostic, "Analyze anyway", SONARLINT_FORCE_ANALYSIS, List.of(uri.toString())));
+      } else if (SONARLINT_SOURCE.equals(diagnostic.getSource())) {
         var ruleKey = diagnostic.getCode().getLeft();
         cancelToken.checkCanceled();
         var issueForDiagnostic = issuesCache.getIssueForDiagnostic(uri, diagnostic);
@@ -268,11 +282,23 @@ public class CommandManager {
       case SONARLINT_SHOW_TAINT_VULNERABILITY_FLOWS:
         handleShowTaintVulnerabilityFlows(params);
         break;
+      case SONARLINT_FORCE_ANALYSIS:
+        analysisScheduler.forceAnalysis(create(getAsString(params.getArguments().get(0))));
+        break;
       default:
         throw new ResponseErrorException(new ResponseError(ResponseErrorCode.InvalidParams, "Unsupported command: " + params.getCommand(), null));
     }
   }
 
+  private static boolean isSkippedFileNotice(Diagnostic diagnostic) {
+    return hasCode(diagnostic, DiagnosticPublisher.LARGE_FILE_CODE) || hasCode(diagnostic, DiagnosticPublisher.SKIPPED_FILE_CODE);
+  }
+
+  private static boolean hasCode(Diagnostic diagnostic, String expectedCode) {
+    var code = diagnostic.getCode();
+    return code != null && code.isLeft() && expectedCode.equals(code.getLeft());
+  }
+
   private void handleOpenStandaloneRuleDescriptionCommand(ExecuteCommandParams params) {
     var ruleKey = getAsString(params.getArguments().get(0));
     openRuleDescription(null, ruleKey);
@@ -297,7 +323,7 @@ public class CommandManager {
     taintVulnerabilitiesCache.getTaintVulnerabilityByKey(issueKey)
       .ifPresent(issue -> {
         telemetry.taintVulnerabilitiesInvestigatedLocally();
-        client.showTaintVulnerability(ShowAllLocationsCommand.params(issue, connectionId, bindingManager::serverPathToFileUri));
+        client.showTaintVulnerability(ShowAllLocationsCommand.params(issue, connectionId, bindingManager::serverPathToFileUri, openFilesCache::getFile));
       });
   }
 
@@ -0,0 +1,175 @@
+/*
+ * SonarLint Language Server
+ * Copyright (C) 2009-2022 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.ls;
+
+import java.util.List;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonarsource.sonarlint.core.analysis.api.ClientInputFile;
+import org.sonarsource.sonarlint.core.analysis.api.Flow;
+import org.sonarsource.sonarlint.core.analysis.api.QuickFix;
+import org.sonarsource.sonarlint.core.analysis.api.TextRange;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.Issue;
+
+/**
+ * Copy of an issue reported by the engine, small enough to be kept for all issues of all open files. The engine issue is only retained
+ * when it has flows or quick fixes. Otherwise the input file, that holds the analyzed content, is not retained.
+ */
+final class CompactIssue implements Issue {
+  static final int NO_VALUE = -1;
+
+  private final String ruleKey;
+  private final String severity;
+  @CheckForNull
+  private final String type;
+  @CheckForNull
+  private final String message;
+  private final int startLine;
+  private final int startLineOffset;
+  private final int endLine;
+  private final int endLineOffset;
+  @CheckForNull
+  private final Issue issueWithDetails;
+
+  private CompactIssue(Issue issue) {
+    this.ruleKey = intern(issue.getRuleKey());
+    this.severity = intern(issue.getSeverity());
+    this.type = intern(issue.getType());
+    this.message = issue.getMessage();
+    this.startLine = valueOf(issue.getStartLine());
+    this.startLineOffset = valueOf(issue.getStartLineOffset());
+    this.endLine = valueOf(issue.getEndLine());
+    this.endLineOffset = valueOf(issue.getEndLineOffset());
+    this.issueWithDetails = issue.flows().isEmpty() && issue.quickFixes().isEmpty() ? null : issue;
+  }
+
+  /**
+   * Issue without flows nor quick fixes, from its flattened attributes
+   */
+  CompactIssue(String ruleKey, String severity, @Nullable String type, @Nullable String message, int startLine, int startLineOffset, int endLine,
+    int endLineOffset) {
+    this.ruleKey = ruleKey;
+    this.severity = severity;
+    this.type = type;
+    this.message = message;
+    this.startLine = startLine;
+    this.startLineOffset = startLineOffset;
+    this.endLine = endLine;
+    this.endLineOffset = endLineOffset;
+    this.issueWithDetails = null;
+  }
+
+  static Issue of(Issue issue) {
+    return issue instanceof CompactIssue ? issue : new CompactIssue(issue);
+  }
+
+  // Few distinct rule keys, severities and types are shared by many issues
+  @CheckForNull
+  private static String intern(@Nullable String value) {
+    return value == null ? null : value.intern();
+  }
+
+  static int valueOf(@Nullable Integer value) {
+    return value == null ? NO_VALUE : value;
+  }
+
+  @CheckForNull
+  private static Integer nullable(int value) {
+    return value == NO_VALUE ? null : value;
+  }
+
+  @Override
+  public String getSeverity() {
+    return severity;
+  }
+
+  @CheckForNull
+  @Override
+  public String getType() {
+    return type;
+  }
+
+  @CheckForNull
+  @Override
+  public String getMessage() {
+    return message;
+  }
+
+  @Override
+  public String getRuleKey() {
+    return ruleKey;
+  }
+
+  @CheckForNull
+  @Override
+  public Integer getStartLine() {
+    return nullable(startLine);
+  }
+
+  @CheckForNull
+  @Override
+  public Integer getStartLineOffset() {
+    return nullable(startLineOffset);
+  }
+
+  @CheckForNull
+  @Override
+  public Integer getEndLine() {
+    return nullable(endLine);
+  }
+
+  @CheckForNull
+  @Override
+  public Integer getEndLineOffset() {
+    return nullable(endLineOffset);
+  }
+
+  boolean hasDetails() {
+    return issueWithDetails != null;
+  }
+
+  @Override
+  public List<Flow> flows() {
+    return issueWithDetails != null ? issueWithDetails.flows() : List.of();
+  }
+
+  @Override
+  public List<QuickFix> quickFixes() {
+    return issueWithDetails != null ? issueWithDetails.quickFixes() : List.of();
+  }
+
+  /**
+   * Only available for issues with flows or quick fixes
+   */
+  @CheckForNull
+  @Override
+  public ClientInputFile getInputFile() {
+    return issueWithDetails != null ? issueWithDetails.getInputFile() : null;
+  }
+
+  @CheckForNull
+  @Override
+  public TextRange getTextRange() {
+    if (startLine == NO_VALUE) {
+      return null;
+    }
+    return new TextRange(startLine, nullable(startLineOffset), nullable(endLine), nullable(endLineOffset));
+  }
+}
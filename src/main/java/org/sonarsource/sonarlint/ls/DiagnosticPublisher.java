@@ -20,38 +20,100 @@
 package org.sonarsource.sonarlint.ls;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
 import java.util.stream.Stream;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import org.eclipse.lsp4j.Diagnostic;
+import org.eclipse.lsp4j.DiagnosticSeverity;
+import org.eclipse.lsp4j.Position;
 import org.eclipse.lsp4j.PublishDiagnosticsParams;
+import org.eclipse.lsp4j.Range;
+import org.eclipse.lsp4j.TextDocumentContentChangeEvent;
 import org.sonarsource.sonarlint.core.client.api.common.analysis.Issue;
 import org.sonarsource.sonarlint.core.commons.Language;
 import org.sonarsource.sonarlint.ls.IssuesCache.VersionnedIssue;
 import org.sonarsource.sonarlint.ls.connected.TaintVulnerabilitiesCache;
+import org.sonarsource.sonarlint.ls.file.RangeShifter;
+import org.sonarsource.sonarlint.ls.metrics.AnalysisMetrics;
+import org.sonarsource.sonarlint.ls.settings.AnalysisSettings;
+import org.sonarsource.sonarlint.ls.settings.WorkspaceSettings;
+import org.sonarsource.sonarlint.ls.settings.WorkspaceSettingsChangeListener;
 import org.sonarsource.sonarlint.ls.util.Utils;
 
+import static java.util.stream.Collectors.collectingAndThen;
 import static java.util.stream.Collectors.toList;
 import static org.sonarsource.sonarlint.ls.util.Utils.buildMessageWithPluralizedSuffix;
+import static org.sonarsource.sonarlint.ls.util.Utils.pluralize;
 import static org.sonarsource.sonarlint.ls.util.Utils.severity;
 
-public class DiagnosticPublisher {
+public class DiagnosticPublisher implements WorkspaceSettingsChangeListener {
 
   static final String SONARLINT_SOURCE = "sonarlint";
 
   public static final String ITEM_LOCATION = "location";
   public static final String ITEM_FLOW = "flow";
 
+  /**
+   * Code of the diagnostic telling that a file was not analyzed because it is too large
+   */
+  public static final String LARGE_FILE_CODE = "sonarlint.largeFile";
+  /**
+   * Code of the diagnostic telling that a file was not analyzed because of its content
+   */
+  public static final String SKIPPED_FILE_CODE = "sonarlint.skippedFile";
+  /**
+   * Code of the diagnostic summarizing issues that are not published because the file has too many of them
+   */
+  public static final String HIDDEN_ISSUES_CODE = "sonarlint.hiddenIssues";
+
+  static final long STREAMING_PUBLISH_WINDOW_MS = 100;
+
   private final SonarLintExtendedLanguageClient client;
   private boolean firstSecretIssueDetected;
 
   private final IssuesCache issuesCache;
   private final TaintVulnerabilitiesCache taintVulnerabilitiesCache;
+  private final AnalysisMetrics metrics;
+  private final Map<URI, Diagnostic> skippedFileNoticePerFileURI = new ConcurrentHashMap<>();
+  private final long streamingPublishWindowNanos;
+  private final LongSupplier nanoClock;
+  private final ScheduledExecutorService streamingPublishExecutor;
+  private final Map<URI, StreamingPublication> streamingPublicationPerFileURI = new ConcurrentHashMap<>();
+  private final Map<URI, ConvertedDiagnostics> convertedDiagnosticsPerFileURI = new ConcurrentHashMap<>();
+  // Guarded by this
+  private final Map<URI, List<Diagnostic>> lastPublishedDiagnosticsPerFileURI = new HashMap<>();
+  private final Map<URI, Integer> lastEditedLinePerFileURI = new ConcurrentHashMap<>();
+  private volatile int maxDiagnosticsPerFile = AnalysisSettings.DEFAULT_MAX_DIAGNOSTICS_PER_FILE;
 
-  public DiagnosticPublisher(SonarLintExtendedLanguageClient client, TaintVulnerabilitiesCache taintVulnerabilitiesCache, IssuesCache issuesCache) {
+  public DiagnosticPublisher(SonarLintExtendedLanguageClient client, TaintVulnerabilitiesCache taintVulnerabilitiesCache, IssuesCache issuesCache,
+    AnalysisMetrics metrics) {
+    this(client, taintVulnerabilitiesCache, issuesCache, metrics, STREAMING_PUBLISH_WINDOW_MS, System::nanoTime);
+  }
+
+  DiagnosticPublisher(SonarLintExtendedLanguageClient client, TaintVulnerabilitiesCache taintVulnerabilitiesCache, IssuesCache issuesCache,
+    AnalysisMetrics metrics, long streamingPublishWindowMs, LongSupplier nanoClock) {
     this.client = client;
     this.taintVulnerabilitiesCache = taintVulnerabilitiesCache;
     this.issuesCache = issuesCache;
+    this.metrics = metrics;
+    this.streamingPublishWindowNanos = TimeUnit.MILLISECONDS.toNanos(streamingPublishWindowMs);
+    this.nanoClock = nanoClock;
+    this.streamingPublishExecutor = Executors.newSingleThreadScheduledExecutor(Utils.threadFactory("SonarLint diagnostic publisher", true));
   }
 
   public void initialize(boolean firstSecretDetected) {
@@ -59,7 +121,205 @@ public class DiagnosticPublisher {
   }
 
   public void publishDiagnostics(URI f) {
-    client.publishDiagnostics(createPublishDiagnosticsParams(f));
+    var streamingPublication = streamingPublicationPerFileURI.remove(f);
+    if (streamingPublication == null) {
+      publishIfChanged(f);
+      return;
+    }
+    synchronized (streamingPublication) {
+      // Supersedes any deferred publication, and make sure none is sent after this one
+      streamingPublication.done = true;
+      streamingPublication.cancelDeferred();
+      publishIfChanged(f);
+    }
+  }
+
+  /**
+   * Publish issues streamed so far by a running analysis. At most one publication per file is sent per time window, later ones
+   * are coalesced at the end of the window. {@link #publishDiagnostics(URI)} has to be called once the analysis completes.
+   */
+  public void publishDiagnosticsWhileStreaming(URI f) {
+    var streamingPublication = streamingPublicationPerFileURI.computeIfAbsent(f, k -> new StreamingPublication());
+    synchronized (streamingPublication) {
+      if (streamingPublication.done || streamingPublication.deferred != null) {
+        // Issue will be part of the pending publication
+        return;
+      }
+      var now = nanoClock.getAsLong();
+      var delayNanos = streamingPublication.lastPublishNanos + streamingPublishWindowNanos - now;
+      if (!streamingPublication.published || delayNanos <= 0) {
+        publishWhileStreaming(f, streamingPublication, now);
+      } else {
+        streamingPublication.deferred = streamingPublishExecutor.schedule(() -> {
+          synchronized (streamingPublication) {
+            if (!streamingPublication.done) {
+              streamingPublication.deferred = null;
+              publishWhileStreaming(f, streamingPublication, nanoClock.getAsLong());
+            }
+          }
+        }, delayNanos, TimeUnit.NANOSECONDS);
+      }
+    }
+  }
+
+  private void publishWhileStreaming(URI f, StreamingPublication streamingPublication, long now) {
+    streamingPublication.published = true;
+    streamingPublication.lastPublishNanos = now;
+    publishIfChanged(f);
+  }
+
+  /**
+   * Most analyses find the same issues as the previous one, don't make the client render them again
+   */
+  private synchronized void publishIfChanged(URI f) {
+    var diagnostics = getConvertedDiagnostics(f).limit(maxDiagnosticsPerFile, lastEditedLinePerFileURI.get(f));
+    var lastPublished = lastPublishedDiagnosticsPerFileURI.get(f);
+    if (lastPublished != null && (lastPublished == diagnostics || (lastPublished.hashCode() == diagnostics.hashCode() && lastPublished.equals(diagnostics)))) {
+      metrics.increment(AnalysisMetrics.PUBLICATIONS_SUPPRESSED, 1);
+      return;
+    }
+    lastPublishedDiagnosticsPerFileURI.put(f, diagnostics);
+    metrics.increment(AnalysisMetrics.PUBLICATIONS_SENT, 1);
+    client.publishDiagnostics(createPublishDiagnosticsParams(f, diagnostics));
+  }
+
+  /**
+   * Some clients drop diagnostics of closed files, so publish them again when the file is reopened
+   */
+  public synchronized void didClose(URI f) {
+    lastPublishedDiagnosticsPerFileURI.remove(f);
+    convertedDiagnosticsPerFileURI.remove(f);
+    lastEditedLinePerFileURI.remove(f);
+  }
+
+  /**
+   * All diagnostics of the file, including the ones above the limit of published diagnostics
+   */
+  public List<Diagnostic> getAllDiagnostics(URI f) {
+    return getDiagnostics(f);
+  }
+
+  @Override
+  public void onChange(@Nullable WorkspaceSettings oldValue, WorkspaceSettings newValue) {
+    maxDiagnosticsPerFile = newValue.getAnalysisSettings().getMaxDiagnosticsPerFile();
+  }
+
+  private static Comparator<Diagnostic> byRelevance(@Nullable Integer lastEditedLine) {
+    Comparator<Diagnostic> bySeverity = Comparator.comparing(d -> d.getSeverity() != null ? d.getSeverity().getValue() : Integer.MAX_VALUE);
+    if (lastEditedLine == null) {
+      return bySeverity.thenComparing(byLineNumber());
+    }
+    return bySeverity
+      .thenComparing(d -> Math.abs(d.getRange().getStart().getLine() - lastEditedLine))
+      .thenComparing(byLineNumber());
+  }
+
+  private static Diagnostic hiddenIssuesSummary(int hiddenCount) {
+    var diagnostic = new Diagnostic();
+    diagnostic.setSeverity(DiagnosticSeverity.Information);
+    diagnostic.setRange(new Range(new Position(0, 0), new Position(0, 0)));
+    diagnostic.setCode(HIDDEN_ISSUES_CODE);
+    diagnostic.setMessage(String.format("%d more %s not shown, this file has too many issues", hiddenCount, pluralize(hiddenCount, "issue")));
+    diagnostic.setSource(SONARLINT_SOURCE);
+    return diagnostic;
+  }
+
+  public void shutdown() {
+    streamingPublishExecutor.shutdownNow();
+  }
+
+  /**
+   * Republish diagnostics at their new location after incremental changes, without waiting for the next analysis.
+   * Only the diagnostics already published are moved: issues streamed by a running analysis of the previous version are not
+   * shown, and the streaming publication of that analysis is left open.
+   */
+  public void didChange(URI f, List<TextDocumentContentChangeEvent> changes) {
+    var incremental = !changes.isEmpty() && RangeShifter.isIncremental(changes);
+    if (incremental) {
+      lastEditedLinePerFileURI.put(f, changes.get(changes.size() - 1).getRange().getStart().getLine());
+    } else {
+      lastEditedLinePerFileURI.remove(f);
+    }
+    issuesCache.shiftRanges(f, changes);
+    taintVulnerabilitiesCache.shiftRanges(f, changes);
+    var streamingPublication = streamingPublicationPerFileURI.get(f);
+    if (streamingPublication != null) {
+      synchronized (streamingPublication) {
+        // Would publish issues of the previous version at their former location
+        streamingPublication.cancelDeferred();
+      }
+    }
+    if (incremental) {
+      publishShifted(f, changes);
+    }
+  }
+
+  private synchronized void publishShifted(URI f, List<TextDocumentContentChangeEvent> changes) {
+    var lastPublished = lastPublishedDiagnosticsPerFileURI.get(f);
+    if (lastPublished == null || lastPublished.isEmpty()) {
+      return;
+    }
+    var shifted = new ArrayList<Diagnostic>(lastPublished.size());
+    var changed = false;
+    for (var diagnostic : lastPublished) {
+      var shiftedRange = RangeShifter.shift(diagnostic.getRange(), changes);
+      if (shiftedRange.isEmpty()) {
+        changed = true;
+      } else if (shiftedRange.get().equals(diagnostic.getRange())) {
+        shifted.add(diagnostic);
+      } else {
+        shifted.add(moveTo(diagnostic, shiftedRange.get()));
+        changed = true;
+      }
+    }
+    if (!changed) {
+      return;
+    }
+    var diagnostics = Collections.unmodifiableList(shifted);
+    lastPublishedDiagnosticsPerFileURI.put(f, diagnostics);
+    metrics.increment(AnalysisMetrics.PUBLICATIONS_SENT, 1);
+    client.publishDiagnostics(createPublishDiagnosticsParams(f, diagnostics));
+  }
+
+  /**
+   * Published diagnostics may be memoized, so move a copy
+   */
+  private static Diagnostic moveTo(Diagnostic diagnostic, Range range) {
+    var moved = new Diagnostic(range, diagnostic.getMessage(), diagnostic.getSeverity(), diagnostic.getSource());
+    moved.setCode(diagnostic.getCode());
+    moved.setCodeDescription(diagnostic.getCodeDescription());
+    moved.setTags(diagnostic.getTags());
+    moved.setRelatedInformation(diagnostic.getRelatedInformation());
+    moved.setData(diagnostic.getData());
+    return moved;
+  }
+
+  /**
+   * Replace issues of the file by a single informational diagnostic, until {@link #hideSkippedFileNotice(URI)} is called
+   */
+  public void showLargeFileNotice(URI f, long sizeInChars) {
+    showSkippedFileNotice(f, LARGE_FILE_CODE, String.format("File is too large to be analyzed automatically (%d KB)", sizeInChars / 1024));
+  }
+
+  /**
+   * @param reason why the content is not worth analyzing, e.g. "minified"
+   */
+  public void showSkippedFileNotice(URI f, String reason) {
+    showSkippedFileNotice(f, SKIPPED_FILE_CODE, String.format("File looks %s, it is not analyzed automatically", reason));
+  }
+
+  private void showSkippedFileNotice(URI f, String code, String message) {
+    var diagnostic = new Diagnostic();
+    diagnostic.setSeverity(DiagnosticSeverity.Information);
+    diagnostic.setRange(new Range(new Position(0, 0), new Position(0, 0)));
+    diagnostic.setCode(code);
+    diagnostic.setMessage(message);
+    diagnostic.setSource(SONARLINT_SOURCE);
+    skippedFileNoticePerFileURI.put(f, diagnostic);
+  }
+
+  public void hideSkippedFileNotice(URI f) {
+    skippedFileNoticePerFileURI.remove(f);
   }
 
   static Diagnostic convert(Map.Entry<String, VersionnedIssue> entry) {
@@ -68,8 +328,7 @@ public class DiagnosticPublisher {
     var severity = severity(issue.getSeverity());
 
     diagnostic.setSeverity(severity);
-    var range = Utils.convert(issue);
-    diagnostic.setRange(range);
+    diagnostic.setRange(entry.getValue().getRange());
     diagnostic.setCode(issue.getRuleKey());
     diagnostic.setMessage(message(issue));
     diagnostic.setSource(SONARLINT_SOURCE);
@@ -92,9 +351,39 @@ public class DiagnosticPublisher {
     }
   }
 
-  private PublishDiagnosticsParams createPublishDiagnosticsParams(URI newUri) {
+  private static PublishDiagnosticsParams createPublishDiagnosticsParams(URI newUri, List<Diagnostic> diagnostics) {
     var p = new PublishDiagnosticsParams();
+    p.setDiagnostics(diagnostics);
+    p.setUri(newUri.toString());
+    return p;
+  }
+
+  /**
+   * Converted diagnostics are reused as long as the issues, taint vulnerabilities and notice of the file did not change
+   */
+  private List<Diagnostic> getDiagnostics(URI newUri) {
+    return getConvertedDiagnostics(newUri).diagnostics;
+  }
 
+  private ConvertedDiagnostics getConvertedDiagnostics(URI newUri) {
+    // Read generations first, so that a concurrent change is detected on next publication
+    var issuesGeneration = issuesCache.getGeneration(newUri);
+    var taintVulnerabilitiesGeneration = taintVulnerabilitiesCache.getGeneration(newUri);
+    var skippedFileNotice = skippedFileNoticePerFileURI.get(newUri);
+    var cached = convertedDiagnosticsPerFileURI.get(newUri);
+    if (cached != null && cached.isUpToDate(issuesGeneration, taintVulnerabilitiesGeneration, skippedFileNotice)) {
+      return cached;
+    }
+    var converted = new ConvertedDiagnostics(issuesGeneration, taintVulnerabilitiesGeneration, skippedFileNotice, convertDiagnostics(newUri, skippedFileNotice));
+    if (converted.diagnostics.isEmpty()) {
+      convertedDiagnosticsPerFileURI.remove(newUri);
+    } else {
+      convertedDiagnosticsPerFileURI.put(newUri, converted);
+    }
+    return converted;
+  }
+
+  private List<Diagnostic> convertDiagnostics(URI newUri, @Nullable Diagnostic skippedFileNotice) {
     Map<String, VersionnedIssue> localIssues = issuesCache.get(newUri);
 
     if (!firstSecretIssueDetected && localIssues.values().stream().anyMatch(v -> v.getIssue().getRuleKey().startsWith(Language.SECRETS.getPluginKey()))) {
@@ -107,15 +396,91 @@ public class DiagnosticPublisher {
       .map(DiagnosticPublisher::convert);
     var taintDiagnostics = taintVulnerabilitiesCache.getAsDiagnostics(newUri);
 
-    p.setDiagnostics(Stream.concat(localDiagnostics, taintDiagnostics)
+    return Stream.of(localDiagnostics, taintDiagnostics, Optional.ofNullable(skippedFileNotice).stream()).flatMap(s -> s)
       .sorted(DiagnosticPublisher.byLineNumber())
-      .collect(toList()));
-    p.setUri(newUri.toString());
+      .collect(collectingAndThen(toList(), Collections::unmodifiableList));
+  }
 
-    return p;
+  private static final class ConvertedDiagnostics {
+    private final long issuesGeneration;
+    private final long taintVulnerabilitiesGeneration;
+    @CheckForNull
+    private final Diagnostic skippedFileNotice;
+    private final List<Diagnostic> diagnostics;
+    // Diagnostics kept by the last call to limit, guarded by the publisher
+    @CheckForNull
+    private List<Diagnostic> limited;
+    private int limitedMax;
+    @CheckForNull
+    private Integer limitedLastEditedLine;
+
+    private ConvertedDiagnostics(long issuesGeneration, long taintVulnerabilitiesGeneration, @Nullable Diagnostic skippedFileNotice, List<Diagnostic> diagnostics) {
+      this.issuesGeneration = issuesGeneration;
+      this.taintVulnerabilitiesGeneration = taintVulnerabilitiesGeneration;
+      this.skippedFileNotice = skippedFileNotice;
+      this.diagnostics = diagnostics;
+    }
+
+    private boolean isUpToDate(long issuesGeneration, long taintVulnerabilitiesGeneration, @Nullable Diagnostic skippedFileNotice) {
+      return this.issuesGeneration == issuesGeneration
+        && this.taintVulnerabilitiesGeneration == taintVulnerabilitiesGeneration
+        && this.skippedFileNotice == skippedFileNotice;
+    }
+
+    /**
+     * At most max diagnostics, taint vulnerabilities included. Above the limit, the summary takes one of them and the others are
+     * the most severe diagnostics, then the ones closest to the last edit.
+     */
+    private List<Diagnostic> limit(int max, @Nullable Integer lastEditedLine) {
+      if (diagnostics.size() <= max) {
+        return diagnostics;
+      }
+      if (limited == null || limitedMax != max || !Objects.equals(limitedLastEditedLine, lastEditedLine)) {
+        limited = selectMostRelevant(diagnostics, max - 1, byRelevance(lastEditedLine));
+        limitedMax = max;
+        limitedLastEditedLine = lastEditedLine;
+      }
+      return limited;
+    }
+  }
+
+  /**
+   * Keep a heap of the selected diagnostics with the least relevant on top, rather than sorting all of them
+   */
+  private static List<Diagnostic> selectMostRelevant(List<Diagnostic> diagnostics, int count, Comparator<Diagnostic> byRelevance) {
+    var selected = new PriorityQueue<Diagnostic>(Math.max(1, count), byRelevance.reversed());
+    for (var diagnostic : diagnostics) {
+      if (selected.size() < count) {
+        selected.add(diagnostic);
+      } else if (count > 0 && byRelevance.compare(diagnostic, selected.peek()) < 0) {
+        selected.poll();
+        selected.add(diagnostic);
+      }
+    }
+    var shown = new ArrayList<>(selected);
+    shown.add(hiddenIssuesSummary(diagnostics.size() - count));
+    shown.sort(byLineNumber());
+    return Collections.unmodifiableList(shown);
+  }
+
+  /**
+   * Guarded by its own monitor
+   */
+  private static final class StreamingPublication {
+    private boolean published;
+    private long lastPublishNanos;
+    private ScheduledFuture<?> deferred;
+    private boolean done;
+
+    private void cancelDeferred() {
+      if (deferred != null) {
+        deferred.cancel(false);
+        deferred = null;
+      }
+    }
   }
 
-  private static Comparator<? super Diagnostic> byLineNumber() {
+  private static Comparator<Diagnostic> byLineNumber() {
     return Comparator.comparing((Diagnostic d) -> d.getRange().getStart().getLine())
       .thenComparing(Diagnostic::getMessage);
   }
@@ -21,33 +21,95 @@ package org.sonarsource.sonarlint.ls;
 
 import com.google.gson.JsonPrimitive;
 import java.net.URI;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import org.eclipse.lsp4j.Diagnostic;
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.Range;
+import org.eclipse.lsp4j.TextDocumentContentChangeEvent;
 import org.sonarsource.sonarlint.core.client.api.common.analysis.Issue;
+import org.sonarsource.sonarlint.ls.file.RangeShifter;
 import org.sonarsource.sonarlint.ls.file.VersionnedOpenFile;
+import org.sonarsource.sonarlint.ls.util.Utils;
 
 public class IssuesCache {
 
   private final Map<URI, Map<String, VersionnedIssue>> issuesPerIdPerFileURI = new ConcurrentHashMap<>();
   private final Map<URI, Map<String, VersionnedIssue>> inProgressAnalysisIssuesPerIdPerFileURI = new ConcurrentHashMap<>();
+  // Issues of an analysis that completed after the file was modified. Not published, but still usable for quick fixes.
+  private final Map<URI, Map<String, VersionnedIssue>> outdatedIssuesPerIdPerFileURI = new ConcurrentHashMap<>();
+  // Fingerprint of the content and configuration that produced the current issues of each file
+  private final Map<URI, Long> fingerprintPerFileURI = new ConcurrentHashMap<>();
+  private final AtomicLong generationCounter = new AtomicLong();
+  private final Map<URI, Long> generationPerFileURI = new ConcurrentHashMap<>();
 
   public void clear(URI fileUri) {
     issuesPerIdPerFileURI.remove(fileUri);
     inProgressAnalysisIssuesPerIdPerFileURI.remove(fileUri);
+    outdatedIssuesPerIdPerFileURI.remove(fileUri);
+    fingerprintPerFileURI.remove(fileUri);
+    generationPerFileURI.remove(fileUri);
+  }
+
+  /**
+   * Changes each time the issues returned by {@link #get(URI)} may have changed, so that derived data can be cached
+   */
+  public long getGeneration(URI fileUri) {
+    return generationPerFileURI.getOrDefault(fileUri, 0L);
+  }
+
+  private void newGeneration(URI fileUri) {
+    generationPerFileURI.put(fileUri, generationCounter.incrementAndGet());
   }
 
   public void analysisStarted(VersionnedOpenFile versionnedOpenFile) {
     inProgressAnalysisIssuesPerIdPerFileURI.remove(versionnedOpenFile.getUri());
+    newGeneration(versionnedOpenFile.getUri());
   }
 
   public void reportIssue(VersionnedOpenFile versionnedOpenFile, Issue issue) {
-    inProgressAnalysisIssuesPerIdPerFileURI.computeIfAbsent(versionnedOpenFile.getUri(), u -> new HashMap<>()).put(UUID.randomUUID().toString(),
-      new VersionnedIssue(issue, versionnedOpenFile.getVersion()));
+    // Read by streaming publications while the analysis keeps reporting issues
+    var issues = inProgressAnalysisIssuesPerIdPerFileURI.computeIfAbsent(versionnedOpenFile.getUri(), u -> new ConcurrentHashMap<>());
+    issues.put(uniqueId(issues, issue), new VersionnedIssue(issue, versionnedOpenFile.getVersion()));
+    newGeneration(versionnedOpenFile.getUri());
+  }
+
+  /**
+   * Same issue gets the same id from one analysis to the other, as long as it is not moved
+   */
+  static String uniqueId(Map<String, VersionnedIssue> issues, Issue issue) {
+    var id = issueId(issue);
+    if (!issues.containsKey(id)) {
+      return id;
+    }
+    // Same rule reported twice at the same location with the same message
+    var collisionCount = 1;
+    while (issues.containsKey(id + "-" + collisionCount)) {
+      collisionCount++;
+    }
+    return id + "-" + collisionCount;
+  }
+
+  private static String issueId(Issue issue) {
+    var range = Utils.convert(issue);
+    var locationHash = Objects.hash(issue.getRuleKey(), range.getStart().getLine(), range.getStart().getCharacter(), range.getEnd().getLine(),
+      range.getEnd().getCharacter());
+    var messageHash = Objects.hashCode(issue.getMessage());
+    return Long.toUnsignedString(((long) locationHash << 32) | (messageHash & 0xFFFFFFFFL), Character.MAX_RADIX);
   }
 
   public int count(URI f) {
@@ -57,34 +119,132 @@ public class IssuesCache {
   public void analysisFailed(VersionnedOpenFile versionnedOpenFile) {
     // Keep issues of the previous analysis
     inProgressAnalysisIssuesPerIdPerFileURI.remove(versionnedOpenFile.getUri());
+    newGeneration(versionnedOpenFile.getUri());
+  }
+
+  public void analysisCanceled(VersionnedOpenFile versionnedOpenFile) {
+    // Issues reported so far are incomplete, keep issues of the previous analysis
+    inProgressAnalysisIssuesPerIdPerFileURI.remove(versionnedOpenFile.getUri());
+    newGeneration(versionnedOpenFile.getUri());
+  }
+
+  /**
+   * The analysis completed, but the file was modified in the meantime. Keep issues of the previous analysis for publication.
+   */
+  public void analysisOutdated(VersionnedOpenFile versionnedOpenFile) {
+    var outdatedIssues = inProgressAnalysisIssuesPerIdPerFileURI.remove(versionnedOpenFile.getUri());
+    if (outdatedIssues != null) {
+      outdatedIssuesPerIdPerFileURI.put(versionnedOpenFile.getUri(), CompactIssues.of(outdatedIssues));
+    } else {
+      outdatedIssuesPerIdPerFileURI.remove(versionnedOpenFile.getUri());
+    }
+    newGeneration(versionnedOpenFile.getUri());
   }
 
   public void analysisSucceeded(VersionnedOpenFile versionnedOpenFile) {
     // Swap issues
     var newIssues = inProgressAnalysisIssuesPerIdPerFileURI.remove(versionnedOpenFile.getUri());
+    outdatedIssuesPerIdPerFileURI.remove(versionnedOpenFile.getUri());
+    fingerprintPerFileURI.remove(versionnedOpenFile.getUri());
     if (newIssues != null) {
-      issuesPerIdPerFileURI.put(versionnedOpenFile.getUri(), newIssues);
+      issuesPerIdPerFileURI.put(versionnedOpenFile.getUri(), CompactIssues.of(newIssues));
     } else {
       issuesPerIdPerFileURI.remove(versionnedOpenFile.getUri());
     }
+    newGeneration(versionnedOpenFile.getUri());
+  }
+
+  /**
+   * @param fingerprint identifies the content and the configuration that were analyzed, to later detect that a new analysis would give the same issues
+   */
+  public void analysisSucceeded(VersionnedOpenFile versionnedOpenFile, long fingerprint) {
+    analysisSucceeded(versionnedOpenFile);
+    fingerprintPerFileURI.put(versionnedOpenFile.getUri(), fingerprint);
+  }
+
+  /**
+   * When the last successful analysis of the file had the same fingerprint, attach its issues to the new version of the file.
+   *
+   * @return true if issues were reused, so the analysis can be skipped
+   */
+  public boolean reuseIssuesIfUnchanged(VersionnedOpenFile versionnedOpenFile, long fingerprint) {
+    var fileUri = versionnedOpenFile.getUri();
+    if (!Objects.equals(fingerprintPerFileURI.get(fileUri), fingerprint)) {
+      return false;
+    }
+    var previousIssues = issuesPerIdPerFileURI.getOrDefault(fileUri, Map.of());
+    var reusedIssues = new HashMap<String, VersionnedIssue>();
+    previousIssues.forEach((id, issue) -> reusedIssues.put(id, new VersionnedIssue(issue.getIssue(), versionnedOpenFile.getVersion())));
+    inProgressAnalysisIssuesPerIdPerFileURI.remove(fileUri);
+    outdatedIssuesPerIdPerFileURI.remove(fileUri);
+    issuesPerIdPerFileURI.put(fileUri, CompactIssues.of(reusedIssues));
+    newGeneration(fileUri);
+    return true;
+  }
+
+  /**
+   * Move issues of the last analysis along with incremental changes of the file, so that they can be republished before the next analysis.
+   * Issues whose text was deleted are dropped.
+   *
+   * @return true if at least one issue was moved or dropped
+   */
+  public boolean shiftRanges(URI fileUri, List<TextDocumentContentChangeEvent> changes) {
+    if (!RangeShifter.isIncremental(changes)) {
+      return false;
+    }
+    var moved = new AtomicBoolean();
+    var dropped = new AtomicBoolean();
+    issuesPerIdPerFileURI.computeIfPresent(fileUri, (uri, issues) -> {
+      var shiftedIssues = new HashMap<String, VersionnedIssue>();
+      issues.forEach((id, issue) -> {
+        var range = RangeShifter.shift(issue.getRange(), changes);
+        if (range.isEmpty()) {
+          dropped.set(true);
+        } else if (range.get().equals(issue.getRange())) {
+          shiftedIssues.put(id, issue);
+        } else {
+          moved.set(true);
+          shiftedIssues.put(id, new VersionnedIssue(issue.getIssue(), issue.getDocumentVersion(), range.get()));
+        }
+      });
+      return CompactIssues.of(shiftedIssues);
+    });
+    if (dropped.get()) {
+      // Dropped issues would be missing if the content went back to the analyzed one
+      fingerprintPerFileURI.remove(fileUri);
+    }
+    if (moved.get() || dropped.get()) {
+      newGeneration(fileUri);
+      return true;
+    }
+    return false;
   }
 
   public Optional<VersionnedIssue> getIssueForDiagnostic(URI fileUri, Diagnostic d) {
     var issuesForFile = get(fileUri);
+    var outdatedIssuesForFile = outdatedIssuesPerIdPerFileURI.getOrDefault(fileUri, Map.of());
     return Optional.ofNullable(d.getData())
       .map(JsonPrimitive.class::cast)
       .map(JsonPrimitive::getAsString)
-      .map(issuesForFile::get)
+      .map(id -> issuesForFile.containsKey(id) ? issuesForFile.get(id) : outdatedIssuesForFile.get(id))
       .filter(Objects::nonNull);
   }
 
   public static class VersionnedIssue {
     private final Issue issue;
     private final int documentVersion;
+    // Location of the issue after the file was edited, null until then
+    @CheckForNull
+    private final Range shiftedRange;
 
     public VersionnedIssue(Issue issue, int documentVersion) {
-      this.issue = issue;
+      this(issue, documentVersion, null);
+    }
+
+    public VersionnedIssue(Issue issue, int documentVersion, @Nullable Range shiftedRange) {
+      this.issue = CompactIssue.of(issue);
       this.documentVersion = documentVersion;
+      this.shiftedRange = shiftedRange;
     }
 
     public Issue getIssue() {
@@ -94,6 +254,148 @@ public class IssuesCache {
     public int getDocumentVersion() {
       return documentVersion;
     }
+
+    @CheckForNull
+    Range getShiftedRange() {
+      return shiftedRange;
+    }
+
+    /**
+     * Current location of the issue in the open file
+     */
+    public Range getRange() {
+      return shiftedRange != null ? shiftedRange : Utils.convert(issue);
+    }
+  }
+
+  /**
+   * Issues of a file once the analysis completed, flattened in arrays sorted by id rather than kept as objects in a hash map.
+   * Issues are materialized when they are read. Only the ones with flows or quick fixes, that need the engine issue, are kept as objects.
+   */
+  static final class CompactIssues extends AbstractMap<String, VersionnedIssue> {
+    // Start line, start line offset, end line and end line offset of each issue
+    private static final int RANGE_SIZE = 4;
+
+    private final String[] ids;
+    private final String[] ruleKeys;
+    private final String[] severities;
+    private final String[] types;
+    private final String[] messages;
+    private final int[] ranges;
+    private final int[] documentVersions;
+    // Locations after the file was edited, null if no issue moved
+    @CheckForNull
+    private final int[] shiftedRanges;
+    // Null if no issue has flows or quick fixes
+    @CheckForNull
+    private final Issue[] issuesWithDetails;
+
+    private CompactIssues(Map<String, VersionnedIssue> issuesPerId) {
+      ids = issuesPerId.keySet().toArray(new String[0]);
+      Arrays.sort(ids);
+      var count = ids.length;
+      ruleKeys = new String[count];
+      severities = new String[count];
+      types = new String[count];
+      messages = new String[count];
+      ranges = new int[count * RANGE_SIZE];
+      documentVersions = new int[count];
+      int[] shifted = null;
+      Issue[] withDetails = null;
+      for (var i = 0; i < count; i++) {
+        var versionnedIssue = issuesPerId.get(ids[i]);
+        var issue = versionnedIssue.getIssue();
+        ruleKeys[i] = issue.getRuleKey();
+        severities[i] = issue.getSeverity();
+        types[i] = issue.getType();
+        messages[i] = issue.getMessage();
+        var offset = i * RANGE_SIZE;
+        ranges[offset] = CompactIssue.valueOf(issue.getStartLine());
+        ranges[offset + 1] = CompactIssue.valueOf(issue.getStartLineOffset());
+        ranges[offset + 2] = CompactIssue.valueOf(issue.getEndLine());
+        ranges[offset + 3] = CompactIssue.valueOf(issue.getEndLineOffset());
+        documentVersions[i] = versionnedIssue.getDocumentVersion();
+        var shiftedRange = versionnedIssue.getShiftedRange();
+        if (shiftedRange != null) {
+          if (shifted == null) {
+            shifted = new int[count * RANGE_SIZE];
+            Arrays.fill(shifted, CompactIssue.NO_VALUE);
+          }
+          shifted[offset] = shiftedRange.getStart().getLine();
+          shifted[offset + 1] = shiftedRange.getStart().getCharacter();
+          shifted[offset + 2] = shiftedRange.getEnd().getLine();
+          shifted[offset + 3] = shiftedRange.getEnd().getCharacter();
+        }
+        if (issue instanceof CompactIssue && ((CompactIssue) issue).hasDetails()) {
+          if (withDetails == null) {
+            withDetails = new Issue[count];
+          }
+          withDetails[i] = issue;
+        }
+      }
+      shiftedRanges = shifted;
+      issuesWithDetails = withDetails;
+    }
+
+    static Map<String, VersionnedIssue> of(Map<String, VersionnedIssue> issues) {
+      if (issues.isEmpty()) {
+        return Map.of();
+      }
+      if (issues instanceof CompactIssues) {
+        return issues;
+      }
+      return new CompactIssues(issues);
+    }
+
+    private VersionnedIssue issueAt(int index) {
+      var offset = index * RANGE_SIZE;
+      var issue = issuesWithDetails != null && issuesWithDetails[index] != null ? issuesWithDetails[index]
+        : new CompactIssue(ruleKeys[index], severities[index], types[index], messages[index], ranges[offset], ranges[offset + 1], ranges[offset + 2],
+          ranges[offset + 3]);
+      Range shiftedRange = null;
+      if (shiftedRanges != null && shiftedRanges[offset] != CompactIssue.NO_VALUE) {
+        shiftedRange = new Range(new Position(shiftedRanges[offset], shiftedRanges[offset + 1]), new Position(shiftedRanges[offset + 2], shiftedRanges[offset + 3]));
+      }
+      return new VersionnedIssue(issue, documentVersions[index], shiftedRange);
+    }
+
+    @Override
+    public int size() {
+      return ids.length;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return indexOf(key) >= 0;
+    }
+
+    @CheckForNull
+    @Override
+    public VersionnedIssue get(Object key) {
+      var index = indexOf(key);
+      return index >= 0 ? issueAt(index) : null;
+    }
+
+    private int indexOf(Object key) {
+      return key instanceof String ? Arrays.binarySearch(ids, key) : -1;
+    }
+
+    @Override
+    public Set<Entry<String, VersionnedIssue>> entrySet() {
+      return new AbstractSet<>() {
+        @Override
+        public Iterator<Entry<String, VersionnedIssue>> iterator() {
+          return IntStream.range(0, ids.length)
+            .<Entry<String, VersionnedIssue>>mapToObj(i -> new SimpleImmutableEntry<>(ids[i], issueAt(i)))
+            .iterator();
+        }
+
+        @Override
+        public int size() {
+          return ids.length;
+        }
+      };
+    }
   }
 
   public Map<String, VersionnedIssue> get(URI fileUri) {
@@ -24,30 +24,42 @@ import java.io.IOException;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
-import java.util.Collections;
-import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.sonarsource.sonarlint.core.analysis.api.TextRange;
+import org.sonarsource.sonarlint.ls.file.LineIndex;
+import org.sonarsource.sonarlint.ls.file.VersionnedOpenFile;
 
 public class LocalCodeFile {
 
-  private List<String> lines;
+  private final LineIndex lineIndex;
+  private final int lineCount;
 
-  private LocalCodeFile(URI uri) {
+  private LocalCodeFile(LineIndex lineIndex) {
+    this.lineIndex = lineIndex;
+    var text = lineIndex.getText();
+    // Like Files.readAllLines, do not count the empty line after a trailing line break
+    var endsWithLineBreak = !text.isEmpty() && (text.endsWith("\n") || text.endsWith("\r"));
+    this.lineCount = text.isEmpty() ? 0 : (lineIndex.getLineCount() - (endsWithLineBreak ? 1 : 0));
+  }
+
+  private static LineIndex read(URI uri) {
     var localFile = new File(uri);
     if (localFile.exists()) {
       try {
         // TODO Find the right character set to use?
-        this.lines = Files.readAllLines(localFile.toPath(), StandardCharsets.UTF_8);
-      } catch(IOException ioe) {
-        this.lines = Collections.emptyList();
+        return LineIndex.of(Files.readString(localFile.toPath(), StandardCharsets.UTF_8));
+      } catch (IOException ioe) {
+        // Consider the file as empty
       }
     }
+    return LineIndex.of("");
   }
 
   public String content() {
-    return String.join("\n", lines);
+    return IntStream.range(0, lineCount).mapToObj(lineIndex::getLineText).collect(Collectors.joining("\n"));
   }
 
   @CheckForNull
@@ -55,33 +67,29 @@ public class LocalCodeFile {
     if (range == null) {
       return null;
     }
-    var lineIndex = range.getStartLine() - 1;
-    if (lines.size() < lineIndex) {
+    var startLine = range.getStartLine() - 1;
+    if (startLine < 0 || lineCount <= startLine || lineIndex.getLineLength(startLine) < range.getStartLineOffset()) {
       return null;
-    } else {
-      if (lines.get(lineIndex).length() < range.getStartLineOffset()) {
-        return null;
-      } else {
-        var snippet = new StringBuilder();
-        var maxLine = Math.min(lines.size() - 1, range.getEndLine() - 1);
-        var startOffset = range.getStartLineOffset();
-        do {
-          var currentLine = lines.get(lineIndex);
-          if(lineIndex == maxLine) {
-            var endOffset = Math.min(currentLine.length(), range.getEndLineOffset());
-            snippet.append(currentLine.substring(startOffset, endOffset));
-          } else {
-            snippet.append(currentLine.substring(startOffset)).append('\n');
-            startOffset = 0;
-          }
-          lineIndex += 1;
-        } while(lineIndex <= maxLine);
-        return snippet.toString();
-      }
     }
+    var maxLine = Math.min(lineCount - 1, range.getEndLine() - 1);
+    var start = lineIndex.getLineStart(startLine) + range.getStartLineOffset();
+    var end = lineIndex.getLineStart(maxLine) + Math.min(lineIndex.getLineLength(maxLine), range.getEndLineOffset());
+    if (end <= start) {
+      return "";
+    }
+    var snippet = lineIndex.getText().substring(start, end);
+    // Line breaks are normalized, like in the content
+    return snippet.replace("\r\n", "\n").replace('\r', '\n');
   }
 
   public static LocalCodeFile from(URI uri) {
-    return new LocalCodeFile(uri);
+    return new LocalCodeFile(read(uri));
+  }
+
+  /**
+   * Use the content of the file opened in the editor, sharing its line index
+   */
+  public static LocalCodeFile from(VersionnedOpenFile openFile) {
+    return new LocalCodeFile(openFile.getLineIndex());
   }
 }
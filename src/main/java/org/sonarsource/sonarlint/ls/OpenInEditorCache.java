@@ -0,0 +1,183 @@
+/*
+ * SonarLint Language Server
+ * Copyright (C) 2009-2022 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.ls;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import javax.annotation.Nullable;
+import org.eclipse.lsp4j.jsonrpc.ResponseErrorException;
+import org.eclipse.lsp4j.jsonrpc.messages.ResponseErrorCode;
+import org.sonarsource.sonarlint.core.commons.log.SonarLintLogger;
+import org.sonarsource.sonarlint.ls.SonarLintExtendedLanguageClient.FilterOpenInEditorParams;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Ask the client whether files are open in an editor, as opposed to previewed. Answers are cached for a short time.
+ * A question is sent right away when no request to the client is in flight, otherwise it waits for the response, and all
+ * questions that arrived meanwhile (e.g. when a session is restored) are sent in a single request.
+ */
+public class OpenInEditorCache {
+  private static final SonarLintLogger LOG = SonarLintLogger.get();
+
+  static final long DEFAULT_TTL_MS = 5_000;
+
+  private final SonarLintExtendedLanguageClient client;
+  private final long ttlNanos;
+  private final LongSupplier nanoClock;
+  private final Map<URI, CachedAnswer> answersPerFileUri = new ConcurrentHashMap<>();
+  private final Object lock = new Object();
+  // Guarded by lock
+  private final Map<URI, CompletableFuture<Boolean>> unansweredQuestions = new HashMap<>();
+  // Guarded by lock
+  private Map<URI, CompletableFuture<Boolean>> queuedQuestions = new HashMap<>();
+  // Guarded by lock
+  private boolean requestInFlight;
+  private volatile boolean batchSupported = true;
+
+  public OpenInEditorCache(SonarLintExtendedLanguageClient client) {
+    this(client, DEFAULT_TTL_MS, System::nanoTime);
+  }
+
+  OpenInEditorCache(SonarLintExtendedLanguageClient client, long ttlMs, LongSupplier nanoClock) {
+    this.client = client;
+    this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+    this.nanoClock = nanoClock;
+  }
+
+  public CompletableFuture<Boolean> isOpenInEditor(URI fileUri) {
+    var answer = answersPerFileUri.get(fileUri);
+    if (answer != null && answer.expiresAfter(nanoClock.getAsLong())) {
+      return CompletableFuture.completedFuture(answer.isOpen);
+    }
+    var question = new CompletableFuture<Boolean>();
+    synchronized (lock) {
+      var unanswered = unansweredQuestions.get(fileUri);
+      if (unanswered != null) {
+        return unanswered;
+      }
+      unansweredQuestions.put(fileUri, question);
+      if (requestInFlight) {
+        queuedQuestions.put(fileUri, question);
+        return question;
+      }
+      requestInFlight = true;
+    }
+    send(Map.of(fileUri, question));
+    return question;
+  }
+
+  public void didClose(URI fileUri) {
+    answersPerFileUri.remove(fileUri);
+  }
+
+  private void send(Map<URI, CompletableFuture<Boolean>> questions) {
+    ask(questions).whenComplete((r, e) -> sendQueuedQuestions());
+  }
+
+  private void sendQueuedQuestions() {
+    Map<URI, CompletableFuture<Boolean>> questions;
+    synchronized (lock) {
+      if (queuedQuestions.isEmpty()) {
+        requestInFlight = false;
+        return;
+      }
+      questions = queuedQuestions;
+      queuedQuestions = new HashMap<>();
+    }
+    send(questions);
+  }
+
+  private CompletableFuture<Void> ask(Map<URI, CompletableFuture<Boolean>> questions) {
+    if (questions.size() == 1 || !batchSupported) {
+      return askOneByOne(questions);
+    }
+    var fileUris = questions.keySet().stream().map(URI::toString).collect(toList());
+    return client.filterOpenInEditor(new FilterOpenInEditorParams(fileUris)).handle((openFileUris, error) -> {
+      if (error != null || openFileUris == null) {
+        if (isMethodNotFound(error)) {
+          LOG.debug("Client does not support batched checks of open files, checking files one by one");
+          batchSupported = false;
+        } else {
+          LOG.debug("Unable to check if {} files are open in editor, checking files one by one", questions.size());
+        }
+        return askOneByOne(questions);
+      }
+      var openFileUriSet = new HashSet<>(openFileUris);
+      questions.forEach((fileUri, question) -> answer(fileUri, question, openFileUriSet.contains(fileUri.toString())));
+      return CompletableFuture.<Void>completedFuture(null);
+    }).thenCompose(r -> r);
+  }
+
+  private CompletableFuture<Void> askOneByOne(Map<URI, CompletableFuture<Boolean>> questions) {
+    return CompletableFuture.allOf(questions.entrySet().stream()
+      .map(e -> askOne(e.getKey(), e.getValue()))
+      .toArray(CompletableFuture[]::new));
+  }
+
+  private CompletableFuture<Boolean> askOne(URI fileUri, CompletableFuture<Boolean> question) {
+    return client.isOpenInEditor(fileUri.toString()).whenComplete((isOpen, error) -> {
+      if (error != null) {
+        forget(fileUri, question);
+        question.completeExceptionally(error);
+      } else {
+        answer(fileUri, question, Boolean.TRUE.equals(isOpen));
+      }
+    });
+  }
+
+  private void answer(URI fileUri, CompletableFuture<Boolean> question, boolean isOpen) {
+    answersPerFileUri.put(fileUri, new CachedAnswer(isOpen, nanoClock.getAsLong() + ttlNanos));
+    forget(fileUri, question);
+    question.complete(isOpen);
+  }
+
+  private void forget(URI fileUri, CompletableFuture<Boolean> question) {
+    synchronized (lock) {
+      unansweredQuestions.remove(fileUri, question);
+    }
+  }
+  private static boolean isMethodNotFound(@Nullable Throwable error) {
+    var cause = error instanceof CompletionException ? error.getCause() : error;
+    return cause instanceof ResponseErrorException
+      && ((ResponseErrorException) cause).getResponseError().getCode() == ResponseErrorCode.MethodNotFound.getValue();
+  }
+
+  private static class CachedAnswer {
+    private final boolean isOpen;
+    private final long expirationNanos;
+
+    CachedAnswer(boolean isOpen, long expirationNanos) {
+      this.isOpen = isOpen;
+      this.expirationNanos = expirationNanos;
+    }
+
+    boolean expiresAfter(long nowNanos) {
+      return expirationNanos - nowNanos > 0;
+    }
+  }
+}
@@ -20,10 +20,10 @@
 package org.sonarsource.sonarlint.ls;
 
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import org.eclipse.lsp4j.MessageActionItem;
 import org.eclipse.lsp4j.MessageType;
 import org.eclipse.lsp4j.ShowMessageRequestParams;
@@ -35,7 +35,7 @@ import static java.util.stream.Collectors.toSet;
 
 public class SkippedPluginsNotifier {
 
-  private final Set<String> displayedMessages = new HashSet<>();
+  private final Set<String> displayedMessages = ConcurrentHashMap.newKeySet();
 
   public static final MessageActionItem ACTION_OPEN_SETTINGS = new MessageActionItem("Open Settings");
 
@@ -22,6 +22,7 @@ package org.sonarsource.sonarlint.ls;
 import com.google.gson.annotations.Expose;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import javax.annotation.CheckForNull;
@@ -62,6 +63,44 @@ public interface SonarLintExtendedLanguageClient extends LanguageClient {
   @JsonRequest("sonarlint/isOpenInEditor")
   CompletableFuture<Boolean> isOpenInEditor(String fileUri);
 
+  /**
+   * Batched variant of {@link #isOpenInEditor(String)}
+   *
+   * @return the URIs of the given files that are open in an editor
+   */
+  @JsonRequest("sonarlint/filterOpenInEditor")
+  CompletableFuture<List<String>> filterOpenInEditor(FilterOpenInEditorParams params);
+
+  class FilterOpenInEditorParams {
+    @Expose
+    private final List<String> fileUris;
+
+    public FilterOpenInEditorParams(List<String> fileUris) {
+      this.fileUris = fileUris;
+    }
+
+    public List<String> getFileUris() {
+      return fileUris;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(fileUris);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (obj == null || getClass() != obj.getClass()) {
+        return false;
+      }
+      var other = (FilterOpenInEditorParams) obj;
+      return Objects.equals(fileUris, other.fileUris);
+    }
+  }
+
   @JsonNotification("sonarlint/showNotificationForFirstSecretsIssue")
   void showFirstSecretDetectionNotification();
 
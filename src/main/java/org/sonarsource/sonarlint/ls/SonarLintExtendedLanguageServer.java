@@ -25,12 +25,15 @@ import java.util.concurrent.CompletableFuture;
 import java.util.stream.Stream;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
+import org.eclipse.lsp4j.Diagnostic;
+import org.eclipse.lsp4j.TextDocumentIdentifier;
 import org.eclipse.lsp4j.jsonrpc.services.JsonNotification;
 import org.eclipse.lsp4j.jsonrpc.services.JsonRequest;
 import org.eclipse.lsp4j.jsonrpc.validation.NonNull;
 import org.eclipse.lsp4j.services.LanguageServer;
 import org.eclipse.lsp4j.util.Preconditions;
 import org.eclipse.xtext.xbase.lib.Pure;
+import org.sonarsource.sonarlint.ls.metrics.PhaseMetrics;
 
 public interface SonarLintExtendedLanguageServer extends LanguageServer {
 
@@ -183,6 +186,12 @@ public interface SonarLintExtendedLanguageServer extends LanguageServer {
   @JsonNotification("sonarlint/didLocalBranchNameChange")
   void didLocalBranchNameChange(DidLocalBranchNameChangeParams params);
 
+  /**
+   * Sent by the client when the focused editor changes, to have the focused file analyzed before the other ones
+   */
+  @JsonNotification("sonarlint/didFocusTextDocument")
+  void didFocusTextDocument(TextDocumentIdentifier params);
+
   @JsonNotification("sonarlint/onTokenUpdate")
   void onTokenUpdate();
 
@@ -214,4 +223,145 @@ public interface SonarLintExtendedLanguageServer extends LanguageServer {
 
   @JsonRequest("sonarlint/getRemoteProjectNames")
   CompletableFuture<Map<String, String>> getRemoteProjectNames(GetRemoteProjectsNamesParams params);
+
+  class PendingAnalysis {
+    private final List<String> uris;
+    private final String priority;
+    private final long ageMs;
+
+    public PendingAnalysis(List<String> uris, String priority, long ageMs) {
+      this.uris = uris;
+      this.priority = priority;
+      this.ageMs = ageMs;
+    }
+
+    public List<String> getUris() {
+      return uris;
+    }
+
+    public String getPriority() {
+      return priority;
+    }
+
+    public long getAgeMs() {
+      return ageMs;
+    }
+  }
+
+  class RunningAnalysis {
+    private final List<String> uris;
+    private final String phase;
+    private final long elapsedMs;
+
+    public RunningAnalysis(List<String> uris, String phase, long elapsedMs) {
+      this.uris = uris;
+      this.phase = phase;
+      this.elapsedMs = elapsedMs;
+    }
+
+    public List<String> getUris() {
+      return uris;
+    }
+
+    public String getPhase() {
+      return phase;
+    }
+
+    public long getElapsedMs() {
+      return elapsedMs;
+    }
+  }
+
+  /**
+   * Statistics computed on the most recently completed analyses
+   */
+  class AnalysisThroughput {
+    private final int completedTasks;
+    private final int analyzedFiles;
+    private final double filesPerMinute;
+    private final long averageQueueTimeMs;
+    private final long averageLatencyMs;
+    private final long p95LatencyMs;
+
+    public AnalysisThroughput(int completedTasks, int analyzedFiles, double filesPerMinute, long averageQueueTimeMs, long averageLatencyMs, long p95LatencyMs) {
+      this.completedTasks = completedTasks;
+      this.analyzedFiles = analyzedFiles;
+      this.filesPerMinute = filesPerMinute;
+      this.averageQueueTimeMs = averageQueueTimeMs;
+      this.averageLatencyMs = averageLatencyMs;
+      this.p95LatencyMs = p95LatencyMs;
+    }
+
+    public int getCompletedTasks() {
+      return completedTasks;
+    }
+
+    public int getAnalyzedFiles() {
+      return analyzedFiles;
+    }
+
+    public double getFilesPerMinute() {
+      return filesPerMinute;
+    }
+
+    public long getAverageQueueTimeMs() {
+      return averageQueueTimeMs;
+    }
+
+    public long getAverageLatencyMs() {
+      return averageLatencyMs;
+    }
+
+    public long getP95LatencyMs() {
+      return p95LatencyMs;
+    }
+  }
+
+  class AnalysisQueueStatus {
+    private final List<PendingAnalysis> pending;
+    private final List<RunningAnalysis> running;
+    private final AnalysisThroughput throughput;
+
+    public AnalysisQueueStatus(List<PendingAnalysis> pending, List<RunningAnalysis> running, AnalysisThroughput throughput) {
+      this.pending = pending;
+      this.running = running;
+      this.throughput = throughput;
+    }
+
+    public List<PendingAnalysis> getPending() {
+      return pending;
+    }
+
+    public List<RunningAnalysis> getRunning() {
+      return running;
+    }
+
+    public AnalysisThroughput getThroughput() {
+      return throughput;
+    }
+  }
+
+  /**
+   * Snapshot of the analysis queue, cheap enough to be polled
+   */
+  @JsonRequest("sonarlint/getAnalysisQueueStatus")
+  CompletableFuture<AnalysisQueueStatus> getAnalysisQueueStatus();
+
+  /**
+   * Latency distribution of each analysis phase since the server started, per language and binding mode
+   */
+  @JsonRequest("sonarlint/getAnalysisMetrics")
+  CompletableFuture<List<PhaseMetrics>> getAnalysisMetrics();
+
+  /**
+   * Cumulated analysis counters since the server started, by name
+   */
+  @JsonRequest("sonarlint/getAnalysisCounters")
+  CompletableFuture<Map<String, Long>> getAnalysisCounters();
+
+  /**
+   * All diagnostics of an open file, including the ones not published because the file has too many issues
+   */
+  @JsonRequest("sonarlint/getAllDiagnostics")
+  CompletableFuture<List<Diagnostic>> getAllDiagnostics(TextDocumentIdentifier params);
 }
@@ -39,6 +39,7 @@ import javax.annotation.Nullable;
 import org.eclipse.lsp4j.CodeAction;
 import org.eclipse.lsp4j.CodeActionParams;
 import org.eclipse.lsp4j.Command;
+import org.eclipse.lsp4j.Diagnostic;
 import org.eclipse.lsp4j.DidChangeConfigurationParams;
 import org.eclipse.lsp4j.DidChangeTextDocumentParams;
 import org.eclipse.lsp4j.DidChangeWatchedFilesParams;
@@ -50,9 +51,11 @@ import org.eclipse.lsp4j.ExecuteCommandOptions;
 import org.eclipse.lsp4j.ExecuteCommandParams;
 import org.eclipse.lsp4j.InitializeParams;
 import org.eclipse.lsp4j.InitializeResult;
+import org.eclipse.lsp4j.SaveOptions;
 import org.eclipse.lsp4j.ServerCapabilities;
 import org.eclipse.lsp4j.ServerInfo;
 import org.eclipse.lsp4j.SetTraceParams;
+import org.eclipse.lsp4j.TextDocumentIdentifier;
 import org.eclipse.lsp4j.TextDocumentSyncKind;
 import org.eclipse.lsp4j.TextDocumentSyncOptions;
 import org.eclipse.lsp4j.WorkDoneProgressCancelParams;
@@ -82,6 +85,8 @@ import org.sonarsource.sonarlint.ls.http.ApacheHttpClientProvider;
 import org.sonarsource.sonarlint.ls.java.JavaConfigCache;
 import org.sonarsource.sonarlint.ls.log.LanguageClientLogOutput;
 import org.sonarsource.sonarlint.ls.log.LanguageClientLogger;
+import org.sonarsource.sonarlint.ls.metrics.AnalysisMetrics;
+import org.sonarsource.sonarlint.ls.metrics.PhaseMetrics;
 import org.sonarsource.sonarlint.ls.progress.ProgressManager;
 import org.sonarsource.sonarlint.ls.settings.SettingsManager;
 import org.sonarsource.sonarlint.ls.settings.WorkspaceFolderSettingsChangeListener;
@@ -120,7 +125,9 @@ public class SonarLintLanguageServer implements SonarLintExtendedLanguageServer,
   private final IssuesCache issuesCache;
   private final DiagnosticPublisher diagnosticPublisher;
   private final ScmIgnoredCache scmIgnoredCache;
+  private final OpenInEditorCache openInEditorCache;
   private final LanguageClientLogger lsLogOutput;
+  private final AnalysisMetrics analysisMetrics;
 
   /**
    * Keep track of value 'sonarlint.trace.server' on client side. Not used currently, but keeping it just in case.
@@ -149,7 +156,8 @@ public class SonarLintLanguageServer implements SonarLintExtendedLanguageServer,
 
     this.issuesCache = new IssuesCache();
     this.taintVulnerabilitiesCache = new TaintVulnerabilitiesCache();
-    this.diagnosticPublisher = new DiagnosticPublisher(client, taintVulnerabilitiesCache, issuesCache);
+    this.analysisMetrics = new AnalysisMetrics();
+    this.diagnosticPublisher = new DiagnosticPublisher(client, taintVulnerabilitiesCache, issuesCache, analysisMetrics);
     this.workspaceFoldersManager = new WorkspaceFoldersManager();
     this.progressManager = new ProgressManager(client);
     this.settingsManager = new SettingsManager(this.client, this.workspaceFoldersManager, httpClientProvider);
@@ -160,6 +168,7 @@ public class SonarLintLanguageServer implements SonarLintExtendedLanguageServer,
       new WorkspaceFoldersProvider(workspaceFoldersManager, fileTypeClassifier, javaConfigCache), extraAnalyzers);
     this.standaloneEngineManager = new StandaloneEngineManager(enginesFactory);
     this.settingsManager.addListener(lsLogOutput);
+    this.settingsManager.addListener(diagnosticPublisher);
     this.bindingManager = new ProjectBindingManager(enginesFactory, workspaceFoldersManager, settingsManager, client, progressManager, globalLogOutput);
     this.settingsManager.setBindingManager(bindingManager);
     this.telemetry = new SonarLintTelemetry(httpClientProvider, settingsManager, bindingManager, nodeJsRuntime, standaloneEngineManager);
@@ -172,15 +181,20 @@ public class SonarLintLanguageServer implements SonarLintExtendedLanguageServer,
     this.settingsManager.addListener((WorkspaceFolderSettingsChangeListener) serverNotifications);
     var skippedPluginsNotifier = new SkippedPluginsNotifier(client);
     this.scmIgnoredCache = new ScmIgnoredCache(client);
+    this.openInEditorCache = new OpenInEditorCache(client);
     this.moduleEventsProcessor = new ModuleEventsProcessor(standaloneEngineManager, workspaceFoldersManager, bindingManager, fileTypeClassifier, javaConfigCache);
+    var debouncePolicy = new AdaptiveDebouncePolicy(AnalysisScheduler.DEFAULT_TIMER_MS);
     var analysisTaskExecutor = new AnalysisTaskExecutor(scmIgnoredCache, lsLogOutput, workspaceFoldersManager, bindingManager, javaConfigCache, settingsManager,
-      fileTypeClassifier, issuesCache, taintVulnerabilitiesCache, telemetry, skippedPluginsNotifier, standaloneEngineManager, diagnosticPublisher, client);
-    this.analysisScheduler = new AnalysisScheduler(lsLogOutput, workspaceFoldersManager, bindingManager, openFilesCache, analysisTaskExecutor);
+      fileTypeClassifier, issuesCache, taintVulnerabilitiesCache, telemetry, skippedPluginsNotifier, standaloneEngineManager, diagnosticPublisher, client, debouncePolicy,
+      openFilesCache, analysisMetrics);
+    this.analysisScheduler = new AnalysisScheduler(lsLogOutput, workspaceFoldersManager, bindingManager, openFilesCache, analysisTaskExecutor, progressManager,
+      debouncePolicy);
     this.workspaceFoldersManager.addListener(moduleEventsProcessor);
     bindingManager.setAnalysisManager(analysisScheduler);
     this.settingsManager.addListener((WorkspaceSettingsChangeListener) analysisScheduler);
     this.settingsManager.addListener((WorkspaceFolderSettingsChangeListener) analysisScheduler);
-    this.commandManager = new CommandManager(client, settingsManager, bindingManager, telemetry, standaloneEngineManager, taintVulnerabilitiesCache, issuesCache);
+    this.commandManager = new CommandManager(client, settingsManager, bindingManager, telemetry, standaloneEngineManager, taintVulnerabilitiesCache, issuesCache,
+      openFilesCache, analysisScheduler);
     this.securityHotspotsHandlerServer = new SecurityHotspotsHandlerServer(lsLogOutput, bindingManager, client, telemetry, settingsManager);
     this.branchManager = new WorkspaceFolderBranchManager(client, bindingManager);
     this.bindingManager.setBranchResolver(branchManager::getReferenceBranchNameForFolder);
@@ -269,7 +283,8 @@ public class SonarLintLanguageServer implements SonarLintExtendedLanguageServer,
   private static TextDocumentSyncOptions getTextDocumentSyncOptions() {
     var textDocumentSyncOptions = new TextDocumentSyncOptions();
     textDocumentSyncOptions.setOpenClose(true);
-    textDocumentSyncOptions.setChange(TextDocumentSyncKind.Full);
+    textDocumentSyncOptions.setChange(TextDocumentSyncKind.Incremental);
+    textDocumentSyncOptions.setSave(new SaveOptions(true));
     return textDocumentSyncOptions;
   }
 
@@ -279,6 +294,7 @@ public class SonarLintLanguageServer implements SonarLintExtendedLanguageServer,
       // prevent creation of new engines
       enginesFactory::shutdown,
       analysisScheduler::shutdown,
+      diagnosticPublisher::shutdown,
       branchManager::shutdown,
       securityHotspotsHandlerServer::shutdown,
       telemetry::stop,
@@ -325,12 +341,15 @@ public class SonarLintLanguageServer implements SonarLintExtendedLanguageServer,
   @Override
   public void didOpen(DidOpenTextDocumentParams params) {
     var uri = create(params.getTextDocument().getUri());
-    client.isOpenInEditor(uri.toString()).thenAccept(isOpen -> {
+    // Store the content right away, incremental changes received before the client answered would be lost otherwise
+    openFilesCache.didOpen(uri, params.getTextDocument().getLanguageId(), params.getTextDocument().getText(), params.getTextDocument().getVersion());
+    openInEditorCache.isOpenInEditor(uri).thenAccept(isOpen -> {
       if (Boolean.TRUE.equals(isOpen)) {
-        var file = openFilesCache.didOpen(uri, params.getTextDocument().getLanguageId(), params.getTextDocument().getText(), params.getTextDocument().getVersion());
-        analysisScheduler.didOpen(file);
+        // Analyze the latest content, including changes received in the meantime
+        openFilesCache.getFile(uri).ifPresent(analysisScheduler::didOpen);
       } else {
         SonarLintLogger.get().debug("Skipping analysis for preview of file {}", uri);
+        openFilesCache.didClose(uri);
       }
     });
   }
@@ -338,7 +357,8 @@ public class SonarLintLanguageServer implements SonarLintExtendedLanguageServer,
   @Override
   public void didChange(DidChangeTextDocumentParams params) {
     var uri = create(params.getTextDocument().getUri());
-    openFilesCache.didChange(uri, params.getContentChanges().get(0).getText(), params.getTextDocument().getVersion());
+    openFilesCache.didChange(uri, params.getContentChanges(), params.getTextDocument().getVersion());
+    diagnosticPublisher.didChange(uri, params.getContentChanges());
     analysisScheduler.didChange(uri);
   }
 
@@ -349,11 +369,13 @@ public class SonarLintLanguageServer implements SonarLintExtendedLanguageServer,
     openFilesCache.didClose(uri);
     javaConfigCache.didClose(uri);
     scmIgnoredCache.didClose(uri);
+    openInEditorCache.didClose(uri);
+    diagnosticPublisher.didClose(uri);
   }
 
   @Override
   public void didSave(DidSaveTextDocumentParams params) {
-    // Nothin to do
+    analysisScheduler.didSave(create(params.getTextDocument().getUri()), params.getText());
   }
 
   @Override
@@ -431,6 +453,31 @@ public class SonarLintLanguageServer implements SonarLintExtendedLanguageServer,
     branchManager.didBranchNameChange(create(event.getFolderUri()), event.getBranchName());
   }
 
+  @Override
+  public CompletableFuture<AnalysisQueueStatus> getAnalysisQueueStatus() {
+    return CompletableFuture.completedFuture(analysisScheduler.getQueueStatus());
+  }
+
+  @Override
+  public CompletableFuture<List<PhaseMetrics>> getAnalysisMetrics() {
+    return CompletableFuture.completedFuture(analysisMetrics.getPhaseMetrics());
+  }
+
+  @Override
+  public CompletableFuture<Map<String, Long>> getAnalysisCounters() {
+    return CompletableFuture.completedFuture(analysisMetrics.getCounters());
+  }
+
+  @Override
+  public CompletableFuture<List<Diagnostic>> getAllDiagnostics(TextDocumentIdentifier params) {
+    return CompletableFuture.completedFuture(diagnosticPublisher.getAllDiagnostics(create(params.getUri())));
+  }
+
+  @Override
+  public void didFocusTextDocument(TextDocumentIdentifier params) {
+    analysisScheduler.didFocus(create(params.getUri()));
+  }
+
   @Override
   public void cancelProgress(WorkDoneProgressCancelParams params) {
     progressManager.cancelProgress(params);
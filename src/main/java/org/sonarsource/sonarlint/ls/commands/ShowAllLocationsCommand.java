@@ -37,6 +37,7 @@ import org.sonarsource.sonarlint.core.client.api.common.analysis.Issue;
 import org.sonarsource.sonarlint.core.client.api.connected.ServerIssue;
 import org.sonarsource.sonarlint.core.client.api.connected.ServerIssueLocation;
 import org.sonarsource.sonarlint.ls.LocalCodeFile;
+import org.sonarsource.sonarlint.ls.file.VersionnedOpenFile;
 
 public final class ShowAllLocationsCommand {
 
@@ -66,11 +67,16 @@ public final class ShowAllLocationsCommand {
     }
 
     Param(ServerIssue issue, String connectionId, Function<String, Optional<URI>> pathResolver, Map<URI, LocalCodeFile> localFileCache) {
+      this(issue, connectionId, pathResolver, localFileCache, LocalCodeFile::from);
+    }
+
+    Param(ServerIssue issue, String connectionId, Function<String, Optional<URI>> pathResolver, Map<URI, LocalCodeFile> localFileCache,
+      Function<URI, LocalCodeFile> localFileLoader) {
       this.fileUri = pathResolver.apply(issue.getFilePath()).orElse(null);
       this.message = issue.getMessage();
       this.severity = issue.severity();
       this.ruleKey = issue.ruleKey();
-      this.flows = issue.getFlows().stream().map(f -> new Flow(f, pathResolver, localFileCache)).collect(Collectors.toList());
+      this.flows = issue.getFlows().stream().map(f -> new Flow(f, pathResolver, localFileCache, localFileLoader)).collect(Collectors.toList());
       this.connectionId = connectionId;
       this.creationDate = DateTimeFormatter.ISO_DATE_TIME.format(issue.creationDate().atOffset(ZoneOffset.UTC));
     }
@@ -113,8 +119,9 @@ public final class ShowAllLocationsCommand {
       this.locations = flow.locations().stream().map(Location::new).collect(Collectors.toList());
     }
 
-    private Flow(ServerIssue.Flow flow, Function<String, Optional<URI>> pathResolver, Map<URI, LocalCodeFile> localFileCache) {
-      this.locations = flow.locations().stream().map(l -> new Location(l, pathResolver, localFileCache)).collect(Collectors.toList());
+    private Flow(ServerIssue.Flow flow, Function<String, Optional<URI>> pathResolver, Map<URI, LocalCodeFile> localFileCache,
+      Function<URI, LocalCodeFile> localFileLoader) {
+      this.locations = flow.locations().stream().map(l -> new Location(l, pathResolver, localFileCache, localFileLoader)).collect(Collectors.toList());
     }
 
     public List<Location> getLocations() {
@@ -139,7 +146,8 @@ public final class ShowAllLocationsCommand {
       this.codeMatches = true;
     }
 
-    private Location(ServerIssueLocation location, Function<String, Optional<URI>> pathResolver, Map<URI, LocalCodeFile> localCodeCache) {
+    private Location(ServerIssueLocation location, Function<String, Optional<URI>> pathResolver, Map<URI, LocalCodeFile> localCodeCache,
+      Function<URI, LocalCodeFile> localFileLoader) {
       this.textRange = location.getTextRange();
       this.uri = pathResolver.apply(location.getFilePath()).orElse(null);
       this.filePath = location.getFilePath();
@@ -148,7 +156,7 @@ public final class ShowAllLocationsCommand {
         this.exists = false;
         this.codeMatches = false;
       } else {
-        String localCode = localCodeCache.computeIfAbsent(this.uri, LocalCodeFile::from).codeAt(this.textRange);
+        String localCode = localCodeCache.computeIfAbsent(this.uri, localFileLoader).codeAt(this.textRange);
         if (localCode == null) {
           this.exists = false;
           this.codeMatches = false;
@@ -193,6 +201,15 @@ public final class ShowAllLocationsCommand {
     return new Param(issue, connectionId, pathResolver, new HashMap<>());
   }
 
+  /**
+   * Compare server snippets with the content of the editor for open files, rather than with the file on disk
+   */
+  public static Param params(ServerIssue issue, String connectionId, Function<String, Optional<URI>> pathResolver,
+    Function<URI, Optional<VersionnedOpenFile>> openFileResolver) {
+    return new Param(issue, connectionId, pathResolver, new HashMap<>(),
+      uri -> openFileResolver.apply(uri).map(LocalCodeFile::from).orElseGet(() -> LocalCodeFile.from(uri)));
+  }
+
   @CheckForNull
   private static URI nullableUri(@Nullable ClientInputFile inputFile) {
     return Optional.ofNullable(inputFile).map(ClientInputFile::uri).orElse(null);
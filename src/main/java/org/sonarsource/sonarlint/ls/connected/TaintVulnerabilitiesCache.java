@@ -20,16 +20,22 @@
 package org.sonarsource.sonarlint.ls.connected;
 
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import javax.annotation.Nullable;
 import org.eclipse.lsp4j.Diagnostic;
+import org.eclipse.lsp4j.Range;
+import org.eclipse.lsp4j.TextDocumentContentChangeEvent;
 import org.sonarsource.sonarlint.core.client.api.connected.ServerIssue;
 import org.sonarsource.sonarlint.ls.AnalysisScheduler;
+import org.sonarsource.sonarlint.ls.file.RangeShifter;
 import org.sonarsource.sonarlint.ls.util.Utils;
 
 import static java.util.Collections.emptyList;
@@ -40,13 +46,30 @@ public class TaintVulnerabilitiesCache {
   private static final String SECURITY_REPOSITORY_HINT = "security";
 
   private final Map<URI, List<ServerIssue>> taintVulnerabilitiesPerFile = new ConcurrentHashMap<>();
+  // Location of taint vulnerabilities per key, after the file was edited
+  private final Map<URI, Map<String, Range>> shiftedRangesPerFile = new ConcurrentHashMap<>();
+  private final AtomicLong generationCounter = new AtomicLong();
+  private final Map<URI, Long> generationPerFile = new ConcurrentHashMap<>();
 
   public void didClose(URI fileUri) {
     clear(fileUri);
   }
 
-  public void clear(URI fileUri) {
+  public synchronized void clear(URI fileUri) {
     taintVulnerabilitiesPerFile.remove(fileUri);
+    shiftedRangesPerFile.remove(fileUri);
+    generationPerFile.remove(fileUri);
+  }
+
+  /**
+   * Changes each time the diagnostics returned by {@link #getAsDiagnostics(URI)} may have changed
+   */
+  public long getGeneration(URI fileUri) {
+    return generationPerFile.getOrDefault(fileUri, 0L);
+  }
+
+  private void newGeneration(URI fileUri) {
+    generationPerFile.put(fileUri, generationCounter.incrementAndGet());
   }
 
   public Optional<ServerIssue> getTaintVulnerabilityForDiagnostic(URI fileUri, Diagnostic d) {
@@ -72,9 +95,57 @@ public class TaintVulnerabilitiesCache {
   }
 
   public Stream<Diagnostic> getAsDiagnostics(URI fileUri) {
+    var shiftedRanges = shiftedRangesPerFile.getOrDefault(fileUri, Map.of());
     return taintVulnerabilitiesPerFile.getOrDefault(fileUri, emptyList())
       .stream()
-      .flatMap(i -> TaintVulnerabilitiesCache.convert(i).stream());
+      .flatMap(i -> TaintVulnerabilitiesCache.convert(i).map(d -> moveTo(d, shiftedRanges.get(i.key()))).stream());
+  }
+
+  private static Diagnostic moveTo(Diagnostic diagnostic, @Nullable Range shiftedRange) {
+    if (shiftedRange != null) {
+      diagnostic.setRange(shiftedRange);
+    }
+    return diagnostic;
+  }
+
+  /**
+   * Move taint vulnerabilities along with incremental changes of the file. Vulnerabilities whose text was deleted are dropped until the next reload.
+   *
+   * Synchronized with {@link #reload(URI, List)} so that a reload is never overwritten by the shifted previous issues.
+   *
+   * @return true if at least one vulnerability was moved or dropped
+   */
+  public synchronized boolean shiftRanges(URI fileUri, List<TextDocumentContentChangeEvent> changes) {
+    var issues = taintVulnerabilitiesPerFile.getOrDefault(fileUri, emptyList());
+    if (issues.isEmpty() || !RangeShifter.isIncremental(changes)) {
+      return false;
+    }
+    var shiftedRanges = shiftedRangesPerFile.computeIfAbsent(fileUri, u -> new ConcurrentHashMap<>());
+    var keptIssues = new ArrayList<ServerIssue>();
+    var changed = false;
+    for (var issue : issues) {
+      if (issue.getStartLine() == null) {
+        keptIssues.add(issue);
+        continue;
+      }
+      var range = shiftedRanges.getOrDefault(issue.key(), Utils.convert(issue));
+      var shiftedRange = RangeShifter.shift(range, changes);
+      if (shiftedRange.isEmpty()) {
+        shiftedRanges.remove(issue.key());
+        changed = true;
+      } else {
+        keptIssues.add(issue);
+        if (!shiftedRange.get().equals(range)) {
+          shiftedRanges.put(issue.key(), shiftedRange.get());
+          changed = true;
+        }
+      }
+    }
+    taintVulnerabilitiesPerFile.put(fileUri, keptIssues);
+    if (changed) {
+      newGeneration(fileUri);
+    }
+    return changed;
   }
 
   static Optional<Diagnostic> convert(ServerIssue issue) {
@@ -105,11 +176,13 @@ public class TaintVulnerabilitiesCache {
     }
   }
 
-  public void reload(URI fileUri, List<ServerIssue> serverIssues) {
+  public synchronized void reload(URI fileUri, List<ServerIssue> serverIssues) {
+    shiftedRangesPerFile.remove(fileUri);
     taintVulnerabilitiesPerFile.put(fileUri, serverIssues.stream()
       .filter(it -> it.ruleKey().contains(SECURITY_REPOSITORY_HINT))
       .filter(it -> it.resolution().isEmpty())
       .collect(Collectors.toList()));
+    newGeneration(fileUri);
   }
 
 }
@@ -0,0 +1,118 @@
+/*
+ * SonarLint Language Server
+ * Copyright (C) 2009-2022 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.ls.file;
+
+import java.util.Arrays;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Start offset of each line of a text, to convert between line/character positions and offsets without rescanning the text.
+ * Lines are separated by '\n', "\r\n" or '\r', like in the LSP specification. Lines are zero based.
+ */
+@Immutable
+public final class LineIndex {
+
+  private final String text;
+  private final int[] lineStarts;
+
+  private LineIndex(String text, int[] lineStarts) {
+    this.text = text;
+    this.lineStarts = lineStarts;
+  }
+
+  public static LineIndex of(String text) {
+    var starts = new int[16];
+    starts[0] = 0;
+    var count = 1;
+    for (var i = 0; i < text.length(); i++) {
+      var c = text.charAt(i);
+      if (c == '\n' || (c == '\r' && (i + 1 == text.length() || text.charAt(i + 1) != '\n'))) {
+        if (count == starts.length) {
+          starts = Arrays.copyOf(starts, count * 2);
+        }
+        starts[count++] = i + 1;
+      }
+    }
+    return new LineIndex(text, Arrays.copyOf(starts, count));
+  }
+
+  public String getText() {
+    return text;
+  }
+
+  /**
+   * Number of lines, including the empty line following a trailing line break
+   */
+  public int getLineCount() {
+    return lineStarts.length;
+  }
+
+  public int getLineStart(int line) {
+    return lineStarts[line];
+  }
+
+  /**
+   * Offset of the end of the line, before its line break
+   */
+  public int getLineEnd(int line) {
+    if (line + 1 == lineStarts.length) {
+      return text.length();
+    }
+    var end = lineStarts[line + 1] - 1;
+    if (end > lineStarts[line] && text.charAt(end) == '\n' && text.charAt(end - 1) == '\r') {
+      end--;
+    }
+    return end;
+  }
+
+  public int getLineLength(int line) {
+    return getLineEnd(line) - getLineStart(line);
+  }
+
+  /**
+   * Offset of a position, clamped to the end of the line or of the text
+   */
+  public int getOffset(int line, int character) {
+    if (line < 0) {
+      return 0;
+    }
+    if (line >= lineStarts.length) {
+      return text.length();
+    }
+    return lineStarts[line] + Math.min(Math.max(0, character), getLineLength(line));
+  }
+
+  /**
+   * Line containing the given offset
+   */
+  public int getLine(int offset) {
+    var index = Arrays.binarySearch(lineStarts, Math.max(0, Math.min(offset, text.length())));
+    return index >= 0 ? index : (-index - 2);
+  }
+
+  public int getCharacter(int offset) {
+    var clamped = Math.max(0, Math.min(offset, text.length()));
+    return clamped - lineStarts[getLine(clamped)];
+  }
+
+  public String getLineText(int line) {
+    return text.substring(getLineStart(line), getLineEnd(line));
+  }
+}
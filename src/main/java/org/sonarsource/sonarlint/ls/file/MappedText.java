@@ -0,0 +1,204 @@
+/*
+ * SonarLint Language Server
+ * Copyright (C) 2009-2022 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.ls.file;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import javax.annotation.CheckForNull;
+
+/**
+ * Off-heap storage of the successive versions of a big document, in memory-mapped temporary files.
+ * Versions are written alternately in two slots, so that the previous version stays readable while the next one is written.
+ * The slots and their files are reused for the lifetime of the document. Mappings are released by the garbage collector once no version
+ * refers to them, so versions stay readable after the storage is closed. Reading a version whose slot was overwritten by a newer one throws
+ * a {@link ReleasedContentException}.
+ */
+final class MappedText implements Closeable {
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Slot[] slots = {new Slot(), new Slot()};
+  // Guarded by the write lock
+  private int nextSlot;
+  private boolean closed;
+
+  /**
+   * Overwrite the oldest slot with a new version of the text
+   * @param filler writes exactly length characters in the given buffer
+   * @throws IOException if the text can't be mapped, the caller should then keep it on the heap
+   */
+  Region write(int length, Consumer<CharBuffer> filler) throws IOException {
+    if (2L * length > Integer.MAX_VALUE) {
+      throw new IOException("Text is too large to be mapped in memory");
+    }
+    Slot slot;
+    lock.writeLock().lock();
+    try {
+      if (closed) {
+        throw new IOException("Storage is closed");
+      }
+      slot = slots[nextSlot];
+      // Invalidate the regions of the slot before touching its content
+      slot.generation++;
+      slot.ensureCapacity(length);
+      nextSlot = 1 - nextSlot;
+      // Downgrade, so that the storage can't be closed while the slot is filled, while the other slot can still be read
+      lock.readLock().lock();
+    } finally {
+      lock.writeLock().unlock();
+    }
+    try {
+      var target = slot.chars.duplicate();
+      target.clear().limit(length);
+      filler.accept(target);
+      return new Region(slot, slot.generation, slot.chars, length);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Delete the files. Versions stored here stay readable until they are garbage collected.
+   */
+  @Override
+  public void close() {
+    lock.writeLock().lock();
+    try {
+      closed = true;
+      for (var slot : slots) {
+        slot.release();
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private final class Slot {
+    @CheckForNull
+    private FileChannel channel;
+    private CharBuffer chars = CharBuffer.allocate(0);
+    private long generation;
+
+    private void ensureCapacity(int length) throws IOException {
+      if (chars.capacity() >= length) {
+        return;
+      }
+      // Some room for the text to grow, so that the slot is not remapped after each compaction
+      var capacity = Math.min(Integer.MAX_VALUE / 2, length + (length >> 2));
+      if (channel == null) {
+        channel = FileChannel.open(Files.createTempFile("sonarlint-", ".txt"), StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+      }
+      chars = channel.map(MapMode.READ_WRITE, 0, 2L * capacity).asCharBuffer();
+    }
+
+    private void release() {
+      // The mapping stays valid after the channel is closed, until it is garbage collected
+      chars = CharBuffer.allocate(0);
+      if (channel != null) {
+        try {
+          channel.close();
+        } catch (IOException e) {
+          // The file is deleted on exit anyway
+        }
+        channel = null;
+      }
+    }
+  }
+
+  /**
+   * A version of the text stored in a slot
+   */
+  final class Region implements CharSequence {
+    private final Slot slot;
+    private final long generation;
+    // Keeps the mapping reachable even if the slot is remapped or closed
+    private final CharBuffer chars;
+    private final int length;
+
+    private Region(Slot slot, long generation, CharBuffer chars, int length) {
+      this.slot = slot;
+      this.generation = generation;
+      this.chars = chars;
+      this.length = length;
+    }
+
+    @Override
+    public int length() {
+      return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+      lock.readLock().lock();
+      try {
+        checkReadable();
+        return chars.get(index);
+      } finally {
+        lock.readLock().unlock();
+      }
+    }
+
+    /**
+     * Bulk copy of the characters between start (inclusive) and end (exclusive)
+     */
+    void copyTo(CharBuffer target, int start, int end) {
+      lock.readLock().lock();
+      try {
+        checkReadable();
+        var source = chars.duplicate();
+        source.limit(end).position(start);
+        target.put(source);
+      } finally {
+        lock.readLock().unlock();
+      }
+    }
+
+    void appendTo(StringBuilder target, int start, int end) {
+      var copy = CharBuffer.allocate(end - start);
+      copyTo(copy, start, end);
+      target.append(copy.flip());
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+      var sb = new StringBuilder(end - start);
+      appendTo(sb, start, end);
+      return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+      return subSequence(0, length).toString();
+    }
+
+    private void checkReadable() {
+      if (slot.generation != generation) {
+        throw new ReleasedContentException();
+      }
+    }
+  }
+}
@@ -21,10 +21,14 @@ package org.sonarsource.sonarlint.ls.file;
 
 import java.net.URI;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
+import org.eclipse.lsp4j.TextDocumentContentChangeEvent;
 import org.sonarsource.sonarlint.ls.log.LanguageClientLogger;
+import org.sonarsource.sonarlint.ls.settings.AnalysisSettings;
 
 import static java.lang.String.format;
 
@@ -35,26 +39,105 @@ public class OpenFilesCache {
   private final LanguageClientLogger lsLogOutput;
 
   private final Map<URI, VersionnedOpenFile> openFilesPerFileURI = new ConcurrentHashMap<>();
+  private volatile long offHeapThreshold = AnalysisSettings.DEFAULT.getLargeFileSoftLimit();
 
   public OpenFilesCache(LanguageClientLogger lsLogOutput) {
     this.lsLogOutput = lsLogOutput;
   }
 
+  /**
+   * Content of documents bigger than this number of characters is kept off-heap. Only applies to documents opened or fully replaced afterwards.
+   */
+  public void setOffHeapThreshold(long offHeapThreshold) {
+    this.offHeapThreshold = offHeapThreshold;
+  }
+
   public VersionnedOpenFile didOpen(URI fileUri, String languageId, String fileContent, int version) {
-    var file = new VersionnedOpenFile(fileUri, languageId, version, fileContent);
-    openFilesPerFileURI.put(fileUri, file);
+    var file = new VersionnedOpenFile(fileUri, languageId, version, newContent(null, fileContent));
+    var previous = openFilesPerFileURI.put(fileUri, file);
+    if (previous != null) {
+      previous.getPieceTable().release();
+    }
     return file;
   }
 
   public void didChange(URI fileUri, String fileContent, int version) {
+    didChange(fileUri, List.of(new TextDocumentContentChangeEvent(fileContent)), version);
+  }
+
+  /**
+   * Apply changes in order. A change without range replaces the whole content.
+   */
+  public void didChange(URI fileUri, List<TextDocumentContentChangeEvent> changes, int version) {
     if (!openFilesPerFileURI.containsKey(fileUri)) {
       lsLogOutput.warn(format("Illegal state. File '%s' is reported changed but we missed the open notification", fileUri));
     }
-    openFilesPerFileURI.computeIfPresent(fileUri, (uri, previous) -> new VersionnedOpenFile(uri, previous.getLanguageId(), version, fileContent));
+    openFilesPerFileURI.computeIfPresent(fileUri, (uri, previous) -> {
+      var content = previous.getPieceTable();
+      for (var change : changes) {
+        content = applyChange(content, change);
+      }
+      return new VersionnedOpenFile(uri, previous.getLanguageId(), version, content);
+    });
+  }
+
+  /**
+   * When the client sent the saved text, it takes precedence over the content rebuilt from changes.
+   * Both are compared by hash, that is already known for analyzed content, rather than character by character.
+   */
+  public Optional<VersionnedOpenFile> didSave(URI fileUri, @Nullable String savedContent) {
+    if (savedContent == null) {
+      return getFile(fileUri);
+    }
+    return Optional.ofNullable(openFilesPerFileURI.computeIfPresent(fileUri, (uri, previous) -> {
+      if (previous.getContentLength() == savedContent.length() && previous.getContentHash() == VersionnedOpenFile.hash(savedContent)) {
+        return previous;
+      }
+      lsLogOutput.debug(format("Content of file '%s' differs from the saved text, using the saved text", uri));
+      return new VersionnedOpenFile(uri, previous.getLanguageId(), previous.getVersion(), newContent(previous.getPieceTable(), savedContent));
+    }));
+  }
+
+  private PieceTable applyChange(PieceTable content, TextDocumentContentChangeEvent change) {
+    var range = change.getRange();
+    if (range == null) {
+      return newContent(content, change.getText());
+    }
+    return content.replace(range.getStart().getLine(), range.getStart().getCharacter(), range.getEnd().getLine(), range.getEnd().getCharacter(), change.getText());
+  }
+
+  /**
+   * @param previous content of the previous version of the document, whose off-heap storage is reused or released
+   */
+  private PieceTable newContent(@Nullable PieceTable previous, String text) {
+    if (text.length() > offHeapThreshold) {
+      var content = previous != null && previous.isOffHeap() ? previous.replaceAll(text) : PieceTable.offHeap(text);
+      if (!content.isOffHeap()) {
+        lsLogOutput.debug("Unable to store large document off-heap, keeping it in memory");
+      }
+      return content;
+    }
+    if (previous != null) {
+      previous.release();
+    }
+    return PieceTable.of(text);
   }
 
   public void didClose(URI fileUri) {
-    openFilesPerFileURI.remove(fileUri);
+    var closed = openFilesPerFileURI.remove(fileUri);
+    if (closed != null) {
+      closed.getPieceTable().release();
+    }
+  }
+
+  /**
+   * @return true if the file was modified since this snapshot was taken. The content of a snapshot can be replaced by the saved text
+   * without changing its version, so a different snapshot of the same version is newer too.
+   */
+  public boolean isOutdated(VersionnedOpenFile file) {
+    return getFile(file.getUri())
+      .filter(currentFile -> currentFile != file && currentFile.getVersion() >= file.getVersion())
+      .isPresent();
   }
 
   public Optional<VersionnedOpenFile> getFile(URI fileUri) {
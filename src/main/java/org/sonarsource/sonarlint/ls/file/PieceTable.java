@@ -0,0 +1,385 @@
+/*
+ * SonarLint Language Server
+ * Copyright (C) 2009-2022 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.ls.file;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Immutable text content of an open file, stored as a sequence of pieces of the original text and of the inserted texts.
+ * Applying a range edit only creates a new list of pieces, the flat text is built lazily, and only once per version.
+ * Positions follow the LSP convention: zero based lines separated by '\n', "\r\n" or '\r', and characters counted in UTF-16 code units,
+ * see {@link LineIndex}. A "\r\n" split across two pieces is still a single line break.
+ * The text of big documents can be kept off-heap, in which case the flat text is only retained as long as someone else uses it.
+ */
+@Immutable
+public final class PieceTable {
+
+  /**
+   * Above this number of pieces, locating a position becomes slower than copying the text once
+   */
+  static final int MAX_PIECES = 256;
+
+  private final Piece[] pieces;
+  private final int length;
+  // Shared by all the versions of an off-heap document
+  @CheckForNull
+  private final MappedText storage;
+  @CheckForNull
+  private volatile String text;
+  private volatile WeakReference<String> recentText = new WeakReference<>(null);
+
+  private PieceTable(Piece[] pieces, int length, @Nullable MappedText storage, @Nullable String text) {
+    this.pieces = pieces;
+    this.length = length;
+    this.storage = storage;
+    this.text = text;
+  }
+
+  public static PieceTable of(String text) {
+    return new PieceTable(singlePiece(new Source(text)), text.length(), null, text);
+  }
+
+  /**
+   * Keep the text in memory-mapped temporary files. Falls back to the heap if the text can't be mapped.
+   */
+  public static PieceTable offHeap(String text) {
+    return writeOffHeap(new MappedText(), text);
+  }
+
+  /**
+   * Replace the whole content. Off-heap content stays in the storage of this document.
+   */
+  public PieceTable replaceAll(String newText) {
+    return storage == null ? of(newText) : writeOffHeap(storage, newText);
+  }
+
+  private static PieceTable writeOffHeap(MappedText storage, String text) {
+    try {
+      var region = storage.write(text.length(), target -> target.put(text));
+      return new PieceTable(singlePiece(new Source(region, lineBreaksOf(text))), text.length(), storage, null);
+    } catch (IOException | RuntimeException e) {
+      storage.close();
+      // Content is still correct, only the memory footprint is not reduced
+      return of(text);
+    }
+  }
+
+  private static Piece[] singlePiece(Source source) {
+    var sourceLength = source.text.length();
+    return sourceLength == 0 ? new Piece[0] : new Piece[] {new Piece(source, 0, sourceLength)};
+  }
+
+  public boolean isOffHeap() {
+    return storage != null;
+  }
+
+  /**
+   * Release the off-heap storage of the document. Versions already stored stay readable until they are garbage collected.
+   */
+  public void release() {
+    if (storage != null) {
+      storage.close();
+    }
+  }
+
+  public int length() {
+    return length;
+  }
+
+  int getPieceCount() {
+    return pieces.length;
+  }
+
+  /**
+   * Replace the text between the two positions by a new text. Out of bounds positions are clamped to the end of the line or of the document.
+   */
+  public PieceTable replace(int startLine, int startCharacter, int endLine, int endCharacter, String newText) {
+    var startOffset = offsetAt(startLine, startCharacter);
+    var endOffset = Math.max(startOffset, offsetAt(endLine, endCharacter));
+    return replace(startOffset, endOffset, newText);
+  }
+
+  PieceTable replace(int startOffset, int endOffset, String newText) {
+    List<Piece> newPieces = new ArrayList<>(pieces.length + 2);
+    var inserted = false;
+    var pieceStart = 0;
+    for (var piece : pieces) {
+      var pieceEnd = pieceStart + piece.length;
+      if (pieceEnd <= startOffset || (inserted && pieceStart >= endOffset)) {
+        newPieces.add(piece);
+      } else {
+        if (pieceStart < startOffset) {
+          newPieces.add(piece.slice(0, startOffset - pieceStart));
+        }
+        if (!inserted) {
+          addIfNotEmpty(newPieces, newText);
+          inserted = true;
+        }
+        if (pieceEnd > endOffset) {
+          newPieces.add(piece.slice(Math.max(0, endOffset - pieceStart), piece.length));
+        }
+      }
+      pieceStart = pieceEnd;
+    }
+    if (!inserted) {
+      addIfNotEmpty(newPieces, newText);
+    }
+    var newLength = length - (endOffset - startOffset) + newText.length();
+    var result = new PieceTable(newPieces.toArray(new Piece[0]), newLength, storage, null);
+    return result.pieces.length > MAX_PIECES ? result.compact() : result;
+  }
+
+  private PieceTable compact() {
+    if (storage == null) {
+      return of(getText());
+    }
+    try {
+      // Copied piece by piece, the flat text is not built on the heap
+      var region = storage.write(length, target -> {
+        for (var piece : pieces) {
+          piece.source.copyTo(target, piece.start, piece.start + piece.length);
+        }
+      });
+      return new PieceTable(singlePiece(new Source(region, lineBreakOffsets())), length, storage, null);
+    } catch (IOException | RuntimeException e) {
+      var flatText = getText();
+      storage.close();
+      return of(flatText);
+    }
+  }
+
+  /**
+   * Returns the flat text, computed once. When the text is off-heap, it is only retained as long as it is used elsewhere.
+   */
+  public String getText() {
+    var result = storage == null ? text : recentText.get();
+    if (result == null) {
+      var sb = new StringBuilder(length);
+      for (var piece : pieces) {
+        piece.source.appendTo(sb, piece.start, piece.start + piece.length);
+      }
+      result = sb.toString();
+      if (storage == null) {
+        text = result;
+      } else {
+        recentText = new WeakReference<>(result);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Offset of a position in the text, clamped to the end of the line or of the document.
+   */
+  int offsetAt(int line, int character) {
+    if (line < 0) {
+      return 0;
+    }
+    var lineStart = line == 0 ? 0 : offsetAfterLineBreak(line);
+    if (lineStart < 0) {
+      return length;
+    }
+    var nextLineStart = offsetAfterLineBreak(line + 1);
+    var lineEnd = length;
+    if (nextLineStart >= 0) {
+      lineEnd = nextLineStart - 1;
+      if (lineEnd > lineStart && charAt(lineEnd) == '\n' && charAt(lineEnd - 1) == '\r') {
+        lineEnd--;
+      }
+    }
+    return lineStart + Math.min(Math.max(0, character), lineEnd - lineStart);
+  }
+
+  private char charAt(int offset) {
+    var pieceStart = 0;
+    for (var piece : pieces) {
+      if (offset < pieceStart + piece.length) {
+        return piece.charAt(offset - pieceStart);
+      }
+      pieceStart += piece.length;
+    }
+    throw new IndexOutOfBoundsException(offset);
+  }
+
+  /**
+   * @return the offset just after the n-th line break (1 based), or -1 if there are not enough lines
+   */
+  private int offsetAfterLineBreak(int nthLineBreak) {
+    var remaining = nthLineBreak;
+    var pieceStart = 0;
+    for (var i = 0; i < pieces.length; i++) {
+      var piece = pieces[i];
+      var followedByLf = i + 1 < pieces.length && pieces[i + 1].startsWithLf();
+      var lineBreaksInPiece = piece.countLineBreaks(followedByLf);
+      if (remaining <= lineBreaksInPiece) {
+        return pieceStart + piece.lineBreakOffset(remaining) + 1;
+      }
+      remaining -= lineBreaksInPiece;
+      pieceStart += piece.length;
+    }
+    return -1;
+  }
+
+  /**
+   * Offsets of the last character of each line break of the flat text, computed from the pieces without reading the text
+   */
+  private int[] lineBreakOffsets() {
+    var offsets = new int[16];
+    var count = 0;
+    var pieceStart = 0;
+    for (var i = 0; i < pieces.length; i++) {
+      var piece = pieces[i];
+      var lineBreaksInPiece = piece.countLineBreaks(i + 1 < pieces.length && pieces[i + 1].startsWithLf());
+      for (var n = 1; n <= lineBreaksInPiece; n++) {
+        if (count == offsets.length) {
+          offsets = Arrays.copyOf(offsets, count * 2);
+        }
+        offsets[count++] = pieceStart + piece.lineBreakOffset(n);
+      }
+      pieceStart += piece.length;
+    }
+    return Arrays.copyOf(offsets, count);
+  }
+
+  private static void addIfNotEmpty(List<Piece> pieces, String newText) {
+    if (!newText.isEmpty()) {
+      pieces.add(new Piece(new Source(newText), 0, newText.length()));
+    }
+  }
+
+  private static int[] lineBreaksOf(CharSequence text) {
+    var positions = new int[16];
+    var count = 0;
+    for (var i = 0; i < text.length(); i++) {
+      var c = text.charAt(i);
+      if (c == '\n' || (c == '\r' && (i + 1 == text.length() || text.charAt(i + 1) != '\n'))) {
+        if (count == positions.length) {
+          positions = Arrays.copyOf(positions, count * 2);
+        }
+        positions[count++] = i;
+      }
+    }
+    return Arrays.copyOf(positions, count);
+  }
+
+  /**
+   * An immutable text, with the position of its line breaks computed once. The position of a line break is the one of its last character.
+   */
+  private static final class Source {
+    // Either a String, or a region of the off-heap storage
+    private final CharSequence text;
+    private final int[] lineBreaks;
+
+    private Source(String text) {
+      this(text, lineBreaksOf(text));
+    }
+
+    private Source(CharSequence text, int[] lineBreaks) {
+      this.text = text;
+      this.lineBreaks = lineBreaks;
+    }
+
+    private void appendTo(StringBuilder target, int start, int end) {
+      if (text instanceof MappedText.Region) {
+        ((MappedText.Region) text).appendTo(target, start, end);
+      } else {
+        target.append(text, start, end);
+      }
+    }
+
+    private void copyTo(CharBuffer target, int start, int end) {
+      if (text instanceof MappedText.Region) {
+        ((MappedText.Region) text).copyTo(target, start, end);
+      } else {
+        target.put(text.toString(), start, end);
+      }
+    }
+
+    /**
+     * Number of line breaks strictly before the given position
+     */
+    private int lineBreaksBefore(int position) {
+      var index = Arrays.binarySearch(lineBreaks, position);
+      return index >= 0 ? index : (-index - 1);
+    }
+  }
+
+  private static final class Piece {
+    private final Source source;
+    private final int start;
+    private final int length;
+
+    private Piece(Source source, int start, int length) {
+      this.source = source;
+      this.start = start;
+      this.length = length;
+    }
+
+    private Piece slice(int from, int to) {
+      return new Piece(source, start + from, to - from);
+    }
+
+    private char charAt(int index) {
+      return source.text.charAt(start + index);
+    }
+
+    private boolean startsWithLf() {
+      return charAt(0) == '\n';
+    }
+
+    private boolean endsWithCr() {
+      return charAt(length - 1) == '\r';
+    }
+
+    /**
+     * Line breaks of the source in this piece, except a trailing '\r' whose status depends on the next piece
+     */
+    private int countInnerLineBreaks() {
+      var end = endsWithCr() ? (start + length - 1) : (start + length);
+      return source.lineBreaksBefore(end) - source.lineBreaksBefore(start);
+    }
+
+    /**
+     * @param followedByLf whether the next piece starts with '\n', in which case a trailing '\r' is the first half of a "\r\n"
+     */
+    private int countLineBreaks(boolean followedByLf) {
+      return countInnerLineBreaks() + (endsWithCr() && !followedByLf ? 1 : 0);
+    }
+
+    /**
+     * @return offset in this piece of the last character of the n-th line break (1 based) of this piece
+     */
+    private int lineBreakOffset(int nthLineBreak) {
+      if (nthLineBreak > countInnerLineBreaks()) {
+        // Trailing '\r'
+        return length - 1;
+      }
+      return source.lineBreaks[source.lineBreaksBefore(start) + nthLineBreak - 1] - start;
+    }
+  }
+}
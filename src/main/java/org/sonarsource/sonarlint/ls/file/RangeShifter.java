@@ -0,0 +1,97 @@
+/*
+ * SonarLint Language Server
+ * Copyright (C) 2009-2022 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.ls.file;
+
+import java.util.List;
+import java.util.Optional;
+import javax.annotation.CheckForNull;
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.Range;
+import org.eclipse.lsp4j.TextDocumentContentChangeEvent;
+
+/**
+ * Follow ranges of a document through incremental changes, to keep diagnostics in place until the next analysis.
+ */
+public final class RangeShifter {
+
+  private RangeShifter() {
+    // utility class
+  }
+
+  /**
+   * Ranges can't be followed through a change replacing the whole content
+   */
+  public static boolean isIncremental(List<TextDocumentContentChangeEvent> changes) {
+    return changes.stream().allMatch(c -> c.getRange() != null);
+  }
+
+  /**
+   * Apply incremental changes in order.
+   *
+   * @return the new range, or empty if the text of the range was deleted or modified at one of its boundaries
+   */
+  public static Optional<Range> shift(Range range, List<TextDocumentContentChangeEvent> changes) {
+    var result = range;
+    for (var change : changes) {
+      result = shift(result, change.getRange(), change.getText());
+      if (result == null) {
+        return Optional.empty();
+      }
+    }
+    return Optional.of(result);
+  }
+
+  @CheckForNull
+  static Range shift(Range range, Range edited, String newText) {
+    var editStart = edited.getStart();
+    var editEnd = edited.getEnd();
+    if (compare(range.getEnd(), editStart) <= 0) {
+      return range;
+    }
+    var inserted = LineIndex.of(newText);
+    if (compare(range.getStart(), editEnd) >= 0) {
+      return new Range(shift(range.getStart(), editStart, editEnd, inserted), shift(range.getEnd(), editStart, editEnd, inserted));
+    }
+    var rangeIsDeleted = compare(editStart, range.getStart()) <= 0 && compare(range.getEnd(), editEnd) <= 0;
+    var editIsInside = compare(range.getStart(), editStart) <= 0 && compare(editEnd, range.getEnd()) <= 0;
+    if (!rangeIsDeleted && editIsInside) {
+      return new Range(range.getStart(), shift(range.getEnd(), editStart, editEnd, inserted));
+    }
+    return null;
+  }
+
+  /**
+   * Shift a position located after the edited text
+   */
+  private static Position shift(Position position, Position editStart, Position editEnd, LineIndex inserted) {
+    var lastInsertedLine = inserted.getLineCount() - 1;
+    var line = position.getLine() - (editEnd.getLine() - editStart.getLine()) + lastInsertedLine;
+    if (position.getLine() != editEnd.getLine()) {
+      return new Position(line, position.getCharacter());
+    }
+    var lastInsertedLineStart = lastInsertedLine == 0 ? editStart.getCharacter() : 0;
+    return new Position(line, lastInsertedLineStart + inserted.getLineLength(lastInsertedLine) + position.getCharacter() - editEnd.getCharacter());
+  }
+
+  private static int compare(Position p1, Position p2) {
+    var byLine = Integer.compare(p1.getLine(), p2.getLine());
+    return byLine != 0 ? byLine : Integer.compare(p1.getCharacter(), p2.getCharacter());
+  }
+}
@@ -0,0 +1,40 @@
+/*
+ * SonarLint Language Server
+ * Copyright (C) 2009-2022 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.ls.file;
+
+/**
+ * Thrown when reading the content of an outdated version of a document, once its off-heap storage was reused by newer versions.
+ * The version being read is not current anymore, so whatever reads it, like an analysis, is outdated.
+ */
+public class ReleasedContentException extends IllegalStateException {
+
+  public ReleasedContentException() {
+    super("Content of an outdated version of the document was released");
+  }
+
+  public static boolean isCauseOf(Throwable throwable) {
+    for (var cause = throwable; cause != null; cause = cause.getCause()) {
+      if (cause instanceof ReleasedContentException) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -19,7 +19,11 @@
  */
 package org.sonarsource.sonarlint.ls.file;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import javax.annotation.CheckForNull;
 import javax.annotation.concurrent.Immutable;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 
@@ -28,12 +32,25 @@ import org.apache.commons.lang3.builder.ToStringBuilder;
  */
 @Immutable
 public class VersionnedOpenFile {
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+
   private final URI uri;
   private final String languageId;
   private final int version;
-  private final String content;
+  private final PieceTable content;
+  @CheckForNull
+  private volatile LineIndex lineIndex;
+  @CheckForNull
+  private volatile byte[] utf8Content;
+  @CheckForNull
+  private volatile Long contentHash;
 
   public VersionnedOpenFile(URI uri, String languageId, int version, String content) {
+    this(uri, languageId, version, PieceTable.of(content));
+  }
+
+  VersionnedOpenFile(URI uri, String languageId, int version, PieceTable content) {
     this.uri = uri;
     this.languageId = languageId;
     this.version = version;
@@ -52,7 +69,92 @@ public class VersionnedOpenFile {
     return version;
   }
 
+  /**
+   * Flat content of this version, built on first call. For off-heap content, it is built again only once no one references it anymore.
+   */
   public String getContent() {
+    return content.getText();
+  }
+
+  /**
+   * Number of characters of the content, known without building the flat content
+   */
+  public int getContentLength() {
+    return content.length();
+  }
+
+  /**
+   * Content of big files is stored off-heap, and nothing derived from it is cached on the heap
+   */
+  public boolean isOffHeap() {
+    return content.isOffHeap();
+  }
+
+  /**
+   * Line index of the content of this version, built on first call
+   */
+  public LineIndex getLineIndex() {
+    var result = lineIndex;
+    if (result == null) {
+      result = LineIndex.of(getContent());
+      if (!isOffHeap()) {
+        lineIndex = result;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Stream over the UTF-8 encoded content of this version. The content is encoded once, and shared by all streams.
+   */
+  public InputStream newUtf8InputStream() {
+    return new ByteArrayInputStream(getUtf8Content());
+  }
+
+  public int getUtf8Length() {
+    return getUtf8Content().length;
+  }
+
+  /**
+   * @return true if the content has already been encoded, so opening a new stream is free
+   */
+  public boolean isUtf8Encoded() {
+    return utf8Content != null;
+  }
+
+  private byte[] getUtf8Content() {
+    var result = utf8Content;
+    if (result == null) {
+      result = getContent().getBytes(StandardCharsets.UTF_8);
+      if (!isOffHeap()) {
+        utf8Content = result;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * 64 bits FNV-1a hash of the content, computed once
+   */
+  public long getContentHash() {
+    var result = contentHash;
+    if (result == null) {
+      result = hash(getContent());
+      contentHash = result;
+    }
+    return result;
+  }
+
+  static long hash(CharSequence text) {
+    var hash = FNV_OFFSET_BASIS;
+    for (var i = 0; i < text.length(); i++) {
+      hash ^= text.charAt(i);
+      hash *= FNV_PRIME;
+    }
+    return hash;
+  }
+
+  PieceTable getPieceTable() {
     return content;
   }
 
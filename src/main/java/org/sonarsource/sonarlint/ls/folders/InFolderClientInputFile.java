@@ -20,14 +20,15 @@
 package org.sonarsource.sonarlint.ls.folders;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Paths;
 import javax.annotation.CheckForNull;
 import org.sonarsource.sonarlint.core.analysis.api.ClientInputFile;
-import org.sonarsource.sonarlint.ls.LocalCodeFile;
 
 public class InFolderClientInputFile implements ClientInputFile {
   private final URI fileUri;
@@ -63,12 +64,24 @@ public class InFolderClientInputFile implements ClientInputFile {
 
   @Override
   public InputStream inputStream() {
-    return new ByteArrayInputStream(contents().getBytes(StandardCharsets.UTF_8));
+    return new ByteArrayInputStream(readBytes());
   }
 
   @Override
   public String contents() {
-    return LocalCodeFile.from(fileUri).content();
+    return new String(readBytes(), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Content is not kept in memory, since there can be many files in a folder
+   */
+  private byte[] readBytes() {
+    try {
+      return Files.readAllBytes(Paths.get(fileUri));
+    } catch (IOException e) {
+      // Consider the file as empty
+      return new byte[0];
+    }
   }
 
   @Override
@@ -0,0 +1,170 @@
+/*
+ * SonarLint Language Server
+ * Copyright (C) 2009-2022 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.ls.metrics;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+import org.sonarsource.sonarlint.ls.log.LanguageClientLogger;
+
+import static java.lang.String.format;
+import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Durations of the different phases of analyses, per language and binding mode
+ */
+public class AnalysisMetrics {
+
+  public static final String STANDALONE = "standalone";
+  public static final String CONNECTED = "connected";
+  /**
+   * For phases happening before files are grouped by binding
+   */
+  public static final String ANY = "any";
+
+  /**
+   * Bytes of file content that did not need to be encoded again when analyzers opened a stream
+   */
+  public static final String ENCODED_BYTES_SAVED = "encodedBytesSaved";
+  /**
+   * Files whose content and configuration did not change since their last analysis, so issues were reused
+   */
+  public static final String UNCHANGED_CONTENT_HITS = "unchangedContentHits";
+  public static final String UNCHANGED_CONTENT_MISSES = "unchangedContentMisses";
+  /**
+   * Files not analyzed because their content looks minified, generated or binary. Suffixed with the reason.
+   */
+  public static final String PRE_FILTER_SKIPS = "preFilterSkips";
+  /**
+   * Diagnostic publications sent to the client, and the ones suppressed because the client already had the same diagnostics
+   */
+  public static final String PUBLICATIONS_SENT = "diagnosticPublicationsSent";
+  public static final String PUBLICATIONS_SUPPRESSED = "diagnosticPublicationsSuppressed";
+
+  private static final long SUMMARY_INTERVAL_MS = TimeUnit.MINUTES.toMillis(5);
+
+  private final Map<Key, Histogram> histograms = new ConcurrentHashMap<>();
+  private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+  private final LongSupplier clock;
+  private final AtomicLong lastSummaryMs;
+
+  public AnalysisMetrics() {
+    this(System::currentTimeMillis);
+  }
+
+  AnalysisMetrics(LongSupplier clock) {
+    this.clock = clock;
+    this.lastSummaryMs = new AtomicLong(clock.getAsLong());
+  }
+
+  public void record(String phase, String language, String bindingMode, long durationMs) {
+    histograms.computeIfAbsent(new Key(phase, language, bindingMode), k -> new Histogram()).record(durationMs);
+  }
+
+  public void increment(String counter, long delta) {
+    counters.computeIfAbsent(counter, k -> new LongAdder()).add(delta);
+  }
+
+  public long getCounter(String counter) {
+    var adder = counters.get(counter);
+    return adder == null ? 0 : adder.sum();
+  }
+
+  public Map<String, Long> getCounters() {
+    var result = new TreeMap<String, Long>();
+    counters.forEach((name, adder) -> result.put(name, adder.sum()));
+    return result;
+  }
+
+  public List<PhaseMetrics> getPhaseMetrics() {
+    return histograms.entrySet().stream()
+      .sorted(Map.Entry.comparingByKey())
+      .map(e -> new PhaseMetrics(e.getKey().phase, e.getKey().language, e.getKey().bindingMode, e.getValue()))
+      .collect(toList());
+  }
+
+  public String summary() {
+    var phases = getPhaseMetrics().stream()
+      .map(m -> format("  %s [%s, %s]: count=%d mean=%dms p50=%dms p90=%dms p99=%dms max=%dms", m.getPhase(), m.getLanguage(), m.getBindingMode(), m.getCount(),
+        m.getMeanMs(), m.getP50Ms(), m.getP90Ms(), m.getP99Ms(), m.getMaxMs()));
+    var counterLines = getCounters().entrySet().stream()
+      .map(e -> format("  %s: %d", e.getKey(), e.getValue()));
+    return Stream.concat(phases, counterLines)
+      .collect(joining(System.lineSeparator(), "Analysis metrics:" + System.lineSeparator(), ""));
+  }
+
+  /**
+   * Log the summary at debug level, at most once every few minutes
+   */
+  public void logSummaryIfDue(LanguageClientLogger logger) {
+    var now = clock.getAsLong();
+    var last = lastSummaryMs.get();
+    if (now - last >= SUMMARY_INTERVAL_MS && lastSummaryMs.compareAndSet(last, now) && !(histograms.isEmpty() && counters.isEmpty())) {
+      logger.debug(summary());
+    }
+  }
+
+  private static class Key implements Comparable<Key> {
+    private static final Comparator<Key> COMPARATOR = Comparator.<Key, String>comparing(k -> k.phase)
+      .thenComparing(k -> k.language)
+      .thenComparing(k -> k.bindingMode);
+
+    private final String phase;
+    private final String language;
+    private final String bindingMode;
+
+    Key(String phase, String language, String bindingMode) {
+      this.phase = phase;
+      this.language = language;
+      this.bindingMode = bindingMode;
+    }
+
+    @Override
+    public int compareTo(Key o) {
+      return COMPARATOR.compare(this, o);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      var other = (Key) o;
+      return phase.equals(other.phase) && language.equals(other.language) && bindingMode.equals(other.bindingMode);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(phase, language, bindingMode);
+    }
+  }
+}
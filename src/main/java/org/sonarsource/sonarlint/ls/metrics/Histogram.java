@@ -0,0 +1,94 @@
+/*
+ * SonarLint Language Server
+ * Copyright (C) 2009-2022 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.ls.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread safe histogram of durations, with exponential buckets (each bucket upper bound is about 1.4 times the previous one).
+ * Percentiles are approximated by the upper bound of the bucket containing them.
+ */
+public class Histogram {
+
+  private static final int NB_BUCKETS = 48;
+  private static final long[] BUCKET_UPPER_BOUNDS_MS = new long[NB_BUCKETS];
+
+  static {
+    for (var i = 0; i < NB_BUCKETS; i++) {
+      BUCKET_UPPER_BOUNDS_MS[i] = Math.round(Math.pow(2, i / 2.0));
+    }
+  }
+
+  private final AtomicLongArray buckets = new AtomicLongArray(NB_BUCKETS);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder sumMs = new LongAdder();
+  private final AtomicLong maxMs = new AtomicLong();
+
+  public void record(long durationMs) {
+    var value = Math.max(0, durationMs);
+    buckets.incrementAndGet(bucketIndex(value));
+    count.increment();
+    sumMs.add(value);
+    maxMs.accumulateAndGet(value, Math::max);
+  }
+
+  private static int bucketIndex(long valueMs) {
+    for (var i = 0; i < NB_BUCKETS; i++) {
+      if (valueMs <= BUCKET_UPPER_BOUNDS_MS[i]) {
+        return i;
+      }
+    }
+    return NB_BUCKETS - 1;
+  }
+
+  public long getCount() {
+    return count.sum();
+  }
+
+  public long getMeanMs() {
+    var c = count.sum();
+    return c == 0 ? 0 : (sumMs.sum() / c);
+  }
+
+  public long getMaxMs() {
+    return maxMs.get();
+  }
+
+  /**
+   * @param percentile between 0 and 100
+   */
+  public long getPercentileMs(double percentile) {
+    var total = count.sum();
+    if (total == 0) {
+      return 0;
+    }
+    var rank = (long) Math.ceil(total * percentile / 100.0);
+    var cumulated = 0L;
+    for (var i = 0; i < NB_BUCKETS; i++) {
+      cumulated += buckets.get(i);
+      if (cumulated >= rank) {
+        return Math.min(BUCKET_UPPER_BOUNDS_MS[i], getMaxMs());
+      }
+    }
+    return getMaxMs();
+  }
+}
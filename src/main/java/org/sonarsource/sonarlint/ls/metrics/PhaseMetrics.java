@@ -0,0 +1,80 @@
+/*
+ * SonarLint Language Server
+ * Copyright (C) 2009-2022 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.ls.metrics;
+
+public class PhaseMetrics {
+  private final String phase;
+  private final String language;
+  private final String bindingMode;
+  private final long count;
+  private final long meanMs;
+  private final long p50Ms;
+  private final long p90Ms;
+  private final long p99Ms;
+  private final long maxMs;
+
+  public PhaseMetrics(String phase, String language, String bindingMode, Histogram histogram) {
+    this.phase = phase;
+    this.language = language;
+    this.bindingMode = bindingMode;
+    this.count = histogram.getCount();
+    this.meanMs = histogram.getMeanMs();
+    this.p50Ms = histogram.getPercentileMs(50);
+    this.p90Ms = histogram.getPercentileMs(90);
+    this.p99Ms = histogram.getPercentileMs(99);
+    this.maxMs = histogram.getMaxMs();
+  }
+
+  public String getPhase() {
+    return phase;
+  }
+
+  public String getLanguage() {
+    return language;
+  }
+
+  public String getBindingMode() {
+    return bindingMode;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public long getMeanMs() {
+    return meanMs;
+  }
+
+  public long getP50Ms() {
+    return p50Ms;
+  }
+
+  public long getP90Ms() {
+    return p90Ms;
+  }
+
+  public long getP99Ms() {
+    return p99Ms;
+  }
+
+  public long getMaxMs() {
+    return maxMs;
+  }
+}
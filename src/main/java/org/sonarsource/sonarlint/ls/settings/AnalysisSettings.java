@@ -0,0 +1,215 @@
+/*
+ * SonarLint Language Server
+ * Copyright (C) 2009-2022 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.ls.settings;
+
+import java.util.Map;
+import java.util.Objects;
+import javax.annotation.concurrent.Immutable;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+/**
+ * Settings controlling how and when analyses are scheduled (section <code>sonarlint.analysis</code>)
+ */
+@Immutable
+public class AnalysisSettings {
+
+  static final String MIN_DEBOUNCE_MS = "minDebounceMs";
+  static final String MAX_DEBOUNCE_MS = "maxDebounceMs";
+  static final String WORKERS = "workers";
+  static final String MAX_CONCURRENT_ANALYSES = "maxConcurrentAnalyses";
+  static final String BULK_CHUNK_SIZE = "bulkChunkSize";
+  static final String LARGE_FILE_SOFT_LIMIT_KB = "largeFileSoftLimitKb";
+  static final String LARGE_FILE_HARD_LIMIT_KB = "largeFileHardLimitKb";
+  static final String TRIGGER_MODE = "triggerMode";
+  static final String IDLE_DELAY_MS = "idleDelayMs";
+  static final String PRE_FILTER = "preFilter";
+  static final String MAX_DIAGNOSTICS_PER_FILE = "maxDiagnosticsPerFile";
+
+  public static final int DEFAULT_MIN_DEBOUNCE_MS = 300;
+  public static final int DEFAULT_MAX_DEBOUNCE_MS = 5000;
+  public static final int DEFAULT_BULK_CHUNK_SIZE = 10;
+  public static final int DEFAULT_LARGE_FILE_SOFT_LIMIT_KB = 1024;
+  public static final int DEFAULT_LARGE_FILE_HARD_LIMIT_KB = 5 * 1024;
+  public static final AnalysisTriggerMode DEFAULT_TRIGGER_MODE = AnalysisTriggerMode.ON_TYPE;
+  public static final int DEFAULT_IDLE_DELAY_MS = 3000;
+  public static final int DEFAULT_MAX_DIAGNOSTICS_PER_FILE = 1000;
+
+  /**
+   * Value of {@link #WORKERS} and {@link #MAX_CONCURRENT_ANALYSES} meaning "computed from the number of available cores"
+   */
+  public static final int AUTO = 0;
+
+  /**
+   * Value of {@link #LARGE_FILE_SOFT_LIMIT_KB}, {@link #LARGE_FILE_HARD_LIMIT_KB} and {@link #MAX_DIAGNOSTICS_PER_FILE} meaning "no limit"
+   */
+  public static final int NO_LIMIT = 0;
+
+  public static final AnalysisSettings DEFAULT = new AnalysisSettings(DEFAULT_MIN_DEBOUNCE_MS, DEFAULT_MAX_DEBOUNCE_MS, AUTO, AUTO, DEFAULT_BULK_CHUNK_SIZE,
+    DEFAULT_LARGE_FILE_SOFT_LIMIT_KB, DEFAULT_LARGE_FILE_HARD_LIMIT_KB, DEFAULT_TRIGGER_MODE, DEFAULT_IDLE_DELAY_MS,
+    PreFilterSettings.DEFAULT, DEFAULT_MAX_DIAGNOSTICS_PER_FILE);
+
+  private final int minDebounceMs;
+  private final int maxDebounceMs;
+  private final int workers;
+  private final int maxConcurrentAnalyses;
+  private final int bulkChunkSize;
+  private final int largeFileSoftLimitKb;
+  private final int largeFileHardLimitKb;
+  private final AnalysisTriggerMode triggerMode;
+  private final int idleDelayMs;
+  private final PreFilterSettings preFilterSettings;
+  private final int maxDiagnosticsPerFile;
+
+  public AnalysisSettings(int minDebounceMs, int maxDebounceMs, int workers, int maxConcurrentAnalyses, int bulkChunkSize, int largeFileSoftLimitKb,
+    int largeFileHardLimitKb, AnalysisTriggerMode triggerMode, int idleDelayMs, PreFilterSettings preFilterSettings, int maxDiagnosticsPerFile) {
+    this.minDebounceMs = Math.max(0, minDebounceMs);
+    this.maxDebounceMs = Math.max(this.minDebounceMs, maxDebounceMs);
+    this.workers = Math.max(AUTO, workers);
+    this.maxConcurrentAnalyses = Math.max(AUTO, maxConcurrentAnalyses);
+    this.bulkChunkSize = Math.max(1, bulkChunkSize);
+    this.largeFileSoftLimitKb = Math.max(NO_LIMIT, largeFileSoftLimitKb);
+    this.largeFileHardLimitKb = Math.max(NO_LIMIT, largeFileHardLimitKb);
+    this.triggerMode = triggerMode;
+    this.idleDelayMs = Math.max(0, idleDelayMs);
+    this.preFilterSettings = preFilterSettings;
+    this.maxDiagnosticsPerFile = Math.max(NO_LIMIT, maxDiagnosticsPerFile);
+  }
+
+  @SuppressWarnings("unchecked")
+  static AnalysisSettings parse(Map<String, Object> analysisSettings) {
+    return new AnalysisSettings(
+      intValue(analysisSettings, MIN_DEBOUNCE_MS, DEFAULT_MIN_DEBOUNCE_MS),
+      intValue(analysisSettings, MAX_DEBOUNCE_MS, DEFAULT_MAX_DEBOUNCE_MS),
+      intValue(analysisSettings, WORKERS, AUTO),
+      intValue(analysisSettings, MAX_CONCURRENT_ANALYSES, AUTO),
+      intValue(analysisSettings, BULK_CHUNK_SIZE, DEFAULT_BULK_CHUNK_SIZE),
+      intValue(analysisSettings, LARGE_FILE_SOFT_LIMIT_KB, DEFAULT_LARGE_FILE_SOFT_LIMIT_KB),
+      intValue(analysisSettings, LARGE_FILE_HARD_LIMIT_KB, DEFAULT_LARGE_FILE_HARD_LIMIT_KB),
+      AnalysisTriggerMode.fromSettingValue(analysisSettings.get(TRIGGER_MODE), DEFAULT_TRIGGER_MODE),
+      intValue(analysisSettings, IDLE_DELAY_MS, DEFAULT_IDLE_DELAY_MS),
+      PreFilterSettings.parse((Map<String, Object>) analysisSettings.getOrDefault(PRE_FILTER, Map.of())),
+      intValue(analysisSettings, MAX_DIAGNOSTICS_PER_FILE, DEFAULT_MAX_DIAGNOSTICS_PER_FILE));
+  }
+
+  /**
+   * Numbers are deserialized as {@link Double} by Gson
+   */
+  static int intValue(Map<String, Object> settings, String key, int defaultValue) {
+    var value = settings.get(key);
+    return value instanceof Number ? ((Number) value).intValue() : defaultValue;
+  }
+
+  public int getMinDebounceMs() {
+    return minDebounceMs;
+  }
+
+  public int getMaxDebounceMs() {
+    return maxDebounceMs;
+  }
+
+  /**
+   * Number of threads running analysis tasks. Defaults to the number of available cores.
+   */
+  public int getNbWorkers() {
+    return workers != AUTO ? workers : Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * Maximum number of analyses run by the engines at the same time. Defaults to half the number of available cores.
+   */
+  public int getMaxConcurrentAnalyses() {
+    return maxConcurrentAnalyses != AUTO ? maxConcurrentAnalyses : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+  }
+
+  /**
+   * Maximum number of files per analysis when re-analyzing all open files
+   */
+  public int getBulkChunkSize() {
+    return bulkChunkSize;
+  }
+
+  /**
+   * Open files bigger than this limit are stored outside of the heap. Sizes are measured in characters.
+   */
+  public long getLargeFileSoftLimit() {
+    return toChars(largeFileSoftLimitKb);
+  }
+
+  /**
+   * Open files bigger than this limit are not analyzed automatically. Sizes are measured in characters.
+   */
+  public long getLargeFileHardLimit() {
+    return toChars(largeFileHardLimitKb);
+  }
+
+  public AnalysisTriggerMode getTriggerMode() {
+    return triggerMode;
+  }
+
+  /**
+   * In {@link AnalysisTriggerMode#ON_IDLE} mode, how long no file must have been edited before edited files are analyzed
+   */
+  public int getIdleDelayMs() {
+    return idleDelayMs;
+  }
+
+  public PreFilterSettings getPreFilterSettings() {
+    return preFilterSettings;
+  }
+
+  /**
+   * Diagnostics published for a single file, taint vulnerabilities included. Above this limit, one of them summarizes the hidden issues
+   */
+  public int getMaxDiagnosticsPerFile() {
+    return maxDiagnosticsPerFile == NO_LIMIT ? Integer.MAX_VALUE : maxDiagnosticsPerFile;
+  }
+
+  private static long toChars(int limitKb) {
+    return limitKb == NO_LIMIT ? Long.MAX_VALUE : (limitKb * 1024L);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(minDebounceMs, maxDebounceMs, workers, maxConcurrentAnalyses, bulkChunkSize, largeFileSoftLimitKb, largeFileHardLimitKb, triggerMode,
+      idleDelayMs, preFilterSettings, maxDiagnosticsPerFile);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (obj == null || getClass() != obj.getClass()) {
+      return false;
+    }
+    var other = (AnalysisSettings) obj;
+    return minDebounceMs == other.minDebounceMs && maxDebounceMs == other.maxDebounceMs && workers == other.workers
+      && maxConcurrentAnalyses == other.maxConcurrentAnalyses && bulkChunkSize == other.bulkChunkSize
+      && largeFileSoftLimitKb == other.largeFileSoftLimitKb && largeFileHardLimitKb == other.largeFileHardLimitKb
+      && triggerMode == other.triggerMode && idleDelayMs == other.idleDelayMs && preFilterSettings.equals(other.preFilterSettings)
+      && maxDiagnosticsPerFile == other.maxDiagnosticsPerFile;
+  }
+
+  @Override
+  public String toString() {
+    return ToStringBuilder.reflectionToString(this, ToStringStyle.SHORT_PREFIX_STYLE);
+  }
+}
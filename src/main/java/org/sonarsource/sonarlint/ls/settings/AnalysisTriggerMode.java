@@ -0,0 +1,58 @@
+/*
+ * SonarLint Language Server
+ * Copyright (C) 2009-2022 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.ls.settings;
+
+import java.util.Arrays;
+import javax.annotation.Nullable;
+
+/**
+ * When open files are analyzed after they have been edited
+ */
+public enum AnalysisTriggerMode {
+  /**
+   * After a debounce delay following the last change of the file
+   */
+  ON_TYPE("onType"),
+  /**
+   * Only when the file is saved
+   */
+  ON_SAVE("onSave"),
+  /**
+   * When no file has been edited for a while
+   */
+  ON_IDLE("onIdle");
+
+  private final String settingValue;
+
+  AnalysisTriggerMode(String settingValue) {
+    this.settingValue = settingValue;
+  }
+
+  public String getSettingValue() {
+    return settingValue;
+  }
+
+  static AnalysisTriggerMode fromSettingValue(@Nullable Object value, AnalysisTriggerMode defaultValue) {
+    return Arrays.stream(values())
+      .filter(m -> m.settingValue.equals(value))
+      .findFirst()
+      .orElse(defaultValue);
+  }
+}
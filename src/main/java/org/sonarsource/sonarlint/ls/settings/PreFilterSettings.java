@@ -0,0 +1,160 @@
+/*
+ * SonarLint Language Server
+ * Copyright (C) 2009-2022 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.ls.settings;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import static org.sonarsource.sonarlint.ls.settings.AnalysisSettings.intValue;
+
+/**
+ * Thresholds of the checks run on the content of files before analysis (section <code>sonarlint.analysis.preFilter</code>).
+ * Each language can override some of them in <code>sonarlint.analysis.preFilter.languages.&lt;languageId&gt;</code>.
+ */
+@Immutable
+public class PreFilterSettings {
+
+  static final String ENABLED = "enabled";
+  static final String MAX_LINE_LENGTH = "maxLineLength";
+  static final String MAX_AVERAGE_LINE_LENGTH = "maxAverageLineLength";
+  static final String MAX_NON_TEXT_PERCENT = "maxNonTextPercent";
+  static final String SKIP_GENERATED = "skipGenerated";
+  static final String LANGUAGES = "languages";
+
+  public static final int DEFAULT_MAX_LINE_LENGTH = 10_000;
+  public static final int DEFAULT_MAX_AVERAGE_LINE_LENGTH = 500;
+  public static final int DEFAULT_MAX_NON_TEXT_PERCENT = 10;
+
+  /**
+   * Value of thresholds disabling the corresponding check
+   */
+  public static final int DISABLED = 0;
+
+  public static final PreFilterSettings DEFAULT = new PreFilterSettings(true, DEFAULT_MAX_LINE_LENGTH, DEFAULT_MAX_AVERAGE_LINE_LENGTH, DEFAULT_MAX_NON_TEXT_PERCENT,
+    true, Map.of());
+
+  private final boolean enabled;
+  private final int maxLineLength;
+  private final int maxAverageLineLength;
+  private final int maxNonTextPercent;
+  private final boolean skipGenerated;
+  private final Map<String, PreFilterSettings> perLanguage;
+
+  public PreFilterSettings(boolean enabled, int maxLineLength, int maxAverageLineLength, int maxNonTextPercent, boolean skipGenerated,
+    Map<String, PreFilterSettings> perLanguage) {
+    this.enabled = enabled;
+    this.maxLineLength = Math.max(DISABLED, maxLineLength);
+    this.maxAverageLineLength = Math.max(DISABLED, maxAverageLineLength);
+    this.maxNonTextPercent = Math.max(DISABLED, maxNonTextPercent);
+    this.skipGenerated = skipGenerated;
+    this.perLanguage = Map.copyOf(perLanguage);
+  }
+
+  @SuppressWarnings("unchecked")
+  static PreFilterSettings parse(Map<String, Object> preFilterSettings) {
+    var defaults = parse(preFilterSettings, DEFAULT);
+    var perLanguage = new HashMap<String, PreFilterSettings>();
+    var languages = preFilterSettings.get(LANGUAGES);
+    if (languages instanceof Map) {
+      ((Map<String, Object>) languages).forEach((languageId, languageSettings) -> {
+        if (languageSettings instanceof Map) {
+          perLanguage.put(languageId, parse((Map<String, Object>) languageSettings, defaults));
+        }
+      });
+    }
+    return new PreFilterSettings(defaults.enabled, defaults.maxLineLength, defaults.maxAverageLineLength, defaults.maxNonTextPercent, defaults.skipGenerated, perLanguage);
+  }
+
+  private static PreFilterSettings parse(Map<String, Object> settings, PreFilterSettings defaults) {
+    return new PreFilterSettings(
+      booleanValue(settings, ENABLED, defaults.enabled),
+      intValue(settings, MAX_LINE_LENGTH, defaults.maxLineLength),
+      intValue(settings, MAX_AVERAGE_LINE_LENGTH, defaults.maxAverageLineLength),
+      intValue(settings, MAX_NON_TEXT_PERCENT, defaults.maxNonTextPercent),
+      booleanValue(settings, SKIP_GENERATED, defaults.skipGenerated),
+      Map.of());
+  }
+
+  private static boolean booleanValue(Map<String, Object> settings, String key, boolean defaultValue) {
+    var value = settings.get(key);
+    return value instanceof Boolean ? (Boolean) value : defaultValue;
+  }
+
+  /**
+   * Settings of the given language, defaults to the settings shared by all languages
+   */
+  public PreFilterSettings forLanguage(@Nullable String languageId) {
+    return languageId != null ? perLanguage.getOrDefault(languageId, this) : this;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public int getMaxLineLength() {
+    return maxLineLength;
+  }
+
+  /**
+   * Only checked for files of a few KB, a short file with a single long line is not minified
+   */
+  public int getMaxAverageLineLength() {
+    return maxAverageLineLength;
+  }
+
+  /**
+   * Maximum percentage of control characters and undecodable characters
+   */
+  public int getMaxNonTextPercent() {
+    return maxNonTextPercent;
+  }
+
+  public boolean isSkipGenerated() {
+    return skipGenerated;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(enabled, maxLineLength, maxAverageLineLength, maxNonTextPercent, skipGenerated, perLanguage);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (obj == null || getClass() != obj.getClass()) {
+      return false;
+    }
+    var other = (PreFilterSettings) obj;
+    return enabled == other.enabled && maxLineLength == other.maxLineLength && maxAverageLineLength == other.maxAverageLineLength
+      && maxNonTextPercent == other.maxNonTextPercent && skipGenerated == other.skipGenerated && perLanguage.equals(other.perLanguage);
+  }
+
+  @Override
+  public String toString() {
+    return ToStringBuilder.reflectionToString(this, ToStringStyle.SHORT_PREFIX_STYLE);
+  }
+}
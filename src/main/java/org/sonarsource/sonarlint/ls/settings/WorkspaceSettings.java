@@ -42,10 +42,11 @@ public class WorkspaceSettings {
   private final boolean showAnalyzerLogs;
   private final boolean showVerboseLogs;
   private final String pathToNodeExecutable;
+  private final AnalysisSettings analysisSettings;
 
   public WorkspaceSettings(boolean disableTelemetry, Map<String, ServerConnectionSettings> connections,
     Collection<RuleKey> excludedRules, Collection<RuleKey> includedRules, Map<RuleKey, Map<String, String>> ruleParameters,
-    boolean showAnalyzerLogs, boolean showVerboseLogs, String pathToNodeExecutable) {
+    boolean showAnalyzerLogs, boolean showVerboseLogs, String pathToNodeExecutable, AnalysisSettings analysisSettings) {
     this.disableTelemetry = disableTelemetry;
     this.connections = connections;
     this.excludedRules = excludedRules;
@@ -54,6 +55,7 @@ public class WorkspaceSettings {
     this.showAnalyzerLogs = showAnalyzerLogs;
     this.showVerboseLogs = showVerboseLogs;
     this.pathToNodeExecutable = pathToNodeExecutable;
+    this.analysisSettings = analysisSettings;
   }
 
   public boolean isDisableTelemetry() {
@@ -92,9 +94,13 @@ public class WorkspaceSettings {
     return pathToNodeExecutable;
   }
 
+  public AnalysisSettings getAnalysisSettings() {
+    return analysisSettings;
+  }
+
   @Override
   public int hashCode() {
-    return Objects.hash(disableTelemetry, connections, excludedRules, includedRules, showAnalyzerLogs, showVerboseLogs, pathToNodeExecutable);
+    return Objects.hash(disableTelemetry, connections, excludedRules, includedRules, showAnalyzerLogs, showVerboseLogs, pathToNodeExecutable, analysisSettings);
   }
 
   @Override
@@ -112,7 +118,7 @@ public class WorkspaceSettings {
     return disableTelemetry == other.disableTelemetry && Objects.equals(connections, other.connections) && Objects.equals(excludedRules, other.excludedRules)
       && Objects.equals(includedRules, other.includedRules) && Objects.equals(ruleParameters, other.ruleParameters)
       && Objects.equals(showAnalyzerLogs, other.showAnalyzerLogs) && Objects.equals(showVerboseLogs, other.showVerboseLogs)
-      && Objects.equals(pathToNodeExecutable, other.pathToNodeExecutable);
+      && Objects.equals(pathToNodeExecutable, other.pathToNodeExecutable) && Objects.equals(analysisSettings, other.analysisSettings);
   }
 
   @Override
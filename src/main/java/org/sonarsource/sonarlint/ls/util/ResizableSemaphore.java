@@ -0,0 +1,50 @@
+/*
+ * SonarLint Language Server
+ * Copyright (C) 2009-2022 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.ls.util;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * A {@link Semaphore} whose total number of permits can be changed while permits are held.
+ * When reducing the size, holders keep their permits, but new acquirers will wait until enough permits have been released.
+ */
+public class ResizableSemaphore extends Semaphore {
+
+  private int size;
+
+  public ResizableSemaphore(int size) {
+    super(size, true);
+    this.size = size;
+  }
+
+  public synchronized void resize(int newSize) {
+    var delta = newSize - size;
+    if (delta > 0) {
+      release(delta);
+    } else if (delta < 0) {
+      reducePermits(-delta);
+    }
+    size = newSize;
+  }
+
+  public synchronized int size() {
+    return size;
+  }
+}
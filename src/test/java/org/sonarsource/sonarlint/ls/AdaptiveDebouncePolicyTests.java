@@ -0,0 +1,97 @@
+/*
+ * SonarLint Language Server
+ * Copyright (C) 2009-2022 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.ls;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveDebouncePolicyTests {
+
+  private static final URI FILE_URI = URI.create("file:///foo.py");
+
+  private final AtomicLong now = new AtomicLong(1_000_000);
+  private AdaptiveDebouncePolicy underTest;
+
+  @BeforeEach
+  void prepare() {
+    underTest = new AdaptiveDebouncePolicy(2000, now::get);
+  }
+
+  @Test
+  void shouldUseDefaultDelayWhenNothingIsKnownAboutFile() {
+    assertThat(underTest.didChange(FILE_URI)).isEqualTo(2000);
+  }
+
+  @Test
+  void shouldAnalyzeCheapFileSoonAfterTypingPause() {
+    underTest.analysisDone(FILE_URI, 20);
+    typeEvery(100, 10);
+
+    // 3 times the keystroke interval
+    assertThat(underTest.didChange(FILE_URI)).isEqualTo(300);
+  }
+
+  @Test
+  void shouldWaitLongerForExpensiveFile() {
+    underTest.analysisDone(FILE_URI, 2000);
+    typeEvery(100, 10);
+
+    assertThat(underTest.didChange(FILE_URI)).isEqualTo(3000);
+  }
+
+  @Test
+  void shouldRespectBounds() {
+    underTest.setBounds(500, 1000);
+
+    underTest.analysisDone(FILE_URI, 1);
+    assertThat(underTest.didChange(FILE_URI)).isEqualTo(500);
+
+    underTest.analysisDone(URI.create("file:///big.java"), 10_000);
+    assertThat(underTest.didChange(URI.create("file:///big.java"))).isEqualTo(1000);
+  }
+
+  @Test
+  void shouldNotConsiderLongPausesAsTypingCadence() {
+    underTest.analysisDone(FILE_URI, 20);
+    typeEvery(100, 10);
+    now.addAndGet(60_000);
+
+    assertThat(underTest.didChange(FILE_URI)).isEqualTo(300);
+  }
+
+  @Test
+  void shouldForgetClosedFiles() {
+    underTest.analysisDone(FILE_URI, 20);
+    underTest.didClose(FILE_URI);
+
+    assertThat(underTest.didChange(FILE_URI)).isEqualTo(2000);
+  }
+
+  private void typeEvery(long intervalMs, int nbKeystrokes) {
+    for (var i = 0; i < nbKeystrokes; i++) {
+      underTest.didChange(FILE_URI);
+      now.addAndGet(intervalMs);
+    }
+  }
+}
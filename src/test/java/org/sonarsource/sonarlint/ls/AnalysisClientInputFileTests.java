@@ -20,11 +20,15 @@
 package org.sonarsource.sonarlint.ls;
 
 
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.sonarsource.sonarlint.core.commons.Language;
+import org.sonarsource.sonarlint.ls.file.VersionnedOpenFile;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -37,6 +41,21 @@ class AnalysisClientInputFileTests {
       .isEqualTo(expected);
   }
 
+  @Test
+  void shouldEncodeContentOnlyOnce() throws Exception {
+    var openFile = new VersionnedOpenFile(URI.create("file:///foo.js"), "javascript", 1, "alert('\u00e9');");
+    var inputFile = new AnalysisClientInputFile(openFile.getUri(), "foo.js", openFile, false);
+
+    try (var first = inputFile.inputStream(); var second = inputFile.inputStream()) {
+      assertThat(new String(first.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo("alert('\u00e9');");
+      assertThat(new String(second.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo("alert('\u00e9');");
+    }
+    assertThat(inputFile.contents()).isEqualTo("alert('\u00e9');");
+    assertThat(inputFile.language()).isEqualTo(Language.JS);
+    // Second stream reused the 12 bytes encoded for the first one
+    assertThat(inputFile.getBytesSaved()).isEqualTo(12);
+  }
+
   private static Stream<Arguments> provideParametersForLanguageDetection() {
     return Stream.of(
       Arguments.of("javascript", Language.JS),
@@ -0,0 +1,85 @@
+/*
+ * SonarLint Language Server
+ * Copyright (C) 2009-2022 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.ls;
+
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.sonarsource.sonarlint.ls.AnalysisPreFilter.Reason;
+import org.sonarsource.sonarlint.ls.settings.PreFilterSettings;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AnalysisPreFilterTests {
+
+  private static final PreFilterSettings SETTINGS = PreFilterSettings.DEFAULT;
+
+  @Test
+  void accept_regular_source_code() {
+    var content = "function foo() {\r\n  return 42;\r\n}\n".repeat(500);
+
+    assertThat(AnalysisPreFilter.check(content, SETTINGS)).isEmpty();
+    assertThat(AnalysisPreFilter.check("", SETTINGS)).isEmpty();
+  }
+
+  @Test
+  void detect_minified_content() {
+    var oneLongLine = "var a=1;".repeat(2000);
+    assertThat(AnalysisPreFilter.check(oneLongLine, SETTINGS)).contains(Reason.MINIFIED);
+
+    var longLinesOnAverage = ("x".repeat(600) + "\n").repeat(10);
+    assertThat(AnalysisPreFilter.check(longLinesOnAverage, SETTINGS)).contains(Reason.MINIFIED);
+
+    // Too short for the average to be meaningful
+    assertThat(AnalysisPreFilter.check("x".repeat(600), SETTINGS)).isEmpty();
+  }
+
+  @Test
+  void detect_generated_content() {
+    assertThat(AnalysisPreFilter.check("// Code generated by protoc-gen-go. DO NOT EDIT.\npackage foo\n", SETTINGS)).contains(Reason.GENERATED);
+    assertThat(AnalysisPreFilter.check("/**\n * @generated\n */\nclass Foo {}\n", SETTINGS)).contains(Reason.GENERATED);
+    assertThat(AnalysisPreFilter.check("<!-- <auto-generated /> -->\n<root/>\n", SETTINGS)).contains(Reason.GENERATED);
+    assertThat(AnalysisPreFilter.check("class Foo {}\n".repeat(100) + "// DO NOT EDIT\n", SETTINGS)).isEmpty();
+  }
+
+  @Test
+  void do_not_mistake_license_header_for_generated_marker() {
+    var openJdkHeader = "/*\n * Copyright (c) 2003, 2013, Oracle and/or its affiliates. All rights reserved.\n"
+      + " * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.\n */\npackage java.util;\n";
+    assertThat(AnalysisPreFilter.check(openJdkHeader, SETTINGS)).isEmpty();
+    assertThat(AnalysisPreFilter.check("// DO NOT EDIT, ask the team first\nclass Foo {}\n", SETTINGS)).isEmpty();
+  }
+
+  @Test
+  void detect_binary_content() {
+    assertThat(AnalysisPreFilter.check("abc\u0000\u0001\u0002def\n", SETTINGS)).contains(Reason.BINARY);
+    assertThat(AnalysisPreFilter.check("abc\uFFFD\uFFFDdef\n", SETTINGS)).contains(Reason.BINARY);
+    assertThat(AnalysisPreFilter.check("a\tb\fc" + "d".repeat(100), SETTINGS)).isEmpty();
+  }
+
+  @Test
+  void checks_can_be_disabled() {
+    var oneLongLine = "var a=1;".repeat(2000);
+    var noLineLengthCheck = new PreFilterSettings(true, PreFilterSettings.DISABLED, PreFilterSettings.DISABLED, 10, true, Map.of());
+    var disabled = new PreFilterSettings(false, 100, 100, 10, true, Map.of());
+
+    assertThat(AnalysisPreFilter.check(oneLongLine, noLineLengthCheck)).isEmpty();
+    assertThat(AnalysisPreFilter.check("// @generated\n" + oneLongLine, disabled)).isEmpty();
+  }
+}
@@ -20,8 +20,11 @@
 package org.sonarsource.sonarlint.ls;
 
 import java.net.URI;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -32,12 +35,20 @@ import org.sonarsource.sonarlint.ls.file.OpenFilesCache;
 import org.sonarsource.sonarlint.ls.file.VersionnedOpenFile;
 import org.sonarsource.sonarlint.ls.folders.WorkspaceFoldersManager;
 import org.sonarsource.sonarlint.ls.log.LanguageClientLogger;
+import org.sonarsource.sonarlint.ls.progress.ProgressManager;
+import org.sonarsource.sonarlint.ls.settings.AnalysisSettings;
+import org.sonarsource.sonarlint.ls.settings.AnalysisTriggerMode;
+import org.sonarsource.sonarlint.ls.settings.PreFilterSettings;
+import org.sonarsource.sonarlint.ls.settings.WorkspaceSettings;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.awaitility.Awaitility.waitAtMost;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.after;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
@@ -51,14 +62,16 @@ class AnalysisSchedulerTests {
   private AnalysisTaskExecutor taskExecutor;
   private OpenFilesCache openFilesCache;
   private LanguageClientLogger lsLogOutput;
+  private ProgressManager progressManager;
 
   @BeforeEach
   public void init() {
     lsLogOutput = mock(LanguageClientLogger.class);
     taskExecutor = mock(AnalysisTaskExecutor.class);
     openFilesCache = new OpenFilesCache(lsLogOutput);
+    progressManager = mock(ProgressManager.class);
     underTest = new AnalysisScheduler(lsLogOutput, mock(WorkspaceFoldersManager.class), mock(ProjectBindingManager.class), openFilesCache,
-      taskExecutor, 200);
+      taskExecutor, progressManager, 200);
 
     underTest.initialize();
   }
@@ -89,6 +102,20 @@ class AnalysisSchedulerTests {
     verify(lsLogOutput).warn("URI 'ftp://foo.js' is not in local filesystem, analysis not supported");
   }
 
+  @Test
+  void shouldReportProgressOfChunkedAnalysisOnDedicatedThread() {
+    var progressThreadName = new AtomicReference<String>();
+    doAnswer(invocation -> {
+      progressThreadName.set(Thread.currentThread().getName());
+      return null;
+    }).when(progressManager).doWithProgress(any(), any(), any(), any());
+    var file = openFilesCache.didOpen(JS_FILE_URI, "javascript", "alert();", 1);
+
+    underTest.analyzeInChunks("Analyze open files", List.of(file));
+
+    waitAtMost(1, TimeUnit.SECONDS).untilAsserted(() -> assertThat(progressThreadName.get()).isEqualTo("SonarLint Language Server Analysis Progress"));
+  }
+
   @Test
   void shouldScheduleAnalysisWithoutIssueRefreshOnChange() {
     var file = openFilesCache.didOpen(JS_FILE_URI, "javascript", "alert();", 1);
@@ -117,6 +144,156 @@ class AnalysisSchedulerTests {
     assertThat(submittedTask.shouldFetchServerIssues()).isFalse();
   }
 
+  @Test
+  void shouldAnalyzeFocusedFileBeforeBulkReanalysis() {
+    var file1 = openFilesCache.didOpen(JS_FILE_URI, "javascript", "alert();", 1);
+    var file2 = openFilesCache.didOpen(URI.create("file://foo2.js"), "javascript", "alert();", 1);
+    underTest.didFocus(file2.getUri());
+
+    underTest.analyzeAllOpenFilesInFolder(null);
+
+    ArgumentCaptor<AnalysisTask> taskCaptor = ArgumentCaptor.forClass(AnalysisTask.class);
+    verify(taskExecutor, timeout(1000).times(2)).run(taskCaptor.capture());
+
+    var tasks = taskCaptor.getAllValues();
+    assertThat(tasks.get(0).getFilesToAnalyze()).containsExactly(file2);
+    assertThat(tasks.get(0).getPriority()).isEqualTo(AnalysisPriority.FOCUSED);
+    assertThat(tasks.get(1).getFilesToAnalyze()).containsExactly(file1);
+    assertThat(tasks.get(1).getPriority()).isEqualTo(AnalysisPriority.BULK);
+  }
+
+  @Test
+  void shouldReanalyzeOpenFilesInChunks() {
+    for (var i = 0; i < 25; i++) {
+      openFilesCache.didOpen(URI.create("file://foo" + i + ".js"), "javascript", "alert();", 1);
+    }
+
+    underTest.analyzeAllOpenFilesInFolder(null);
+
+    ArgumentCaptor<AnalysisTask> taskCaptor = ArgumentCaptor.forClass(AnalysisTask.class);
+    verify(taskExecutor, timeout(1000).times(3)).run(taskCaptor.capture());
+    assertThat(taskCaptor.getAllValues())
+      .extracting(t -> t.getFilesToAnalyze().size())
+      .containsExactly(10, 10, 5);
+    assertThat(taskCaptor.getAllValues()).extracting(AnalysisTask::getPriority).containsOnly(AnalysisPriority.BULK);
+  }
+
+  @Test
+  void shouldAnalyzeLatestContentOfNextChunk() {
+    var analysisStarted = new AtomicBoolean();
+    var releaseAnalysis = new AtomicBoolean();
+    doAnswer(invocation -> {
+      analysisStarted.set(true);
+      while (!releaseAnalysis.get()) {
+        Thread.sleep(10);
+      }
+      return null;
+    }).when(taskExecutor).run(any());
+    for (var i = 0; i < 11; i++) {
+      openFilesCache.didOpen(URI.create("file://foo" + i + ".js"), "javascript", "alert();", 1);
+    }
+
+    underTest.analyzeAllOpenFilesInFolder(null);
+    waitAtMost(1, TimeUnit.SECONDS).untilTrue(analysisStarted);
+    ArgumentCaptor<AnalysisTask> taskCaptor = ArgumentCaptor.forClass(AnalysisTask.class);
+    verify(taskExecutor).run(taskCaptor.capture());
+    var remainingFileUri = openFilesCache.getAll().stream()
+      .map(VersionnedOpenFile::getUri)
+      .filter(uri -> taskCaptor.getValue().getFilesToAnalyze().stream().noneMatch(f -> f.getUri().equals(uri)))
+      .findFirst().get();
+    openFilesCache.didChange(remainingFileUri, "alert(2);", 2);
+    releaseAnalysis.set(true);
+
+    verify(taskExecutor, timeout(1000).times(2)).run(taskCaptor.capture());
+    assertThat(taskCaptor.getValue().getFilesToAnalyze()).extracting(VersionnedOpenFile::getVersion).containsOnly(2);
+  }
+
+  @Test
+  void shouldOnlyAnalyzeSavedContentInOnSaveMode() {
+    setTriggerMode(AnalysisTriggerMode.ON_SAVE, AnalysisSettings.DEFAULT_IDLE_DELAY_MS);
+    openFilesCache.didOpen(JS_FILE_URI, "javascript", "alert();", 1);
+    openFilesCache.didChange(JS_FILE_URI, "alert(2);", 2);
+    underTest.didChange(JS_FILE_URI);
+
+    verify(taskExecutor, after(500).never()).run(any());
+
+    underTest.didSave(JS_FILE_URI, "alert(3);");
+
+    ArgumentCaptor<AnalysisTask> taskCaptor = ArgumentCaptor.forClass(AnalysisTask.class);
+    verify(taskExecutor, timeout(1000)).run(taskCaptor.capture());
+    assertThat(taskCaptor.getValue().getFilesToAnalyze()).extracting(VersionnedOpenFile::getContent).containsExactly("alert(3);");
+  }
+
+  @Test
+  void shouldNotAnalyzeOnSaveInOnTypeMode() {
+    openFilesCache.didOpen(JS_FILE_URI, "javascript", "alert();", 1);
+
+    underTest.didSave(JS_FILE_URI, null);
+    underTest.didSave(JS_FILE_URI, "alert(3);");
+
+    verify(taskExecutor, after(500).never()).run(any());
+    // Content rebuilt from changes is kept
+    assertThat(openFilesCache.getFile(JS_FILE_URI)).hasValueSatisfying(f -> assertThat(f.getContent()).isEqualTo("alert();"));
+  }
+
+  @Test
+  void shouldAnalyzeEditedFilesTogetherOnceIdle() throws InterruptedException {
+    setTriggerMode(AnalysisTriggerMode.ON_IDLE, 300);
+    var file1 = openFilesCache.didOpen(JS_FILE_URI, "javascript", "alert();", 1);
+    var file2 = openFilesCache.didOpen(URI.create("file://foo2.js"), "javascript", "alert();", 1);
+    underTest.didChange(file1.getUri());
+    Thread.sleep(200);
+    underTest.didChange(file2.getUri());
+    underTest.didChange(file2.getUri());
+    underTest.didChange(file1.getUri());
+    // A single timer is armed for all edited files
+    assertThat(underTest.countArmedTimers()).isEqualTo(1);
+    Thread.sleep(200);
+
+    // The edit of the second file postponed the analysis of the first one
+    verify(taskExecutor, never()).run(any());
+
+    ArgumentCaptor<AnalysisTask> taskCaptor = ArgumentCaptor.forClass(AnalysisTask.class);
+    verify(taskExecutor, timeout(1000)).run(taskCaptor.capture());
+    assertThat(taskCaptor.getValue().getFilesToAnalyze()).containsExactlyInAnyOrder(file1, file2);
+  }
+
+  private void setTriggerMode(AnalysisTriggerMode triggerMode, int idleDelayMs) {
+    var analysisSettings = new AnalysisSettings(AnalysisSettings.DEFAULT_MIN_DEBOUNCE_MS, AnalysisSettings.DEFAULT_MAX_DEBOUNCE_MS, AnalysisSettings.AUTO,
+      AnalysisSettings.AUTO, AnalysisSettings.DEFAULT_BULK_CHUNK_SIZE, AnalysisSettings.DEFAULT_LARGE_FILE_SOFT_LIMIT_KB, AnalysisSettings.DEFAULT_LARGE_FILE_HARD_LIMIT_KB,
+      triggerMode, idleDelayMs, PreFilterSettings.DEFAULT, AnalysisSettings.DEFAULT_MAX_DIAGNOSTICS_PER_FILE);
+    underTest.onChange(null, new WorkspaceSettings(false, Map.of(), List.of(), List.of(), Map.of(), false, false, null, analysisSettings));
+  }
+
+  @Test
+  void shouldRearmTimerOnEachChange() throws InterruptedException {
+    var file = openFilesCache.didOpen(JS_FILE_URI, "javascript", "alert();", 1);
+    underTest.didChange(file.getUri());
+    Thread.sleep(100);
+    openFilesCache.didChange(JS_FILE_URI, "alert(2);", 2);
+    underTest.didChange(file.getUri());
+    Thread.sleep(100);
+    openFilesCache.didChange(JS_FILE_URI, "alert(3);", 3);
+    underTest.didChange(file.getUri());
+
+    ArgumentCaptor<AnalysisTask> taskCaptor = ArgumentCaptor.forClass(AnalysisTask.class);
+    verify(taskExecutor, timeout(1000)).run(taskCaptor.capture());
+    // Previous timers expired in the meantime, but have been superseded
+    verify(taskExecutor, after(500).times(1)).run(any());
+
+    AnalysisTask submittedTask = taskCaptor.getValue();
+    assertThat(submittedTask.getFilesToAnalyze()).extracting(VersionnedOpenFile::getVersion).containsOnly(3);
+  }
+
+  @Test
+  void shouldNotTriggerAnalysisOfClosedFile() {
+    var file = openFilesCache.didOpen(JS_FILE_URI, "javascript", "alert();", 1);
+    underTest.didChange(file.getUri());
+    underTest.didClose(file.getUri());
+
+    verify(taskExecutor, after(500).never()).run(any());
+  }
+
   @Test
   void shouldScheduleAnalysisOfAllOpenJavaFilesWithoutIssueRefreshOnClasspathChange() {
     openFilesCache.didOpen(URI.create("file://Foo1.java"), "java", "class Foo1 {}", 1);
@@ -198,7 +375,38 @@ class AnalysisSchedulerTests {
   }
 
   @Test
-  void shouldCancelPreviousAnalysisFutureIfNotYetStarted() {
+  void shouldPreemptRunningAnalysisOfModifiedFile() {
+    var analysisStarted = new AtomicBoolean();
+    doAnswer(invocation -> {
+      AnalysisTask task = invocation.getArgument(0);
+      analysisStarted.set(true);
+      while (!task.isCanceled()) {
+        Thread.sleep(10);
+      }
+      return null;
+    }).when(taskExecutor).run(any());
+
+    var file = openFilesCache.didOpen(JS_FILE_URI, "javascript", "alert(1);", 1);
+    underTest.didOpen(file);
+    waitAtMost(1, TimeUnit.SECONDS).untilTrue(analysisStarted);
+
+    openFilesCache.didChange(JS_FILE_URI, "alert(2);", 2);
+    underTest.didChange(file.getUri());
+
+    ArgumentCaptor<AnalysisTask> taskCaptor = ArgumentCaptor.forClass(AnalysisTask.class);
+    // Restarted without waiting for the debounce delay
+    verify(taskExecutor, timeout(150).times(2)).run(taskCaptor.capture());
+    var preempted = taskCaptor.getAllValues().get(0);
+    var restarted = taskCaptor.getAllValues().get(1);
+    assertThat(preempted.isCanceled()).isTrue();
+    assertThat(restarted.getFilesToAnalyze()).extracting(VersionnedOpenFile::getVersion).containsOnly(2);
+    assertThat(restarted.shouldFetchServerIssues()).isTrue();
+    verify(lsLogOutput, timeout(1000)).debug(startsWith("Analysis restarted"));
+    restarted.getFuture().cancel(false);
+  }
+
+  @Test
+  void shouldMergeChangeIntoPendingAnalysisOfSameFile() {
     // Mock an long analysis that we can stop from outside
     AtomicBoolean analysisTaskShouldStop = new AtomicBoolean();
     doAnswer(invocation -> {
@@ -211,19 +419,20 @@ class AnalysisSchedulerTests {
 
     }).when(taskExecutor).run(any());
 
-    var file = openFilesCache.didOpen(JS_FILE_URI, "javascript", "alert(1);", 1);
-    underTest.didOpen(file);
-    verify(lsLogOutput, timeout(1000)).debug("Queuing analysis of file '" + JS_FILE_URI + "' (version 1)");
+    var otherFile = openFilesCache.didOpen(URI.create("file://other.js"), "javascript", "alert(1);", 1);
+    underTest.didOpen(otherFile);
+    verify(lsLogOutput, timeout(1000)).debug("Queuing analysis of file 'file://other.js' (version 1)");
     verify(taskExecutor, timeout(1000)).run(any());
 
     reset(taskExecutor);
 
+    var file = openFilesCache.didOpen(JS_FILE_URI, "javascript", "alert(1);", 1);
     openFilesCache.didChange(JS_FILE_URI, "alert(2);", 2);
     underTest.didChange(file.getUri());
 
     verify(lsLogOutput, timeout(1000)).debug("Queuing analysis of file '" + JS_FILE_URI + "' (version 2)");
 
-    // Analysis of version 2 is stuck in the executor service queue because analysis of version 1 is still running
+    // Analysis of version 2 is stuck in the queue because analysis of the other file is still running
     verify(taskExecutor, timeout(1000).times(0)).run(any());
 
     reset(taskExecutor);
@@ -231,8 +440,8 @@ class AnalysisSchedulerTests {
     openFilesCache.didChange(JS_FILE_URI, "alert(3);", 3);
     underTest.didChange(file.getUri());
 
-    verify(lsLogOutput, timeout(1000).times(1)).debug("Attempt to cancel previous analysis...");
     verify(lsLogOutput, timeout(1000)).debug("Queuing analysis of file '" + JS_FILE_URI + "' (version 3)");
+    verify(lsLogOutput, timeout(1000)).debug("All files are already waiting for analysis, no new analysis queued");
     verifyNoMoreInteractions(lsLogOutput);
 
     analysisTaskShouldStop.set(true);
@@ -243,4 +452,35 @@ class AnalysisSchedulerTests {
     assertThat(task2.getFilesToAnalyze()).extracting(VersionnedOpenFile::getVersion).containsOnly(3);
   }
 
+  @Test
+  void shouldNotCancelPendingAnalysisOfOtherFileOnChange() {
+    AtomicBoolean analysisTaskShouldStop = new AtomicBoolean();
+    doAnswer(invocation -> {
+      AnalysisTask task = invocation.getArgument(0);
+      while (!analysisTaskShouldStop.get() && !task.isCanceled()) {
+        Thread.sleep(10);
+      }
+      return null;
+    }).when(taskExecutor).run(any());
+
+    var otherFile = openFilesCache.didOpen(URI.create("file://other.js"), "javascript", "alert(1);", 1);
+    underTest.didOpen(otherFile);
+    verify(taskExecutor, timeout(1000)).run(any());
+
+    var file1 = openFilesCache.didOpen(JS_FILE_URI, "javascript", "alert(1);", 1);
+    underTest.didChange(file1.getUri());
+    verify(lsLogOutput, timeout(1000)).debug("Queuing analysis of file '" + JS_FILE_URI + "' (version 1)");
+
+    var file2 = openFilesCache.didOpen(URI.create("file://foo2.js"), "javascript", "alert(1);", 1);
+    underTest.didChange(file2.getUri());
+    verify(lsLogOutput, timeout(1000)).debug("Queuing analysis of file 'file://foo2.js' (version 1)");
+
+    analysisTaskShouldStop.set(true);
+
+    ArgumentCaptor<AnalysisTask> taskCaptor = ArgumentCaptor.forClass(AnalysisTask.class);
+    verify(taskExecutor, timeout(1000).times(3)).run(taskCaptor.capture());
+    assertThat(taskCaptor.getAllValues()).allSatisfy(t -> assertThat(t.isCanceled()).isFalse());
+    assertThat(taskCaptor.getAllValues()).flatExtracting(AnalysisTask::getFilesToAnalyze).containsExactlyInAnyOrder(otherFile, file1, file2);
+  }
+
 }
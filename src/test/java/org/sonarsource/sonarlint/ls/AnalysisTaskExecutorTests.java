@@ -19,6 +19,7 @@
  */
 package org.sonarsource.sonarlint.ls;
 
+import java.net.URI;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -26,15 +27,19 @@ import java.util.concurrent.Future;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.sonarsource.sonarlint.ls.file.ReleasedContentException;
 import org.sonarsource.sonarlint.ls.log.LanguageClientLogger;
+import org.sonarsource.sonarlint.ls.metrics.AnalysisMetrics;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 class AnalysisTaskExecutorTests {
@@ -46,7 +51,8 @@ class AnalysisTaskExecutorTests {
   @BeforeEach
   public void init() {
     lsLogOutput = mock(LanguageClientLogger.class);
-    underTest = new AnalysisTaskExecutor(null, lsLogOutput, null, null, null, null, null, null, null, null, null, null, null, null);
+    underTest = new AnalysisTaskExecutor(null, lsLogOutput, null, null, null, null, null, null, null, null, null, null, null, null, null, null,
+      new AnalysisMetrics());
     executor = Executors.newSingleThreadExecutor();
   }
 
@@ -79,4 +85,30 @@ class AnalysisTaskExecutorTests {
     assertThat(errorTask.getFuture().isDone()).isTrue();
   }
 
+  @Test
+  void analysisOfReleasedContentIsOutdated() {
+    AnalysisTask outdatedTask = spy(new AnalysisTask(Set.of(), false));
+    when(outdatedTask.getFilesToAnalyze()).thenThrow(new IllegalStateException("Analysis error", new ReleasedContentException()));
+
+    underTest.run(outdatedTask);
+
+    verify(lsLogOutput).debug("Analysis outdated, files were modified while they were analyzed");
+    verify(lsLogOutput, never()).error(any(), any());
+  }
+
+  @Test
+  void onlyLearnDurationOfSingleFileAnalyses() {
+    var debouncePolicy = mock(AdaptiveDebouncePolicy.class);
+    var executorWithPolicy = new AnalysisTaskExecutor(null, lsLogOutput, null, null, null, null, null, null, null, null, null, null, null, null, debouncePolicy, null,
+      new AnalysisMetrics());
+    var file1 = URI.create("file:///Foo.java");
+    var file2 = URI.create("file:///Bar.java");
+
+    executorWithPolicy.learnAnalysisDuration(Set.of(file1, file2), 2000);
+    verifyNoInteractions(debouncePolicy);
+
+    executorWithPolicy.learnAnalysisDuration(Set.of(file1), 100);
+    verify(debouncePolicy).analysisDone(file1, 100);
+  }
+
 }
@@ -0,0 +1,393 @@
+/*
+ * SonarLint Language Server
+ * Copyright (C) 2009-2022 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.ls;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.sonarsource.sonarlint.ls.file.VersionnedOpenFile;
+import org.sonarsource.sonarlint.ls.log.LanguageClientLogger;
+import org.sonarsource.sonarlint.ls.util.Utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.mock;
+
+class AnalysisTaskQueueTests {
+
+  private static final URI FOLDER_1 = URI.create("file:///folder1");
+  private static final URI FOLDER_2 = URI.create("file:///folder2");
+
+  private AnalysisTaskQueue underTest;
+
+  @AfterEach
+  void stop() {
+    underTest.shutdown();
+  }
+
+  @Test
+  void shouldRunTasksOfDifferentLanesInParallel() throws Exception {
+    var bothStarted = new CountDownLatch(2);
+    underTest = newQueue(task -> {
+      bothStarted.countDown();
+      awaitQuietly(bothStarted);
+    }, 2);
+
+    var future1 = underTest.submit(newTask(FOLDER_1));
+    var future2 = underTest.submit(newTask(FOLDER_2));
+
+    future1.get(5, TimeUnit.SECONDS);
+    future2.get(5, TimeUnit.SECONDS);
+  }
+
+  @Test
+  void shouldSerializeTasksOfSameLane() throws Exception {
+    var running = new AtomicInteger();
+    var maxRunning = new AtomicInteger();
+    List<AnalysisTask> order = new CopyOnWriteArrayList<>();
+    underTest = newQueue(task -> {
+      maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+      order.add(task);
+      sleep(50);
+      running.decrementAndGet();
+    }, 4);
+
+    var task1 = newTask(FOLDER_1);
+    var task2 = newTask(FOLDER_1);
+    var task3 = newTask(FOLDER_1);
+    underTest.submit(task1);
+    underTest.submit(task2);
+    underTest.submit(task3).get(5, TimeUnit.SECONDS);
+
+    assertThat(maxRunning).hasValue(1);
+    assertThat(order).containsExactly(task1, task2, task3);
+  }
+
+  @Test
+  void shouldNotBlockOtherLanesWhileLaneIsBusy() throws Exception {
+    var release = new CountDownLatch(1);
+    underTest = newQueue(task -> {
+      if (FOLDER_1.equals(task.getLane())) {
+        awaitQuietly(release);
+      }
+    }, 2);
+
+    underTest.submit(newTask(FOLDER_1));
+    underTest.submit(newTask(FOLDER_1));
+    underTest.submit(newTask(FOLDER_2)).get(5, TimeUnit.SECONDS);
+
+    release.countDown();
+  }
+
+  @Test
+  void shouldSkipCanceledPendingTasks() throws Exception {
+    var release = new CountDownLatch(1);
+    List<AnalysisTask> ran = new CopyOnWriteArrayList<>();
+    underTest = newQueue(task -> {
+      ran.add(task);
+      awaitQuietly(release);
+    }, 1);
+
+    var first = newTask(FOLDER_1);
+    var canceled = newTask(FOLDER_1);
+    var last = newTask(FOLDER_1);
+    underTest.submit(first);
+    underTest.submit(canceled).cancel(false);
+    var lastFuture = underTest.submit(last);
+    release.countDown();
+    lastFuture.get(5, TimeUnit.SECONDS);
+
+    assertThat(ran).containsExactly(first, last);
+  }
+
+  @Test
+  void shouldRunMostUrgentTasksFirst() throws Exception {
+    var release = new CountDownLatch(1);
+    List<AnalysisTask> order = new CopyOnWriteArrayList<>();
+    underTest = newQueue(task -> {
+      order.add(task);
+      awaitQuietly(release);
+    }, 1);
+
+    var first = newTask(FOLDER_1, AnalysisPriority.OPEN);
+    var bulk = newTask(FOLDER_1, AnalysisPriority.BULK);
+    var open = newTask(FOLDER_2, AnalysisPriority.OPEN);
+    var edit = newTask(FOLDER_1, AnalysisPriority.INTERACTIVE);
+    underTest.submit(first);
+    await().until(() -> !order.isEmpty());
+    var bulkFuture = underTest.submit(bulk);
+    underTest.submit(open);
+    underTest.submit(edit);
+    release.countDown();
+    bulkFuture.get(5, TimeUnit.SECONDS);
+
+    assertThat(order).containsExactly(first, edit, open, bulk);
+  }
+
+  @Test
+  void shouldBoostPendingTasksOfFocusedFile() throws Exception {
+    var release = new CountDownLatch(1);
+    List<AnalysisTask> order = new CopyOnWriteArrayList<>();
+    underTest = newQueue(task -> {
+      order.add(task);
+      awaitQuietly(release);
+    }, 1);
+
+    var first = newTask(FOLDER_1, AnalysisPriority.OPEN);
+    var other = new AnalysisTask(Set.of(openFile("file:///folder1/other.js")), false, FOLDER_1, AnalysisPriority.BULK);
+    var focused = new AnalysisTask(Set.of(openFile("file:///folder1/focused.js")), false, FOLDER_1, AnalysisPriority.BULK);
+    underTest.submit(first);
+    await().until(() -> !order.isEmpty());
+    var otherFuture = underTest.submit(other);
+    underTest.submit(focused);
+    underTest.prioritize(URI.create("file:///folder1/focused.js"), AnalysisPriority.FOCUSED);
+    release.countDown();
+    otherFuture.get(5, TimeUnit.SECONDS);
+
+    assertThat(focused.getPriority()).isEqualTo(AnalysisPriority.FOCUSED);
+    assertThat(order).containsExactly(first, focused, other);
+  }
+
+  @Test
+  void shouldMergeFilesAlreadyWaitingForAnalysis() throws Exception {
+    var release = new CountDownLatch(1);
+    List<AnalysisTask> ran = new CopyOnWriteArrayList<>();
+    underTest = newQueue(task -> {
+      ran.add(task);
+      awaitQuietly(release);
+    }, 1);
+
+    var first = newTask(FOLDER_1);
+    underTest.submit(first);
+    await().until(() -> !ran.isEmpty());
+
+    var fileA1 = openFile("file:///folder1/a.js", 1);
+    var fileB1 = openFile("file:///folder1/b.js", 1);
+    var pending = new AnalysisTask(Set.of(fileA1, fileB1), false, FOLDER_1, AnalysisPriority.BULK);
+    underTest.submit(pending);
+
+    var fileA2 = openFile("file:///folder1/a.js", 2);
+    var fileC1 = openFile("file:///folder1/c.js", 1);
+    var partiallyMerged = new AnalysisTask(Set.of(fileA2, fileC1), true, FOLDER_1, AnalysisPriority.OPEN);
+    var partiallyMergedFuture = underTest.submit(partiallyMerged);
+
+    var fileB2 = openFile("file:///folder1/b.js", 2);
+    var fullyMergedFuture = underTest.submit(new AnalysisTask(Set.of(fileB2), false, FOLDER_1, AnalysisPriority.INTERACTIVE));
+
+    assertThat(pending.getFilesToAnalyze()).containsExactlyInAnyOrder(fileA2, fileB2);
+    assertThat(pending.shouldFetchServerIssues()).isTrue();
+    assertThat(pending.getPriority()).isEqualTo(AnalysisPriority.INTERACTIVE);
+    assertThat(partiallyMerged.getFilesToAnalyze()).containsExactly(fileC1);
+    assertThat(fullyMergedFuture).isNotDone();
+
+    release.countDown();
+    fullyMergedFuture.get(5, TimeUnit.SECONDS);
+    partiallyMergedFuture.get(5, TimeUnit.SECONDS);
+
+    assertThat(ran).containsExactly(first, pending, partiallyMerged);
+  }
+
+  @Test
+  void shouldNotMergeIntoCanceledTask() throws Exception {
+    var release = new CountDownLatch(1);
+    List<AnalysisTask> ran = new CopyOnWriteArrayList<>();
+    underTest = newQueue(task -> {
+      ran.add(task);
+      awaitQuietly(release);
+    }, 1);
+
+    underTest.submit(newTask(FOLDER_1));
+    await().until(() -> !ran.isEmpty());
+
+    underTest.submit(new AnalysisTask(Set.of(openFile("file:///folder1/a.js", 1)), false, FOLDER_1, AnalysisPriority.INTERACTIVE)).cancel(false);
+    var newer = new AnalysisTask(Set.of(openFile("file:///folder1/a.js", 2)), false, FOLDER_1, AnalysisPriority.INTERACTIVE);
+    var newerFuture = underTest.submit(newer);
+    release.countDown();
+    newerFuture.get(5, TimeUnit.SECONDS);
+
+    assertThat(ran).hasSize(2).endsWith(newer);
+  }
+
+  @Test
+  void shouldPreemptRunningTaskOfFile() throws Exception {
+    List<AnalysisTask> ran = new CopyOnWriteArrayList<>();
+    underTest = newQueue(task -> {
+      ran.add(task);
+      await().until(task::isCanceled);
+    }, 2);
+
+    var running = new AnalysisTask(Set.of(openFile("file:///folder1/a.js")), false, FOLDER_1, AnalysisPriority.OPEN);
+    var other = new AnalysisTask(Set.of(openFile("file:///folder2/b.js")), false, FOLDER_2, AnalysisPriority.OPEN);
+    var runningFuture = underTest.submit(running);
+    underTest.submit(other);
+    await().until(() -> ran.size() == 2);
+
+    assertThat(underTest.preempt(URI.create("file:///folder1/a.js"))).containsExactly(running);
+
+    assertThat(runningFuture).isCancelled();
+    assertThat(other.isCanceled()).isFalse();
+    // Already canceled
+    assertThat(underTest.preempt(URI.create("file:///folder1/a.js"))).isEmpty();
+  }
+
+  @Test
+  void shouldReportThroughputOfCompletedTasks() throws Exception {
+    underTest = newQueue(task -> {
+    }, 1);
+
+    underTest.submit(new AnalysisTask(Set.of(openFile("file:///folder1/a.js"), openFile("file:///folder1/b.js")), false, FOLDER_1, AnalysisPriority.OPEN))
+      .get(5, TimeUnit.SECONDS);
+    underTest.submit(new AnalysisTask(Set.of(openFile("file:///folder1/c.js")), false, FOLDER_1, AnalysisPriority.OPEN))
+      .get(5, TimeUnit.SECONDS);
+
+    var status = underTest.getStatus();
+    assertThat(status.getPending()).isEmpty();
+    assertThat(status.getRunning()).isEmpty();
+    assertThat(status.getThroughput().getCompletedTasks()).isEqualTo(2);
+    assertThat(status.getThroughput().getAnalyzedFiles()).isEqualTo(3);
+    assertThat(status.getThroughput().getP95LatencyMs()).isGreaterThanOrEqualTo(status.getThroughput().getAverageLatencyMs());
+  }
+
+  @Test
+  void shouldReportPendingAndRunningTasks() {
+    var release = new CountDownLatch(1);
+    List<AnalysisTask> ran = new CopyOnWriteArrayList<>();
+    underTest = newQueue(task -> {
+      ran.add(task);
+      task.setPhase(AnalysisPhase.ENGINE_ANALYSIS);
+      awaitQuietly(release);
+    }, 1);
+
+    underTest.submit(new AnalysisTask(Set.of(openFile("file:///folder1/running.js")), false, FOLDER_1, AnalysisPriority.OPEN));
+    await().until(() -> !ran.isEmpty());
+    underTest.submit(new AnalysisTask(Set.of(openFile("file:///folder1/pending.js")), false, FOLDER_1, AnalysisPriority.BULK));
+
+    var status = underTest.getStatus();
+    release.countDown();
+
+    assertThat(status.getRunning()).hasSize(1);
+    assertThat(status.getRunning().get(0).getUris()).containsExactly("file:///folder1/running.js");
+    assertThat(status.getRunning().get(0).getPhase()).isEqualTo("Analyzing");
+    assertThat(status.getPending()).hasSize(1);
+    assertThat(status.getPending().get(0).getUris()).containsExactly("file:///folder1/pending.js");
+    assertThat(status.getPending().get(0).getPriority()).isEqualTo("BULK");
+    assertThat(status.getThroughput().getCompletedTasks()).isZero();
+  }
+
+  @Test
+  void shouldCancelPendingTasksOnShutdown() {
+    var release = new CountDownLatch(1);
+    underTest = newQueue(task -> awaitQuietly(release), 1);
+
+    var running = underTest.submit(newTask(FOLDER_1));
+    var pending = underTest.submit(newTask(FOLDER_1));
+    underTest.shutdown();
+    release.countDown();
+
+    assertThat(pending).isCancelled();
+    assertThat(running).isCancelled();
+    assertThat(underTest.submit(newTask(FOLDER_2))).isCancelled();
+  }
+
+  @Test
+  void shouldInterruptAndAwaitRunningWorkersOnShutdown() throws Exception {
+    var started = new CountDownLatch(1);
+    var interrupted = new AtomicBoolean();
+    var finished = new AtomicBoolean();
+    underTest = newQueue(task -> {
+      started.countDown();
+      try {
+        Thread.sleep(10_000);
+      } catch (InterruptedException e) {
+        interrupted.set(true);
+        Thread.currentThread().interrupt();
+      } finally {
+        finished.set(true);
+      }
+    }, 1);
+
+    underTest.submit(newTask(FOLDER_1));
+    assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+    underTest.shutdown();
+
+    assertThat(interrupted).isTrue();
+    assertThat(finished).isTrue();
+  }
+
+  @Test
+  void shouldStartNewWorkersWhenPoolGrows() throws Exception {
+    var bothStarted = new CountDownLatch(2);
+    underTest = newQueue(task -> {
+      bothStarted.countDown();
+      awaitQuietly(bothStarted);
+    }, 1);
+
+    var future1 = underTest.submit(newTask(FOLDER_1));
+    var future2 = underTest.submit(newTask(FOLDER_2));
+    underTest.setNbWorkers(2);
+
+    future1.get(5, TimeUnit.SECONDS);
+    future2.get(5, TimeUnit.SECONDS);
+  }
+
+  private static AnalysisTaskQueue newQueue(Consumer<AnalysisTask> runner, int nbWorkers) {
+    return new AnalysisTaskQueue(mock(LanguageClientLogger.class), runner, Utils.threadFactory("test worker", true), nbWorkers);
+  }
+
+  private static AnalysisTask newTask(URI lane) {
+    return newTask(lane, AnalysisPriority.OPEN);
+  }
+
+  private static AnalysisTask newTask(URI lane, AnalysisPriority priority) {
+    return new AnalysisTask(Set.of(), false, lane, priority);
+  }
+
+  private static VersionnedOpenFile openFile(String uri) {
+    return openFile(uri, 1);
+  }
+
+  private static VersionnedOpenFile openFile(String uri, int version) {
+    return new VersionnedOpenFile(URI.create(uri), "javascript", version, "");
+  }
+
+  private static void awaitQuietly(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -61,6 +61,7 @@ import org.sonarsource.sonarlint.ls.SonarLintExtendedLanguageClient.ShowRuleDesc
 import org.sonarsource.sonarlint.ls.connected.ProjectBindingManager;
 import org.sonarsource.sonarlint.ls.connected.ProjectBindingWrapper;
 import org.sonarsource.sonarlint.ls.connected.TaintVulnerabilitiesCache;
+import org.sonarsource.sonarlint.ls.file.OpenFilesCache;
 import org.sonarsource.sonarlint.ls.settings.ServerConnectionSettings;
 import org.sonarsource.sonarlint.ls.settings.SettingsManager;
 import org.sonarsource.sonarlint.ls.settings.WorkspaceSettings;
@@ -78,6 +79,7 @@ import static org.mockito.Mockito.when;
 import static org.sonarsource.sonarlint.ls.AnalysisScheduler.SONARLINT_SOURCE;
 import static org.sonarsource.sonarlint.ls.AnalysisScheduler.SONARQUBE_TAINT_SOURCE;
 import static org.sonarsource.sonarlint.ls.CommandManager.SONARLINT_BROWSE_TAINT_VULNERABILITY;
+import static org.sonarsource.sonarlint.ls.CommandManager.SONARLINT_FORCE_ANALYSIS;
 import static org.sonarsource.sonarlint.ls.CommandManager.SONARLINT_OPEN_RULE_DESCRIPTION_FROM_CODE_ACTION_COMMAND;
 import static org.sonarsource.sonarlint.ls.CommandManager.SONARLINT_SHOW_TAINT_VULNERABILITY_FLOWS;
 import static org.sonarsource.sonarlint.ls.CommandManager.SONARLINT_UPDATE_ALL_BINDINGS_COMMAND;
@@ -102,6 +104,7 @@ class CommandManagerTests {
   private SettingsManager mockSettingsManager;
   private SonarLintTelemetry mockTelemetry;
   private StandaloneEngineManager standaloneEngineManager;
+  private AnalysisScheduler mockAnalysisScheduler;
 
   @BeforeEach
   public void prepareMocks() {
@@ -119,7 +122,9 @@ class CommandManagerTests {
     standaloneEngineManager = mock(StandaloneEngineManager.class);
     when(standaloneEngineManager.getOrCreateStandaloneEngine()).thenReturn(mockStandaloneEngine);
     mockTelemetry = mock(SonarLintTelemetry.class);
-    underTest = new CommandManager(mockClient, mockSettingsManager, bindingManager, mockTelemetry, standaloneEngineManager, mockTaintVulnerabilitiesCache, issuesCache);
+    mockAnalysisScheduler = mock(AnalysisScheduler.class);
+    underTest = new CommandManager(mockClient, mockSettingsManager, bindingManager, mockTelemetry, standaloneEngineManager, mockTaintVulnerabilitiesCache, issuesCache,
+      mock(OpenFilesCache.class), mockAnalysisScheduler);
   }
 
   @Test
@@ -152,6 +157,46 @@ class CommandManagerTests {
     assertThat(codeActions).isEmpty();
   }
 
+  @Test
+  void suggestForcedAnalysisForLargeFile() {
+    var d = new Diagnostic(FAKE_RANGE, "Too large", DiagnosticSeverity.Information, SONARLINT_SOURCE, DiagnosticPublisher.LARGE_FILE_CODE);
+
+    var codeActions = underTest.computeCodeActions(new CodeActionParams(FAKE_TEXT_DOCUMENT, FAKE_RANGE,
+      new CodeActionContext(List.of(d))), NOP_CANCEL_TOKEN);
+
+    assertThat(codeActions).hasSize(1);
+    var command = codeActions.get(0).getRight().getCommand();
+    assertThat(command.getCommand()).isEqualTo(SONARLINT_FORCE_ANALYSIS);
+    assertThat(command.getArguments()).containsExactly(FILE_URI);
+  }
+
+  @Test
+  void suggestForcedAnalysisForSkippedFile() {
+    var d = new Diagnostic(FAKE_RANGE, "Minified", DiagnosticSeverity.Information, SONARLINT_SOURCE, DiagnosticPublisher.SKIPPED_FILE_CODE);
+
+    var codeActions = underTest.computeCodeActions(new CodeActionParams(FAKE_TEXT_DOCUMENT, FAKE_RANGE,
+      new CodeActionContext(List.of(d))), NOP_CANCEL_TOKEN);
+
+    assertThat(codeActions).extracting(c -> c.getRight().getCommand().getCommand()).containsExactly(SONARLINT_FORCE_ANALYSIS);
+  }
+
+  @Test
+  void noCodeActionForHiddenIssuesSummary() {
+    var d = new Diagnostic(FAKE_RANGE, "3 more issues not shown", DiagnosticSeverity.Information, SONARLINT_SOURCE, DiagnosticPublisher.HIDDEN_ISSUES_CODE);
+
+    var codeActions = underTest.computeCodeActions(new CodeActionParams(FAKE_TEXT_DOCUMENT, FAKE_RANGE,
+      new CodeActionContext(List.of(d))), NOP_CANCEL_TOKEN);
+
+    assertThat(codeActions).isEmpty();
+  }
+
+  @Test
+  void forceAnalysis() {
+    underTest.executeCommand(new ExecuteCommandParams(SONARLINT_FORCE_ANALYSIS, List.of(new JsonPrimitive(FILE_URI))), NOP_CANCEL_TOKEN);
+
+    verify(mockAnalysisScheduler).forceAnalysis(URI.create(FILE_URI));
+  }
+
   @Test
   void noDisableRuleForBoundProject() {
     when(bindingManager.getBinding(URI.create(FILE_URI))).thenReturn(Optional.of(mockBinding));
@@ -189,8 +234,6 @@ class CommandManagerTests {
     var d = new Diagnostic(FAKE_RANGE, "Foo", DiagnosticSeverity.Error, SONARLINT_SOURCE, "XYZ");
 
     var issue = mock(Issue.class);
-    var versionnedIssue = new VersionnedIssue(issue, 1);
-    when(issuesCache.getIssueForDiagnostic(any(URI.class), eq(d))).thenReturn(Optional.of(versionnedIssue));
 
     var textEdit = mock(TextEdit.class);
     when(textEdit.newText()).thenReturn("");
@@ -204,6 +247,8 @@ class CommandManagerTests {
     when(fix.message()).thenReturn("Fix the issue!");
     when(fix.inputFileEdits()).thenReturn(List.of(edit));
     when(issue.quickFixes()).thenReturn(List.of(fix));
+    var versionnedIssue = new VersionnedIssue(issue, 1);
+    when(issuesCache.getIssueForDiagnostic(any(URI.class), eq(d))).thenReturn(Optional.of(versionnedIssue));
 
     var codeActions = underTest.computeCodeActions(new CodeActionParams(FAKE_TEXT_DOCUMENT, FAKE_RANGE,
       new CodeActionContext(List.of(d))), NOP_CANCEL_TOKEN);
@@ -256,8 +301,8 @@ class CommandManagerTests {
     var flow = mock(Flow.class);
     var flows = List.of(flow);
     var issue = mock(Issue.class);
-    var versionnedIssue = new VersionnedIssue(issue, 1);
     when(issue.flows()).thenReturn(flows);
+    var versionnedIssue = new VersionnedIssue(issue, 1);
     when(issuesCache.getIssueForDiagnostic(any(URI.class), eq(d))).thenReturn(Optional.of(versionnedIssue));
 
     var codeActions = underTest.computeCodeActions(new CodeActionParams(FAKE_TEXT_DOCUMENT, FAKE_RANGE,
@@ -0,0 +1,249 @@
+/*
+ * SonarLint Language Server
+ * Copyright (C) 2009-2022 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.ls;
+
+import java.lang.reflect.Modifier;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Objects;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.junit.jupiter.api.Test;
+import org.sonarsource.sonarlint.core.analysis.api.ClientInputFile;
+import org.sonarsource.sonarlint.core.analysis.api.Flow;
+import org.sonarsource.sonarlint.core.analysis.api.QuickFix;
+import org.sonarsource.sonarlint.core.analysis.api.TextRange;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.Issue;
+import org.sonarsource.sonarlint.ls.IssuesCache.VersionnedIssue;
+import org.sonarsource.sonarlint.ls.file.VersionnedOpenFile;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class CompactIssueTests {
+
+  private static final ClientInputFile INPUT_FILE = mock(ClientInputFile.class);
+
+  @Test
+  void copyIssueAttributes() {
+    var compact = CompactIssue.of(new EngineIssue(new String("java:S1"), "Message", new TextRange(3, 4, 5, 6), List.of(), List.of()));
+
+    assertThat(compact.getRuleKey()).isEqualTo("java:S1").isSameAs("java:S1".intern());
+    assertThat(compact.getSeverity()).isEqualTo("MAJOR");
+    assertThat(compact.getType()).isEqualTo("CODE_SMELL");
+    assertThat(compact.getMessage()).isEqualTo("Message");
+    assertThat(compact.getStartLine()).isEqualTo(3);
+    assertThat(compact.getStartLineOffset()).isEqualTo(4);
+    assertThat(compact.getEndLine()).isEqualTo(5);
+    assertThat(compact.getEndLineOffset()).isEqualTo(6);
+    assertThat(compact.getTextRange()).isNotNull();
+    assertThat(CompactIssue.of(compact)).isSameAs(compact);
+  }
+
+  @Test
+  void copyFileLevelIssue() {
+    var compact = CompactIssue.of(new EngineIssue("java:S1", "Message", null, List.of(), List.of()));
+
+    assertThat(compact.getStartLine()).isNull();
+    assertThat(compact.getStartLineOffset()).isNull();
+    assertThat(compact.getEndLine()).isNull();
+    assertThat(compact.getEndLineOffset()).isNull();
+    assertThat(compact.getTextRange()).isNull();
+  }
+
+  @Test
+  void onlyRetainDetailsOfIssuesWithFlowsOrQuickFixes() {
+    var flow = mock(Flow.class);
+    var quickFix = mock(QuickFix.class);
+
+    var withoutDetails = CompactIssue.of(new EngineIssue("java:S1", "Message", new TextRange(1, 0, 1, 1), List.of(), List.of()));
+    var withFlows = CompactIssue.of(new EngineIssue("java:S1", "Message", new TextRange(1, 0, 1, 1), List.of(flow), List.of()));
+    var withQuickFixes = CompactIssue.of(new EngineIssue("java:S1", "Message", new TextRange(1, 0, 1, 1), List.of(), List.of(quickFix)));
+
+    assertThat(withoutDetails.getInputFile()).isNull();
+    assertThat(withoutDetails.flows()).isEmpty();
+    assertThat(withoutDetails.quickFixes()).isEmpty();
+    assertThat(withFlows.getInputFile()).isSameAs(INPUT_FILE);
+    assertThat(withFlows.flows()).containsExactly(flow);
+    assertThat(withQuickFixes.getInputFile()).isSameAs(INPUT_FILE);
+    assertThat(withQuickFixes.quickFixes()).containsExactly(quickFix);
+  }
+
+  @Test
+  void storeCompactCopiesOfEngineIssues() {
+    var issuesCache = new IssuesCache();
+    var file = new VersionnedOpenFile(URI.create("file:///Foo.java"), "java", 1, "");
+    issuesCache.analysisStarted(file);
+    for (var i = 0; i < 100; i++) {
+      issuesCache.reportIssue(file, engineIssue(i));
+    }
+    issuesCache.analysisSucceeded(file);
+
+    var issues = issuesCache.get(file.getUri()).values().stream().map(VersionnedIssue::getIssue).collect(toList());
+    assertThat(issues).hasSize(100).allSatisfy(issue -> {
+      assertThat(issue).isInstanceOf(CompactIssue.class);
+      // Neither the engine issue nor the analyzed content is retained
+      assertThat(issue.getInputFile()).isNull();
+      assertThat(issue.getRuleKey()).isSameAs(("java:S" + (issue.getStartLine() - 1) % 50).intern());
+    });
+  }
+
+  @Test
+  void flattenIssuesOfCompletedAnalysis() throws Exception {
+    var issueCount = 1000;
+    var issuesCache = new IssuesCache();
+    var file = new VersionnedOpenFile(URI.create("file:///Foo.java"), "java", 1, "");
+    issuesCache.analysisStarted(file);
+    for (var i = 0; i < issueCount; i++) {
+      issuesCache.reportIssue(file, engineIssue(i));
+    }
+    issuesCache.analysisSucceeded(file);
+
+    var issues = issuesCache.get(file.getUri());
+    assertThat(issues).isInstanceOf(IssuesCache.CompactIssues.class).hasSize(issueCount);
+    // Only the id and the message of each issue are objects of their own, rather than an issue, its wrapper and its id
+    assertThat(countReachableObjects(issues)).isLessThanOrEqualTo(2 * issueCount + 100);
+  }
+
+  /**
+   * Counts strings and other JDK objects without their internals, and walks through arrays and objects of the language server
+   */
+  private static int countReachableObjects(Object root) throws IllegalAccessException {
+    var visited = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+    var toVisit = new ArrayDeque<>(List.of(root));
+    while (!toVisit.isEmpty()) {
+      var object = toVisit.pop();
+      if (!visited.add(object)) {
+        continue;
+      }
+      var type = object.getClass();
+      if (type.isArray()) {
+        if (!type.getComponentType().isPrimitive()) {
+          Arrays.stream((Object[]) object).filter(Objects::nonNull).forEach(toVisit::push);
+        }
+        continue;
+      }
+      for (var c = type; c != null && c.getName().startsWith("org.sonarsource.sonarlint.ls."); c = c.getSuperclass()) {
+        for (var field : c.getDeclaredFields()) {
+          if (!Modifier.isStatic(field.getModifiers()) && !field.getType().isPrimitive()) {
+            field.setAccessible(true);
+            var value = field.get(object);
+            if (value != null) {
+              toVisit.push(value);
+            }
+          }
+        }
+      }
+    }
+    return visited.size();
+  }
+
+  private static Issue engineIssue(int i) {
+    // Engine creates a new rule key string for each issue
+    return new EngineIssue(new String("java:S" + (i % 50)), "Message " + i, new TextRange(i + 1, 200, i + 1, 300), List.of(), List.of());
+  }
+
+  private static class EngineIssue implements Issue {
+    private final String ruleKey;
+    private final String message;
+    @CheckForNull
+    private final TextRange textRange;
+    private final List<Flow> flows;
+    private final List<QuickFix> quickFixes;
+
+    private EngineIssue(String ruleKey, String message, @Nullable TextRange textRange, List<Flow> flows, List<QuickFix> quickFixes) {
+      this.ruleKey = ruleKey;
+      this.message = message;
+      this.textRange = textRange;
+      this.flows = flows;
+      this.quickFixes = quickFixes;
+    }
+
+    @Override
+    public String getSeverity() {
+      return "MAJOR";
+    }
+
+    @Override
+    public String getType() {
+      return "CODE_SMELL";
+    }
+
+    @Override
+    public String getMessage() {
+      return message;
+    }
+
+    @Override
+    public String getRuleKey() {
+      return ruleKey;
+    }
+
+    @CheckForNull
+    @Override
+    public Integer getStartLine() {
+      return textRange == null ? null : textRange.getStartLine();
+    }
+
+    @CheckForNull
+    @Override
+    public Integer getStartLineOffset() {
+      return textRange == null ? null : textRange.getStartLineOffset();
+    }
+
+    @CheckForNull
+    @Override
+    public Integer getEndLine() {
+      return textRange == null ? null : textRange.getEndLine();
+    }
+
+    @CheckForNull
+    @Override
+    public Integer getEndLineOffset() {
+      return textRange == null ? null : textRange.getEndLineOffset();
+    }
+
+    @Override
+    public List<Flow> flows() {
+      return flows;
+    }
+
+    @Override
+    public ClientInputFile getInputFile() {
+      return INPUT_FILE;
+    }
+
+    @CheckForNull
+    @Override
+    public TextRange getTextRange() {
+      return textRange;
+    }
+
+    @Override
+    public List<QuickFix> quickFixes() {
+      return quickFixes;
+    }
+  }
+}
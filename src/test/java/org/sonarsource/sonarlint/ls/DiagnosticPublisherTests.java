@@ -20,22 +20,40 @@
 package org.sonarsource.sonarlint.ls;
 
 import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import org.eclipse.lsp4j.Diagnostic;
 import org.eclipse.lsp4j.DiagnosticSeverity;
 import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.PublishDiagnosticsParams;
 import org.eclipse.lsp4j.Range;
+import org.eclipse.lsp4j.TextDocumentContentChangeEvent;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.sonarsource.sonarlint.core.client.api.common.analysis.Issue;
 import org.sonarsource.sonarlint.ls.IssuesCache.VersionnedIssue;
 import org.sonarsource.sonarlint.ls.connected.TaintVulnerabilitiesCache;
 import org.sonarsource.sonarlint.ls.file.VersionnedOpenFile;
+import org.sonarsource.sonarlint.ls.metrics.AnalysisMetrics;
+import org.sonarsource.sonarlint.ls.settings.AnalysisSettings;
+import org.sonarsource.sonarlint.ls.settings.PreFilterSettings;
+import org.sonarsource.sonarlint.ls.settings.WorkspaceSettings;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.entry;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -46,12 +64,131 @@ class DiagnosticPublisherTests {
   private DiagnosticPublisher underTest;
   private IssuesCache issuesCache;
   private SonarLintExtendedLanguageClient languageClient;
+  private final AtomicLong nanoClock = new AtomicLong();
+  private AnalysisMetrics metrics;
 
   @BeforeEach
   public void init() {
     issuesCache = new IssuesCache();
     languageClient = mock(SonarLintExtendedLanguageClient.class);
-    underTest = new DiagnosticPublisher(languageClient, new TaintVulnerabilitiesCache(), issuesCache);
+    metrics = new AnalysisMetrics();
+    underTest = new DiagnosticPublisher(languageClient, new TaintVulnerabilitiesCache(), issuesCache, metrics, 100, nanoClock::get);
+  }
+
+  @AfterEach
+  public void stop() {
+    underTest.shutdown();
+  }
+
+  @Test
+  void coalescePublicationsWhileStreaming() {
+    var uri = URI.create("file://foo");
+    var versionnedOpenFile = new VersionnedOpenFile(uri, null, 1, null);
+    issuesCache.analysisStarted(versionnedOpenFile);
+
+    issuesCache.reportIssue(versionnedOpenFile, mockIssue(0));
+    underTest.publishDiagnosticsWhileStreaming(uri);
+    issuesCache.reportIssue(versionnedOpenFile, mockIssue(1));
+    underTest.publishDiagnosticsWhileStreaming(uri);
+    issuesCache.reportIssue(versionnedOpenFile, mockIssue(2));
+    underTest.publishDiagnosticsWhileStreaming(uri);
+    verify(languageClient, times(1)).publishDiagnostics(any());
+
+    // Deferred to the end of the window
+    await().atMost(1, TimeUnit.SECONDS).untilAsserted(() -> verify(languageClient, times(2)).publishDiagnostics(any()));
+
+    nanoClock.addAndGet(TimeUnit.MILLISECONDS.toNanos(200));
+    issuesCache.reportIssue(versionnedOpenFile, mockIssue(3));
+    underTest.publishDiagnosticsWhileStreaming(uri);
+    verify(languageClient, times(3)).publishDiagnostics(any());
+  }
+
+  @Test
+  void finalPublicationSupersedesDeferredOne() {
+    var uri = URI.create("file://foo");
+    var versionnedOpenFile = new VersionnedOpenFile(uri, null, 1, null);
+    issuesCache.analysisStarted(versionnedOpenFile);
+
+    issuesCache.reportIssue(versionnedOpenFile, mockIssue(0));
+    underTest.publishDiagnosticsWhileStreaming(uri);
+    issuesCache.reportIssue(versionnedOpenFile, mockIssue(1));
+    underTest.publishDiagnosticsWhileStreaming(uri);
+    issuesCache.analysisSucceeded(versionnedOpenFile);
+    underTest.publishDiagnostics(uri);
+    verify(languageClient, times(2)).publishDiagnostics(any());
+
+    await().during(300, TimeUnit.MILLISECONDS).atMost(1, TimeUnit.SECONDS)
+      .untilAsserted(() -> verify(languageClient, times(2)).publishDiagnostics(any()));
+  }
+
+  @Test
+  void reportIssuesWhileDeferredPublicationRuns() {
+    var publisher = new DiagnosticPublisher(languageClient, new TaintVulnerabilitiesCache(), issuesCache, metrics, 1, nanoClock::get);
+    var publishedSizes = new CopyOnWriteArrayList<Integer>();
+    doAnswer(invocation -> publishedSizes.add(invocation.<PublishDiagnosticsParams>getArgument(0).getDiagnostics().size()))
+      .when(languageClient).publishDiagnostics(any());
+    var uri = URI.create("file://foo");
+    var versionnedOpenFile = new VersionnedOpenFile(uri, null, 1, null);
+    var reported = 0;
+    try {
+      issuesCache.analysisStarted(versionnedOpenFile);
+      // Keep reporting until deferred publications ran concurrently
+      while (reported < 2_000 || publishedSizes.size() < 3) {
+        issuesCache.reportIssue(versionnedOpenFile, mockIssue(reported));
+        reported++;
+        publisher.publishDiagnosticsWhileStreaming(uri);
+      }
+      issuesCache.analysisSucceeded(versionnedOpenFile);
+      publisher.publishDiagnostics(uri);
+    } finally {
+      publisher.shutdown();
+    }
+
+    // Each publication is a consistent view of the issues reported so far
+    assertThat(publishedSizes).hasSizeGreaterThan(2).isSorted();
+    assertThat(publishedSizes.get(publishedSizes.size() - 1)).isEqualTo(reported);
+  }
+
+  @Test
+  void throttlePublicationsPerFile() {
+    underTest.publishDiagnosticsWhileStreaming(URI.create("file://foo"));
+    underTest.publishDiagnosticsWhileStreaming(URI.create("file://bar"));
+
+    verify(languageClient, times(2)).publishDiagnostics(any());
+  }
+
+  @Test
+  void suppressPublicationOfSameDiagnostics() {
+    var uri = URI.create("file://foo");
+    var version1 = new VersionnedOpenFile(uri, null, 1, null);
+    issuesCache.analysisStarted(version1);
+    issuesCache.reportIssue(version1, mockIssue(0));
+    issuesCache.analysisSucceeded(version1);
+    underTest.publishDiagnostics(uri);
+
+    // Same issue found again
+    var version2 = new VersionnedOpenFile(uri, null, 2, null);
+    issuesCache.analysisStarted(version2);
+    issuesCache.reportIssue(version2, mockIssue(0));
+    issuesCache.analysisSucceeded(version2);
+    underTest.publishDiagnostics(uri);
+
+    verify(languageClient, times(1)).publishDiagnostics(any());
+    assertThat(metrics.getCounter(AnalysisMetrics.PUBLICATIONS_SENT)).isEqualTo(1);
+    assertThat(metrics.getCounter(AnalysisMetrics.PUBLICATIONS_SUPPRESSED)).isEqualTo(1);
+
+    var version3 = new VersionnedOpenFile(uri, null, 3, null);
+    issuesCache.analysisStarted(version3);
+    issuesCache.reportIssue(version3, mockIssue(1));
+    issuesCache.analysisSucceeded(version3);
+    underTest.publishDiagnostics(uri);
+
+    verify(languageClient, times(2)).publishDiagnostics(any());
+    assertThat(metrics.getCounter(AnalysisMetrics.PUBLICATIONS_SENT)).isEqualTo(2);
+
+    underTest.didClose(uri);
+    underTest.publishDiagnostics(uri);
+    verify(languageClient, times(3)).publishDiagnostics(any());
   }
 
   @Test
@@ -70,18 +207,20 @@ class DiagnosticPublisherTests {
     var id = "id";
     var issue = mock(Issue.class);
     when(issue.getStartLine()).thenReturn(1);
-    when(issue.getSeverity()).thenReturn("BLOCKER");
+    when(issue.getStartLineOffset()).thenReturn(0);
+    when(issue.getEndLine()).thenReturn(1);
+    when(issue.getEndLineOffset()).thenReturn(1);
     when(issue.getMessage()).thenReturn("Do this, don't do that");
-    var versionnedIssue = new VersionnedIssue(issue, 1);
-    assertThat(convert(entry(id, versionnedIssue)).getSeverity()).isEqualTo(DiagnosticSeverity.Warning);
+    when(issue.getSeverity()).thenReturn("BLOCKER");
+    assertThat(convert(entry(id, new VersionnedIssue(issue, 1))).getSeverity()).isEqualTo(DiagnosticSeverity.Warning);
     when(issue.getSeverity()).thenReturn("CRITICAL");
-    assertThat(convert(entry(id, versionnedIssue)).getSeverity()).isEqualTo(DiagnosticSeverity.Warning);
+    assertThat(convert(entry(id, new VersionnedIssue(issue, 1))).getSeverity()).isEqualTo(DiagnosticSeverity.Warning);
     when(issue.getSeverity()).thenReturn("MAJOR");
-    assertThat(convert(entry(id, versionnedIssue)).getSeverity()).isEqualTo(DiagnosticSeverity.Warning);
+    assertThat(convert(entry(id, new VersionnedIssue(issue, 1))).getSeverity()).isEqualTo(DiagnosticSeverity.Warning);
     when(issue.getSeverity()).thenReturn("MINOR");
-    assertThat(convert(entry(id, versionnedIssue)).getSeverity()).isEqualTo(DiagnosticSeverity.Information);
+    assertThat(convert(entry(id, new VersionnedIssue(issue, 1))).getSeverity()).isEqualTo(DiagnosticSeverity.Information);
     when(issue.getSeverity()).thenReturn("INFO");
-    assertThat(convert(entry(id, versionnedIssue)).getSeverity()).isEqualTo(DiagnosticSeverity.Hint);
+    assertThat(convert(entry(id, new VersionnedIssue(issue, 1))).getSeverity()).isEqualTo(DiagnosticSeverity.Hint);
   }
 
   @Test
@@ -112,6 +251,189 @@ class DiagnosticPublisherTests {
     verify(languageClient, never()).showFirstSecretDetectionNotification();
   }
 
+  @Test
+  void publishLargeFileNoticeUntilHidden() {
+    var uri = URI.create("file://foo");
+    underTest.showLargeFileNotice(uri, 6 * 1024 * 1024);
+    underTest.publishDiagnostics(uri);
+    underTest.hideSkippedFileNotice(uri);
+    underTest.publishDiagnostics(uri);
+
+    var captor = ArgumentCaptor.forClass(PublishDiagnosticsParams.class);
+    verify(languageClient, times(2)).publishDiagnostics(captor.capture());
+    var notices = captor.getAllValues().get(0).getDiagnostics();
+    assertThat(notices).hasSize(1);
+    var notice = notices.get(0);
+    assertThat(notice.getSeverity()).isEqualTo(DiagnosticSeverity.Information);
+    assertThat(notice.getCode().getLeft()).isEqualTo(DiagnosticPublisher.LARGE_FILE_CODE);
+    assertThat(notice.getMessage()).isEqualTo("File is too large to be analyzed automatically (6144 KB)");
+    assertThat(captor.getAllValues().get(1).getDiagnostics()).isEmpty();
+  }
+
+  @Test
+  void publishSkippedFileNotice() {
+    var uri = URI.create("file://foo");
+    underTest.showSkippedFileNotice(uri, "minified");
+    underTest.publishDiagnostics(uri);
+
+    var captor = ArgumentCaptor.forClass(PublishDiagnosticsParams.class);
+    verify(languageClient).publishDiagnostics(captor.capture());
+    assertThat(captor.getValue().getDiagnostics())
+      .extracting(d -> d.getCode().getLeft(), Diagnostic::getMessage)
+      .containsExactly(tuple(DiagnosticPublisher.SKIPPED_FILE_CODE, "File looks minified, it is not analyzed automatically"));
+  }
+
+  @Test
+  void reuseConvertedDiagnosticsOfFileWithThousandIssues() {
+    underTest.shutdown();
+    issuesCache = spy(issuesCache);
+    underTest = new DiagnosticPublisher(languageClient, new TaintVulnerabilitiesCache(), issuesCache, metrics, 100, nanoClock::get);
+    var uri = URI.create("file://foo");
+    var versionnedOpenFile = new VersionnedOpenFile(uri, null, 1, null);
+    issuesCache.analysisStarted(versionnedOpenFile);
+    for (var i = 0; i < 1000; i++) {
+      issuesCache.reportIssue(versionnedOpenFile, mockIssue(i));
+    }
+    issuesCache.analysisSucceeded(versionnedOpenFile);
+
+    for (var i = 0; i < 101; i++) {
+      underTest.publishDiagnostics(uri);
+    }
+
+    var captor = ArgumentCaptor.forClass(PublishDiagnosticsParams.class);
+    verify(languageClient, times(1)).publishDiagnostics(captor.capture());
+    var first = captor.getValue().getDiagnostics();
+    assertThat(first).hasSize(1000);
+    assertThat(metrics.getCounter(AnalysisMetrics.PUBLICATIONS_SUPPRESSED)).isEqualTo(100);
+    // Issues are only read and converted by the first publication
+    verify(issuesCache, times(1)).get(uri);
+
+    issuesCache.analysisStarted(versionnedOpenFile);
+    issuesCache.reportIssue(versionnedOpenFile, mockIssue(1000));
+    underTest.publishDiagnostics(uri);
+
+    verify(languageClient, times(2)).publishDiagnostics(captor.capture());
+    assertThat(captor.getValue().getDiagnostics()).hasSize(1).isNotSameAs(first);
+  }
+
+  private static Issue mockIssue(int line) {
+    return mockIssue(line, "MAJOR");
+  }
+
+  private static Issue mockIssue(int line, String severity) {
+    var issue = mock(Issue.class);
+    when(issue.getRuleKey()).thenReturn("java:S" + line);
+    when(issue.getSeverity()).thenReturn(severity);
+    when(issue.getMessage()).thenReturn("Issue " + line);
+    when(issue.getStartLine()).thenReturn(line + 1);
+    when(issue.getStartLineOffset()).thenReturn(0);
+    when(issue.getEndLine()).thenReturn(line + 1);
+    when(issue.getEndLineOffset()).thenReturn(1);
+    return issue;
+  }
+
+  @Test
+  void limitPublishedDiagnosticsBySeverityAndProximityToLastEdit() {
+    var uri = URI.create("file://foo");
+    var versionnedOpenFile = new VersionnedOpenFile(uri, null, 1, null);
+    issuesCache.analysisStarted(versionnedOpenFile);
+    issuesCache.reportIssue(versionnedOpenFile, mockIssue(0, "INFO"));
+    issuesCache.reportIssue(versionnedOpenFile, mockIssue(10, "MINOR"));
+    issuesCache.reportIssue(versionnedOpenFile, mockIssue(20, "MAJOR"));
+    issuesCache.reportIssue(versionnedOpenFile, mockIssue(30, "MAJOR"));
+    issuesCache.reportIssue(versionnedOpenFile, mockIssue(40, "MAJOR"));
+    issuesCache.analysisSucceeded(versionnedOpenFile);
+    setMaxDiagnosticsPerFile(3);
+
+    underTest.publishDiagnostics(uri);
+    underTest.didChange(uri, List.of(new TextDocumentContentChangeEvent(new Range(new Position(38, 0), new Position(38, 0)), "foo")));
+    underTest.publishDiagnostics(uri);
+
+    var captor = ArgumentCaptor.forClass(PublishDiagnosticsParams.class);
+    verify(languageClient, times(2)).publishDiagnostics(captor.capture());
+    assertThat(captor.getAllValues().get(0).getDiagnostics())
+      .extracting(d -> d.getRange().getStart().getLine(), d -> d.getCode().getLeft())
+      .containsExactly(tuple(0, DiagnosticPublisher.HIDDEN_ISSUES_CODE), tuple(20, "java:S20"), tuple(30, "java:S30"));
+    assertThat(captor.getAllValues().get(0).getDiagnostics().get(0).getMessage()).isEqualTo("3 more issues not shown, this file has too many issues");
+    assertThat(captor.getAllValues().get(1).getDiagnostics())
+      .extracting(d -> d.getRange().getStart().getLine(), d -> d.getCode().getLeft())
+      .containsExactly(tuple(0, DiagnosticPublisher.HIDDEN_ISSUES_CODE), tuple(30, "java:S30"), tuple(40, "java:S40"));
+    assertThat(underTest.getAllDiagnostics(uri)).hasSize(5);
+  }
+
+  @Test
+  void republishShiftedDiagnosticsWithoutIssuesOfRunningAnalysis() {
+    var uri = URI.create("file://foo");
+    var version1 = new VersionnedOpenFile(uri, null, 1, null);
+    issuesCache.analysisStarted(version1);
+    issuesCache.reportIssue(version1, mockIssue(0));
+    issuesCache.reportIssue(version1, mockIssue(10));
+    issuesCache.reportIssue(version1, mockIssue(20));
+    issuesCache.analysisSucceeded(version1);
+    underTest.publishDiagnostics(uri);
+    var version2 = new VersionnedOpenFile(uri, null, 2, null);
+    issuesCache.analysisStarted(version2);
+    issuesCache.reportIssue(version2, mockIssue(5));
+
+    // Edit after the last diagnostic, nothing to republish
+    underTest.didChange(uri, List.of(new TextDocumentContentChangeEvent(new Range(new Position(25, 0), new Position(25, 0)), "foo")));
+    verify(languageClient, times(1)).publishDiagnostics(any());
+
+    underTest.didChange(uri, List.of(new TextDocumentContentChangeEvent(new Range(new Position(10, 0), new Position(11, 0)), "")));
+
+    var captor = ArgumentCaptor.forClass(PublishDiagnosticsParams.class);
+    verify(languageClient, times(2)).publishDiagnostics(captor.capture());
+    assertThat(captor.getValue().getDiagnostics())
+      .extracting(d -> d.getRange().getStart().getLine(), d -> d.getCode().getLeft())
+      .containsExactly(tuple(0, "java:S0"), tuple(19, "java:S20"));
+    assertThat(captor.getAllValues().get(0).getDiagnostics()).extracting(d -> d.getRange().getStart().getLine()).containsExactly(0, 10, 20);
+  }
+
+  @Test
+  void countSummaryOfHiddenIssuesInLimit() {
+    var uri = URI.create("file://foo");
+    var versionnedOpenFile = new VersionnedOpenFile(uri, null, 1, null);
+    issuesCache.analysisStarted(versionnedOpenFile);
+    issuesCache.reportIssue(versionnedOpenFile, mockIssue(0));
+    issuesCache.reportIssue(versionnedOpenFile, mockIssue(1));
+    issuesCache.analysisSucceeded(versionnedOpenFile);
+    setMaxDiagnosticsPerFile(1);
+
+    underTest.publishDiagnostics(uri);
+    underTest.publishDiagnostics(uri);
+
+    var captor = ArgumentCaptor.forClass(PublishDiagnosticsParams.class);
+    verify(languageClient).publishDiagnostics(captor.capture());
+    assertThat(captor.getValue().getDiagnostics())
+      .extracting(Diagnostic::getMessage)
+      .containsExactly("2 more issues not shown, this file has too many issues");
+    assertThat(metrics.getCounter(AnalysisMetrics.PUBLICATIONS_SUPPRESSED)).isEqualTo(1);
+  }
+
+  @Test
+  void publishAllDiagnosticsWithoutLimit() {
+    var uri = URI.create("file://foo");
+    var versionnedOpenFile = new VersionnedOpenFile(uri, null, 1, null);
+    issuesCache.analysisStarted(versionnedOpenFile);
+    issuesCache.reportIssue(versionnedOpenFile, mockIssue(0));
+    issuesCache.reportIssue(versionnedOpenFile, mockIssue(1));
+    issuesCache.analysisSucceeded(versionnedOpenFile);
+    setMaxDiagnosticsPerFile(AnalysisSettings.NO_LIMIT);
+
+    underTest.publishDiagnostics(uri);
+
+    var captor = ArgumentCaptor.forClass(PublishDiagnosticsParams.class);
+    verify(languageClient).publishDiagnostics(captor.capture());
+    assertThat(captor.getValue().getDiagnostics()).hasSize(2);
+  }
+
+  private void setMaxDiagnosticsPerFile(int maxDiagnosticsPerFile) {
+    var analysisSettings = new AnalysisSettings(AnalysisSettings.DEFAULT_MIN_DEBOUNCE_MS, AnalysisSettings.DEFAULT_MAX_DEBOUNCE_MS, AnalysisSettings.AUTO,
+      AnalysisSettings.AUTO, AnalysisSettings.DEFAULT_BULK_CHUNK_SIZE, AnalysisSettings.DEFAULT_LARGE_FILE_SOFT_LIMIT_KB, AnalysisSettings.DEFAULT_LARGE_FILE_HARD_LIMIT_KB,
+      AnalysisSettings.DEFAULT_TRIGGER_MODE, AnalysisSettings.DEFAULT_IDLE_DELAY_MS, PreFilterSettings.DEFAULT, maxDiagnosticsPerFile);
+    underTest.onChange(null, new WorkspaceSettings(false, Map.of(), List.of(), List.of(), Map.of(), false, false, null, analysisSettings));
+  }
+
   private URI initWithOneSecretIssue() {
     var issue = mock(Issue.class);
     when(issue.getRuleKey()).thenReturn("secrets:123");
@@ -0,0 +1,271 @@
+/*
+ * SonarLint Language Server
+ * Copyright (C) 2009-2022 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.ls;
+
+import com.google.gson.JsonPrimitive;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+import org.eclipse.lsp4j.Diagnostic;
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.Range;
+import org.eclipse.lsp4j.TextDocumentContentChangeEvent;
+import org.junit.jupiter.api.Test;
+import org.sonarsource.sonarlint.core.client.api.common.analysis.Issue;
+import org.sonarsource.sonarlint.ls.file.VersionnedOpenFile;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class IssuesCacheTests {
+
+  private static final URI FILE_URI = URI.create("file:///foo.js");
+  private static final VersionnedOpenFile VERSION_1 = new VersionnedOpenFile(FILE_URI, "javascript", 1, "alert(1);");
+  private static final VersionnedOpenFile VERSION_2 = new VersionnedOpenFile(FILE_URI, "javascript", 2, "alert(2);");
+
+  private final IssuesCache underTest = new IssuesCache();
+
+  @Test
+  void shouldKeepPreviousIssuesWhenAnalysisIsCanceled() {
+    var previousIssue = mockIssue("javascript:S1", 1, "Previous");
+    underTest.analysisStarted(VERSION_1);
+    underTest.reportIssue(VERSION_1, previousIssue);
+    underTest.analysisSucceeded(VERSION_1);
+
+    underTest.analysisStarted(VERSION_2);
+    underTest.reportIssue(VERSION_2, mock(Issue.class));
+    underTest.reportIssue(VERSION_2, mock(Issue.class));
+    assertThat(underTest.count(FILE_URI)).isEqualTo(2);
+    underTest.analysisCanceled(VERSION_2);
+
+    assertThat(underTest.get(FILE_URI).values()).extracting(IssuesCacheTests::message).containsExactly("Previous");
+  }
+
+  @Test
+  void shouldKeepOutdatedIssuesOnlyForQuickFixes() {
+    var previousIssue = mockIssue("javascript:S1", 1, "Previous");
+    underTest.analysisStarted(VERSION_1);
+    underTest.reportIssue(VERSION_1, previousIssue);
+    underTest.analysisSucceeded(VERSION_1);
+
+    var outdatedIssue = mockIssue("javascript:S1", 1, "Outdated");
+    underTest.analysisStarted(VERSION_1);
+    underTest.reportIssue(VERSION_1, outdatedIssue);
+    var outdatedIssueId = underTest.get(FILE_URI).keySet().iterator().next();
+    underTest.analysisOutdated(VERSION_1);
+
+    assertThat(underTest.get(FILE_URI).values()).extracting(IssuesCacheTests::message).containsExactly("Previous");
+    var diagnostic = new Diagnostic();
+    diagnostic.setData(new JsonPrimitive(outdatedIssueId));
+    assertThat(underTest.getIssueForDiagnostic(FILE_URI, diagnostic)).map(IssuesCacheTests::message).contains("Outdated");
+
+    underTest.analysisStarted(VERSION_2);
+    underTest.analysisSucceeded(VERSION_2);
+
+    assertThat(underTest.get(FILE_URI)).isEmpty();
+    assertThat(underTest.getIssueForDiagnostic(FILE_URI, diagnostic)).isEmpty();
+  }
+
+  @Test
+  void shouldReuseIssuesWhenFingerprintIsUnchanged() {
+    var issue = mockIssue("javascript:S1", 1, "Boo");
+    underTest.analysisStarted(VERSION_1);
+    underTest.reportIssue(VERSION_1, issue);
+    underTest.analysisSucceeded(VERSION_1, 42L);
+    var issueId = underTest.get(FILE_URI).keySet().iterator().next();
+
+    var version3 = new VersionnedOpenFile(FILE_URI, "javascript", 3, "alert(1);");
+    assertThat(underTest.reuseIssuesIfUnchanged(version3, 43L)).isFalse();
+    assertThat(underTest.reuseIssuesIfUnchanged(version3, 42L)).isTrue();
+
+    assertThat(underTest.get(FILE_URI)).containsOnlyKeys(issueId);
+    assertThat(message(underTest.get(FILE_URI).get(issueId))).isEqualTo("Boo");
+    assertThat(underTest.get(FILE_URI).get(issueId).getDocumentVersion()).isEqualTo(3);
+  }
+
+  @Test
+  void shouldForgetFingerprintWhenIssuesAreCleared() {
+    underTest.analysisStarted(VERSION_1);
+    underTest.analysisSucceeded(VERSION_1, 42L);
+    underTest.clear(FILE_URI);
+
+    assertThat(underTest.reuseIssuesIfUnchanged(VERSION_1, 42L)).isFalse();
+
+    underTest.analysisStarted(VERSION_1);
+    underTest.analysisSucceeded(VERSION_1, 42L);
+    underTest.analysisStarted(VERSION_2);
+    underTest.analysisSucceeded(VERSION_2);
+
+    assertThat(underTest.reuseIssuesIfUnchanged(VERSION_1, 42L)).isFalse();
+  }
+
+  @Test
+  void shouldShiftIssuesAlongWithIncrementalChanges() {
+    var movedIssue = mockIssue(2, 4, 2, 10);
+    var deletedIssue = mockIssue(1, 0, 1, 3);
+    var fileLevelIssue = mock(Issue.class);
+    when(fileLevelIssue.getMessage()).thenReturn("File level");
+    underTest.analysisStarted(VERSION_1);
+    underTest.reportIssue(VERSION_1, movedIssue);
+    underTest.reportIssue(VERSION_1, deletedIssue);
+    underTest.reportIssue(VERSION_1, fileLevelIssue);
+    underTest.analysisSucceeded(VERSION_1, 42L);
+
+    var shifted = underTest.shiftRanges(FILE_URI, List.of(
+      new TextDocumentContentChangeEvent(new Range(new Position(0, 0), new Position(0, 3)), ""),
+      new TextDocumentContentChangeEvent(new Range(new Position(0, 0), new Position(0, 0)), "\n")));
+
+    assertThat(shifted).isTrue();
+    assertThat(underTest.get(FILE_URI).values()).extracting(IssuesCacheTests::message).containsOnly("Issue at line 2", "File level");
+    assertThat(underTest.get(FILE_URI).values()).extracting(IssuesCache.VersionnedIssue::getRange)
+      .containsOnly(new Range(new Position(2, 4), new Position(2, 10)), new Range(new Position(0, 0), new Position(0, 0)));
+    assertThat(underTest.get(FILE_URI).values()).extracting(IssuesCache.VersionnedIssue::getDocumentVersion).containsOnly(1);
+    // Deleted issue would be missing if the content went back to the analyzed one
+    assertThat(underTest.reuseIssuesIfUnchanged(VERSION_1, 42L)).isFalse();
+  }
+
+  @Test
+  void shouldNotShiftIssuesOnFullContentChange() {
+    underTest.analysisStarted(VERSION_1);
+    underTest.reportIssue(VERSION_1, mockIssue(1, 0, 1, 3));
+    underTest.analysisSucceeded(VERSION_1);
+
+    assertThat(underTest.shiftRanges(FILE_URI, List.of(new TextDocumentContentChangeEvent("")))).isFalse();
+    assertThat(underTest.count(FILE_URI)).isEqualTo(1);
+  }
+
+  private static Issue mockIssue(int startLine, int startLineOffset, int endLine, int endLineOffset) {
+    var issue = mock(Issue.class);
+    when(issue.getMessage()).thenReturn("Issue at line " + startLine);
+    when(issue.getStartLine()).thenReturn(startLine);
+    when(issue.getStartLineOffset()).thenReturn(startLineOffset);
+    when(issue.getEndLine()).thenReturn(endLine);
+    when(issue.getEndLineOffset()).thenReturn(endLineOffset);
+    return issue;
+  }
+
+  private static String message(IssuesCache.VersionnedIssue issue) {
+    return issue.getIssue().getMessage();
+  }
+
+  @Test
+  void contentHashOnlyDependsOnContent() {
+    var sameContent = new VersionnedOpenFile(FILE_URI, "javascript", 3, "alert(1);");
+
+    assertThat(sameContent.getContentHash()).isEqualTo(VERSION_1.getContentHash());
+    assertThat(VERSION_2.getContentHash()).isNotEqualTo(VERSION_1.getContentHash());
+  }
+
+  @Test
+  void shouldChangeGenerationWhenIssuesChange() {
+    assertThat(underTest.getGeneration(FILE_URI)).isZero();
+
+    underTest.analysisStarted(VERSION_1);
+    var started = underTest.getGeneration(FILE_URI);
+    underTest.reportIssue(VERSION_1, mock(Issue.class));
+    var reported = underTest.getGeneration(FILE_URI);
+    underTest.analysisSucceeded(VERSION_1, 42L);
+    var succeeded = underTest.getGeneration(FILE_URI);
+    assertThat(List.of(started, reported, succeeded)).doesNotHaveDuplicates().doesNotContain(0L);
+
+    assertThat(underTest.getGeneration(FILE_URI)).isEqualTo(succeeded);
+    underTest.reuseIssuesIfUnchanged(VERSION_2, 42L);
+    assertThat(underTest.getGeneration(FILE_URI)).isNotEqualTo(succeeded);
+
+    underTest.clear(FILE_URI);
+    assertThat(underTest.getGeneration(FILE_URI)).isZero();
+  }
+
+  @Test
+  void shouldGiveSameIdToSameIssueAcrossAnalyses() {
+    underTest.analysisStarted(VERSION_1);
+    underTest.reportIssue(VERSION_1, mockIssue("java:S1", 1, "Boo"));
+    underTest.analysisSucceeded(VERSION_1);
+    var firstIds = underTest.get(FILE_URI).keySet();
+
+    underTest.analysisStarted(VERSION_2);
+    underTest.reportIssue(VERSION_2, mockIssue("java:S1", 1, "Boo"));
+    underTest.analysisSucceeded(VERSION_2);
+
+    assertThat(underTest.get(FILE_URI).keySet()).isEqualTo(firstIds);
+  }
+
+  @Test
+  void shouldGiveDistinctIdsToDistinctIssues() {
+    underTest.analysisStarted(VERSION_1);
+    underTest.reportIssue(VERSION_1, mockIssue("java:S1", 1, "Boo"));
+    underTest.reportIssue(VERSION_1, mockIssue("java:S2", 1, "Boo"));
+    underTest.reportIssue(VERSION_1, mockIssue("java:S1", 2, "Boo"));
+    underTest.reportIssue(VERSION_1, mockIssue("java:S1", 1, "Foo"));
+    // Same rule, location and message
+    underTest.reportIssue(VERSION_1, mockIssue("java:S1", 1, "Boo"));
+    underTest.analysisSucceeded(VERSION_1);
+
+    var issues = underTest.get(FILE_URI);
+    assertThat(issues).hasSize(5);
+    issues.forEach((id, issue) -> {
+      var diagnostic = new Diagnostic();
+      diagnostic.setData(new JsonPrimitive(id));
+      assertThat(underTest.getIssueForDiagnostic(FILE_URI, diagnostic)).hasValueSatisfying(found -> {
+        assertThat(found.getRange()).isEqualTo(issue.getRange());
+        assertThat(found.getIssue().getMessage()).isEqualTo(issue.getIssue().getMessage());
+      });
+    });
+  }
+
+  @Test
+  void shouldReadInProgressIssuesWhileAnalysisReportsThem() throws Exception {
+    var issues = IntStream.range(0, 5_000).mapToObj(i -> mockIssue("java:S1", i + 1, "Boo")).collect(toList());
+    underTest.analysisStarted(VERSION_1);
+    var reporting = new AtomicBoolean(true);
+    var reader = Executors.newSingleThreadExecutor();
+    try {
+      var maxReadCount = reader.submit(() -> {
+        var max = 0L;
+        while (reporting.get()) {
+          max = Math.max(max, underTest.get(FILE_URI).values().stream().filter(i -> i.getIssue().getRuleKey() != null).count());
+        }
+        return max;
+      });
+      issues.forEach(issue -> underTest.reportIssue(VERSION_1, issue));
+      reporting.set(false);
+
+      assertThat(maxReadCount.get(10, TimeUnit.SECONDS)).isLessThanOrEqualTo(issues.size());
+    } finally {
+      reader.shutdownNow();
+    }
+  }
+
+  private static Issue mockIssue(String ruleKey, int line, String message) {
+    var issue = mock(Issue.class);
+    when(issue.getRuleKey()).thenReturn(ruleKey);
+    when(issue.getMessage()).thenReturn(message);
+    when(issue.getStartLine()).thenReturn(line);
+    when(issue.getStartLineOffset()).thenReturn(0);
+    when(issue.getEndLine()).thenReturn(line);
+    when(issue.getEndLineOffset()).thenReturn(3);
+    return issue;
+  }
+}
@@ -20,6 +20,7 @@
 package org.sonarsource.sonarlint.ls;
 
 
+import java.net.URI;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -27,6 +28,7 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.sonarsource.sonarlint.core.analysis.api.TextRange;
+import org.sonarsource.sonarlint.ls.file.VersionnedOpenFile;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -75,6 +77,21 @@ class LocalCodeFileTests {
     );
   }
 
+  @Test
+  void shouldJoinLinesOfContent() {
+    assertThat(underTest.content()).isEqualTo("First line\nSecond line\nThird line");
+  }
+
+  @Test
+  void shouldUseContentOfOpenFile() {
+    var openFile = new VersionnedOpenFile(URI.create("file:///foo.txt"), "plaintext", 1, "First line\r\nSecond line\r\n");
+    var codeFile = LocalCodeFile.from(openFile);
+
+    assertThat(codeFile.codeAt(range(1, 6, 2, 6))).isEqualTo("line\nSecond");
+    assertThat(codeFile.codeAt(range(3, 0, 3, 0))).isNull();
+    assertThat(codeFile.content()).isEqualTo("First line\nSecond line");
+  }
+
   private static TextRange range(int startLine, int startLineOffset, int endLine, int endLineOffset) {
     return new TextRange(startLine, startLineOffset, endLine, endLineOffset);
   }
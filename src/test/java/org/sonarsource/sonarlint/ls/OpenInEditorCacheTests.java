@@ -0,0 +1,129 @@
+/*
+ * SonarLint Language Server
+ * Copyright (C) 2009-2022 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.ls;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.eclipse.lsp4j.jsonrpc.ResponseErrorException;
+import org.eclipse.lsp4j.jsonrpc.messages.ResponseError;
+import org.eclipse.lsp4j.jsonrpc.messages.ResponseErrorCode;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.sonarsource.sonarlint.ls.SonarLintExtendedLanguageClient.FilterOpenInEditorParams;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OpenInEditorCacheTests {
+
+  private static final URI FILE_1 = URI.create("file:///foo1.js");
+  private static final URI FILE_2 = URI.create("file:///foo2.js");
+  private static final URI FILE_3 = URI.create("file:///foo3.js");
+  private final SonarLintExtendedLanguageClient mockClient = mock(SonarLintExtendedLanguageClient.class);
+  private final AtomicLong nanoClock = new AtomicLong();
+  private final OpenInEditorCache underTest = new OpenInEditorCache(mockClient, 1000, nanoClock::get);
+
+  @Test
+  void should_check_lone_file_right_away() {
+    when(mockClient.isOpenInEditor(FILE_1.toString())).thenReturn(CompletableFuture.completedFuture(true));
+
+    assertThat(underTest.isOpenInEditor(FILE_1)).isCompletedWithValue(true);
+    verify(mockClient, never()).filterOpenInEditor(any());
+  }
+
+  @Test
+  void should_check_files_opened_while_a_request_is_in_flight_in_one_request() throws Exception {
+    var isFile1OpenAnswer = new CompletableFuture<Boolean>();
+    when(mockClient.isOpenInEditor(FILE_1.toString())).thenReturn(isFile1OpenAnswer);
+    when(mockClient.filterOpenInEditor(any())).thenReturn(CompletableFuture.completedFuture(List.of(FILE_2.toString())));
+
+    var isFile1Open = underTest.isOpenInEditor(FILE_1);
+    var isFile2Open = underTest.isOpenInEditor(FILE_2);
+    var isFile3Open = underTest.isOpenInEditor(FILE_3);
+    assertThat(underTest.isOpenInEditor(FILE_2)).isSameAs(isFile2Open);
+    verify(mockClient, never()).filterOpenInEditor(any());
+
+    isFile1OpenAnswer.complete(false);
+
+    assertThat(isFile1Open.get(1, TimeUnit.SECONDS)).isFalse();
+    assertThat(isFile2Open.get(1, TimeUnit.SECONDS)).isTrue();
+    assertThat(isFile3Open.get(1, TimeUnit.SECONDS)).isFalse();
+    var captor = ArgumentCaptor.forClass(FilterOpenInEditorParams.class);
+    verify(mockClient).filterOpenInEditor(captor.capture());
+    assertThat(captor.getValue().getFileUris()).containsExactlyInAnyOrder(FILE_2.toString(), FILE_3.toString());
+    verify(mockClient, times(1)).isOpenInEditor(anyString());
+  }
+
+  @Test
+  void should_cache_answers_for_a_short_time() throws Exception {
+    when(mockClient.isOpenInEditor(FILE_1.toString())).thenReturn(CompletableFuture.completedFuture(true));
+
+    assertThat(underTest.isOpenInEditor(FILE_1).get(1, TimeUnit.SECONDS)).isTrue();
+    assertThat(underTest.isOpenInEditor(FILE_1)).isCompletedWithValue(true);
+    verify(mockClient, times(1)).isOpenInEditor(FILE_1.toString());
+
+    nanoClock.addAndGet(TimeUnit.SECONDS.toNanos(2));
+    assertThat(underTest.isOpenInEditor(FILE_1).get(1, TimeUnit.SECONDS)).isTrue();
+    verify(mockClient, times(2)).isOpenInEditor(FILE_1.toString());
+  }
+
+  @Test
+  void should_forget_answer_when_file_is_closed() throws Exception {
+    when(mockClient.isOpenInEditor(FILE_1.toString())).thenReturn(CompletableFuture.completedFuture(false));
+
+    assertThat(underTest.isOpenInEditor(FILE_1).get(1, TimeUnit.SECONDS)).isFalse();
+    underTest.didClose(FILE_1);
+    assertThat(underTest.isOpenInEditor(FILE_1).get(1, TimeUnit.SECONDS)).isFalse();
+
+    verify(mockClient, times(2)).isOpenInEditor(FILE_1.toString());
+  }
+
+  @Test
+  void should_fall_back_to_one_request_per_file_if_client_does_not_support_batch() throws Exception {
+    var unsupported = new CompletableFuture<List<String>>();
+    unsupported.completeExceptionally(new ResponseErrorException(new ResponseError(ResponseErrorCode.MethodNotFound, "Unsupported request", null)));
+    when(mockClient.filterOpenInEditor(any())).thenReturn(unsupported);
+    when(mockClient.isOpenInEditor(anyString())).thenReturn(CompletableFuture.completedFuture(true));
+    var isFile1OpenAnswer = new CompletableFuture<Boolean>();
+    when(mockClient.isOpenInEditor(FILE_1.toString())).thenReturn(isFile1OpenAnswer);
+
+    underTest.isOpenInEditor(FILE_1);
+    var isFile2Open = underTest.isOpenInEditor(FILE_2);
+    var isFile3Open = underTest.isOpenInEditor(FILE_3);
+    isFile1OpenAnswer.complete(true);
+    assertThat(isFile2Open.get(1, TimeUnit.SECONDS)).isTrue();
+    assertThat(isFile3Open.get(1, TimeUnit.SECONDS)).isTrue();
+
+    nanoClock.addAndGet(TimeUnit.SECONDS.toNanos(2));
+    CompletableFuture.allOf(underTest.isOpenInEditor(FILE_2), underTest.isOpenInEditor(FILE_3)).get(1, TimeUnit.SECONDS);
+
+    verify(mockClient, times(1)).filterOpenInEditor(any());
+    verify(mockClient, times(5)).isOpenInEditor(anyString());
+  }
+}
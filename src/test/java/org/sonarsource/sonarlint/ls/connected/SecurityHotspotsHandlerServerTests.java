@@ -45,6 +45,7 @@ import org.sonarsource.sonarlint.core.serverapi.hotspot.ServerHotspot;
 import org.sonarsource.sonarlint.ls.SonarLintExtendedLanguageClient;
 import org.sonarsource.sonarlint.ls.http.ApacheHttpClientProvider;
 import org.sonarsource.sonarlint.ls.log.LanguageClientLogger;
+import org.sonarsource.sonarlint.ls.settings.AnalysisSettings;
 import org.sonarsource.sonarlint.ls.settings.ServerConnectionSettings;
 import org.sonarsource.sonarlint.ls.settings.SettingsManager;
 import org.sonarsource.sonarlint.ls.settings.WorkspaceSettings;
@@ -162,7 +163,7 @@ class SecurityHotspotsHandlerServerTests {
     ServerConnectionSettings localhostTrustedConnection = new ServerConnectionSettings("myServer", TRUSTED_SERVER_URL, null, null, false, httpClientProvider);
     when(settingsManager.getCurrentSettings()).thenReturn(new WorkspaceSettings(true,
       Map.of("localhost", localhostTrustedConnection), null, null, null, false, false,
-      null));
+      null, AnalysisSettings.DEFAULT));
   }
 
   @Test
@@ -21,10 +21,12 @@ package org.sonarsource.sonarlint.ls.connected;
 
 import java.net.URI;
 import java.util.List;
+import java.util.stream.Collectors;
 import org.eclipse.lsp4j.Diagnostic;
 import org.eclipse.lsp4j.DiagnosticSeverity;
 import org.eclipse.lsp4j.Position;
 import org.eclipse.lsp4j.Range;
+import org.eclipse.lsp4j.TextDocumentContentChangeEvent;
 import org.eclipse.lsp4j.jsonrpc.messages.Either;
 import org.junit.jupiter.api.Test;
 import org.sonarsource.sonarlint.core.client.api.connected.ServerIssue;
@@ -137,6 +139,60 @@ class TaintVulnerabilitiesCacheTests {
     assertThat(underTest.getTaintVulnerabilityForDiagnostic(uri, diagnostic)).isEmpty();
   }
 
+  @Test
+  void testShiftTaintVulnerabilitiesAlongWithIncrementalChanges() throws Exception {
+    var uri = new URI("/");
+    var movedTaint = mockTaint("key1", 3, 0, 3, 5);
+    var deletedTaint = mockTaint("key2", 1, 0, 1, 3);
+    underTest.reload(uri, List.of(movedTaint, deletedTaint));
+
+    var shifted = underTest.shiftRanges(uri, List.of(
+      new TextDocumentContentChangeEvent(new Range(new Position(0, 0), new Position(0, 3)), ""),
+      new TextDocumentContentChangeEvent(new Range(new Position(0, 0), new Position(0, 0)), "\n")));
+
+    assertThat(shifted).isTrue();
+    var diagnostics = underTest.getAsDiagnostics(uri).collect(Collectors.toList());
+    assertThat(diagnostics).extracting(Diagnostic::getData).containsExactly("key1");
+    assertThat(diagnostics.get(0).getRange()).isEqualTo(new Range(new Position(3, 0), new Position(3, 5)));
+
+    underTest.reload(uri, List.of(movedTaint, deletedTaint));
+    assertThat(underTest.getAsDiagnostics(uri)).extracting(Diagnostic::getRange)
+      .containsExactly(new Range(new Position(2, 0), new Position(2, 5)), new Range(new Position(0, 0), new Position(0, 3)));
+  }
+
+  @Test
+  void testGenerationChangesWithTaintVulnerabilities() throws Exception {
+    var uri = new URI("/");
+    assertThat(underTest.getGeneration(uri)).isZero();
+
+    underTest.reload(uri, List.of(mockTaint("key1", 3, 0, 3, 5)));
+    var afterReload = underTest.getGeneration(uri);
+    assertThat(afterReload).isNotZero();
+
+    underTest.shiftRanges(uri, List.of(new TextDocumentContentChangeEvent(new Range(new Position(5, 0), new Position(5, 0)), "foo")));
+    assertThat(underTest.getGeneration(uri)).isEqualTo(afterReload);
+
+    underTest.shiftRanges(uri, List.of(new TextDocumentContentChangeEvent(new Range(new Position(0, 0), new Position(0, 0)), "\n")));
+    assertThat(underTest.getGeneration(uri)).isGreaterThan(afterReload);
+
+    underTest.clear(uri);
+    assertThat(underTest.getGeneration(uri)).isZero();
+  }
+
+  private static ServerIssue mockTaint(String key, int startLine, int startLineOffset, int endLine, int endLineOffset) {
+    var taint = mock(ServerIssue.class);
+    when(taint.key()).thenReturn(key);
+    when(taint.ruleKey()).thenReturn(SAMPLE_SECURITY_RULE_KEY);
+    when(taint.resolution()).thenReturn("");
+    when(taint.severity()).thenReturn("BLOCKER");
+    when(taint.getMessage()).thenReturn("Boo");
+    when(taint.getStartLine()).thenReturn(startLine);
+    when(taint.getStartLineOffset()).thenReturn(startLineOffset);
+    when(taint.getEndLine()).thenReturn(endLine);
+    when(taint.getEndLineOffset()).thenReturn(endLineOffset);
+    return taint;
+  }
+
   @Test
   void testGetServerIssueByKey() throws Exception {
     var uri = new URI("/");
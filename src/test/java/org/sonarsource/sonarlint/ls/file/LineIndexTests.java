@@ -0,0 +1,78 @@
+/*
+ * SonarLint Language Server
+ * Copyright (C) 2009-2022 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.ls.file;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LineIndexTests {
+
+  @Test
+  void index_all_kinds_of_line_breaks() {
+    var index = LineIndex.of("a\nbb\r\nccc\rd");
+
+    assertThat(index.getLineCount()).isEqualTo(4);
+    assertThat(index.getLineText(0)).isEqualTo("a");
+    assertThat(index.getLineText(1)).isEqualTo("bb");
+    assertThat(index.getLineText(2)).isEqualTo("ccc");
+    assertThat(index.getLineText(3)).isEqualTo("d");
+  }
+
+  @Test
+  void count_empty_line_after_trailing_line_break() {
+    var index = LineIndex.of("a\n");
+
+    assertThat(index.getLineCount()).isEqualTo(2);
+    assertThat(index.getLineText(1)).isEmpty();
+  }
+
+  @Test
+  void convert_positions_to_offsets() {
+    var index = LineIndex.of("ab\r\ncd\n");
+
+    assertThat(index.getOffset(0, 1)).isEqualTo(1);
+    assertThat(index.getOffset(1, 0)).isEqualTo(4);
+    // Clamped to the end of the line, before the line break
+    assertThat(index.getOffset(0, 10)).isEqualTo(2);
+    assertThat(index.getOffset(10, 0)).isEqualTo(7);
+    assertThat(index.getOffset(-1, 3)).isZero();
+  }
+
+  @Test
+  void convert_offsets_to_positions() {
+    var index = LineIndex.of("ab\r\ncd\n");
+
+    assertThat(index.getLine(0)).isZero();
+    assertThat(index.getLine(3)).isZero();
+    assertThat(index.getLine(4)).isEqualTo(1);
+    assertThat(index.getCharacter(5)).isEqualTo(1);
+    assertThat(index.getLine(7)).isEqualTo(2);
+    assertThat(index.getLine(100)).isEqualTo(2);
+  }
+
+  @Test
+  void empty_text_has_a_single_line() {
+    var index = LineIndex.of("");
+
+    assertThat(index.getLineCount()).isEqualTo(1);
+    assertThat(index.getLineLength(0)).isZero();
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * SonarLint Language Server
+ * Copyright (C) 2009-2022 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.ls.file;
+
+import java.io.IOException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MappedTextTests {
+
+  private final MappedText underTest = new MappedText();
+
+  @AfterEach
+  void close() {
+    underTest.close();
+  }
+
+  @Test
+  void keep_two_versions_readable() throws IOException {
+    var first = underTest.write(3, target -> target.put("foo"));
+    var second = underTest.write(6, target -> target.put("barbaz"));
+
+    assertThat(first).hasToString("foo");
+    assertThat(second).hasToString("barbaz");
+
+    // Reuses the slot of the first version, which grows
+    var third = underTest.write(10, target -> target.put("0123456789"));
+
+    assertThat(third).hasToString("0123456789");
+    assertThat(second.charAt(3)).isEqualTo('b');
+    assertThatThrownBy(() -> first.charAt(0)).isInstanceOf(ReleasedContentException.class);
+  }
+
+  @Test
+  void keep_written_versions_readable_after_close() throws IOException {
+    var region = underTest.write(3, target -> target.put("foo"));
+
+    underTest.close();
+
+    assertThat(region).hasToString("foo");
+    assertThatThrownBy(() -> underTest.write(3, target -> target.put("bar"))).isInstanceOf(IOException.class);
+  }
+
+  @Test
+  void refuse_text_too_large_to_be_mapped() {
+    assertThatThrownBy(() -> underTest.write(Integer.MAX_VALUE / 2 + 1, target -> {
+    })).isInstanceOf(IOException.class);
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * SonarLint Language Server
+ * Copyright (C) 2009-2022 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.ls.file;
+
+import java.net.URI;
+import java.util.List;
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.Range;
+import org.eclipse.lsp4j.TextDocumentContentChangeEvent;
+import org.junit.jupiter.api.Test;
+import org.sonarsource.sonarlint.ls.log.LanguageClientLogger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class OpenFilesCacheTests {
+
+  private static final URI FILE_URI = URI.create("file:///foo.js");
+
+  private final LanguageClientLogger logger = mock(LanguageClientLogger.class);
+  private final OpenFilesCache underTest = new OpenFilesCache(logger);
+
+  @Test
+  void apply_incremental_changes_in_order() {
+    var opened = underTest.didOpen(FILE_URI, "javascript", "alert();\n", 1);
+
+    underTest.didChange(FILE_URI, List.of(
+      new TextDocumentContentChangeEvent(new Range(new Position(0, 6), new Position(0, 6)), "1"),
+      new TextDocumentContentChangeEvent(new Range(new Position(1, 0), new Position(1, 0)), "alert(2);")), 2);
+
+    var changed = underTest.getFile(FILE_URI).get();
+    assertThat(changed.getVersion()).isEqualTo(2);
+    assertThat(changed.getLanguageId()).isEqualTo("javascript");
+    assertThat(changed.getContent()).isEqualTo("alert(1);\nalert(2);");
+    assertThat(opened.getContent()).isEqualTo("alert();\n");
+  }
+
+  @Test
+  void change_without_range_replaces_whole_content() {
+    underTest.didOpen(FILE_URI, "javascript", "alert();", 1);
+
+    underTest.didChange(FILE_URI, List.of(new TextDocumentContentChangeEvent("foo();")), 2);
+
+    assertThat(underTest.getFile(FILE_URI).get().getContent()).isEqualTo("foo();");
+  }
+
+  @Test
+  void keep_content_above_threshold_off_heap() {
+    underTest.setOffHeapThreshold(5);
+
+    assertThat(underTest.didOpen(FILE_URI, "javascript", "foo();", 1).isOffHeap()).isTrue();
+    assertThat(underTest.didOpen(URI.create("file:///small.js"), "javascript", "foo", 1).isOffHeap()).isFalse();
+
+    underTest.didChange(FILE_URI, List.of(new TextDocumentContentChangeEvent(new Range(new Position(0, 0), new Position(0, 3)), "bar")), 2);
+
+    var changed = underTest.getFile(FILE_URI).get();
+    assertThat(changed.isOffHeap()).isTrue();
+    assertThat(changed.getContent()).isEqualTo("bar();");
+  }
+
+  @Test
+  void release_off_heap_content_when_closed_or_shrunk() {
+    underTest.setOffHeapThreshold(5);
+    var opened = underTest.didOpen(FILE_URI, "javascript", "foo();", 1);
+
+    underTest.didChange(FILE_URI, List.of(new TextDocumentContentChangeEvent("foo")), 2);
+
+    assertThat(underTest.getFile(FILE_URI).get().isOffHeap()).isFalse();
+    // Still readable by a running analysis
+    assertThat(opened.getContent()).isEqualTo("foo();");
+
+    var other = underTest.didOpen(URI.create("file:///other.js"), "javascript", "foo();", 1);
+    underTest.didClose(URI.create("file:///other.js"));
+    assertThat(other.getContent()).isEqualTo("foo();");
+    // Storage can't be reused once released
+    assertThat(other.getPieceTable().replaceAll("bar();").isOffHeap()).isFalse();
+  }
+
+  @Test
+  void use_saved_text_when_provided() {
+    var opened = underTest.didOpen(FILE_URI, "javascript", "alert();", 1);
+
+    assertThat(underTest.didSave(FILE_URI, null)).containsSame(opened);
+    assertThat(underTest.didSave(FILE_URI, "alert();")).containsSame(opened);
+    // Same length, different content
+    assertThat(underTest.didSave(FILE_URI, "alarm();")).hasValueSatisfying(f -> assertThat(f.getContent()).isEqualTo("alarm();"));
+    assertThat(underTest.didSave(FILE_URI, "alert();")).hasValueSatisfying(f -> assertThat(f.getContent()).isEqualTo("alert();"));
+    opened = underTest.getFile(FILE_URI).get();
+
+    var saved = underTest.didSave(FILE_URI, "alert(2);").get();
+    assertThat(saved.getContent()).isEqualTo("alert(2);");
+    assertThat(saved.getVersion()).isEqualTo(1);
+    // Analyses of the content rebuilt from changes are outdated, even if the version is the same
+    assertThat(underTest.isOutdated(opened)).isTrue();
+    assertThat(underTest.isOutdated(saved)).isFalse();
+    assertThat(underTest.didSave(URI.create("file:///unknown.js"), "foo")).isEmpty();
+  }
+
+  @Test
+  void ignore_change_of_unknown_file() {
+    underTest.didChange(FILE_URI, "foo();", 2);
+
+    assertThat(underTest.getFile(FILE_URI)).isEmpty();
+    verify(logger).warn(anyString());
+  }
+}
@@ -0,0 +1,213 @@
+/*
+ * SonarLint Language Server
+ * Copyright (C) 2009-2022 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.ls.file;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PieceTableTests {
+
+  @Test
+  void insert_in_the_middle_of_a_line() {
+    var table = PieceTable.of("hello\nworld");
+
+    var edited = table.replace(1, 0, 1, 0, "big ");
+
+    assertThat(edited.getText()).isEqualTo("hello\nbig world");
+    assertThat(edited.length()).isEqualTo(15);
+    // Previous version is left untouched
+    assertThat(table.getText()).isEqualTo("hello\nworld");
+  }
+
+  @Test
+  void delete_across_lines() {
+    var table = PieceTable.of("one\ntwo\nthree");
+
+    var edited = table.replace(0, 2, 2, 1, "");
+
+    assertThat(edited.getText()).isEqualTo("onhree");
+  }
+
+  @Test
+  void replace_in_edited_text() {
+    var table = PieceTable.of("a\nb\nc")
+      .replace(1, 1, 1, 1, "\nnew line")
+      .replace(2, 0, 2, 3, "old");
+
+    assertThat(table.getText()).isEqualTo("a\nb\nold line\nc");
+  }
+
+  @Test
+  void append_to_empty_text() {
+    var table = PieceTable.of("")
+      .replace(0, 0, 0, 0, "foo")
+      .replace(0, 3, 0, 3, "\nbar");
+
+    assertThat(table.getText()).isEqualTo("foo\nbar");
+  }
+
+  @Test
+  void clamp_positions_out_of_bounds() {
+    var table = PieceTable.of("ab\ncd");
+
+    assertThat(table.replace(0, 10, 0, 10, "!").getText()).isEqualTo("ab!\ncd");
+    assertThat(table.replace(5, 0, 5, 0, "!").getText()).isEqualTo("ab\ncd!");
+  }
+
+  @Test
+  void compact_when_too_many_pieces() {
+    var table = PieceTable.of("");
+    for (var i = 0; i < PieceTable.MAX_PIECES * 2; i++) {
+      table = table.replace(0, 0, 0, 0, "x");
+    }
+
+    assertThat(table.getPieceCount()).isLessThanOrEqualTo(PieceTable.MAX_PIECES);
+    assertThat(table.getText()).hasSize(PieceTable.MAX_PIECES * 2).matches("x+");
+  }
+
+  @Test
+  void edit_off_heap_content() {
+    var table = PieceTable.offHeap("ab\ncd");
+
+    assertThat(table.isOffHeap()).isTrue();
+    assertThat(table.getText()).isEqualTo("ab\ncd");
+
+    var edited = table.replace(1, 0, 1, 1, "X");
+    assertThat(edited.isOffHeap()).isTrue();
+    var text = edited.getText();
+    assertThat(text).isEqualTo("ab\nXd");
+    // Shared while it is referenced
+    assertThat(edited.getText()).isSameAs(text);
+  }
+
+  @Test
+  void compact_off_heap_content_in_its_storage() {
+    var offHeap = PieceTable.offHeap("a\r\nb\nc\rd");
+    var onHeap = PieceTable.of("a\r\nb\nc\rd");
+    for (var i = 0; i < PieceTable.MAX_PIECES * 2; i++) {
+      var line = i % 4;
+      var newText = i % 3 == 0 ? "\r" : (i % 3 == 1 ? "\n" : "x");
+      offHeap = offHeap.replace(line, 1, line, 1, newText);
+      onHeap = onHeap.replace(line, 1, line, 1, newText);
+    }
+
+    assertThat(offHeap.isOffHeap()).isTrue();
+    assertThat(offHeap.getPieceCount()).isLessThanOrEqualTo(PieceTable.MAX_PIECES);
+    assertThat(offHeap.getText()).isEqualTo(onHeap.getText());
+    for (var line = 0; line < 200; line++) {
+      assertThat(offHeap.offsetAt(line, 1)).as("line %d", line).isEqualTo(onHeap.offsetAt(line, 1));
+    }
+  }
+
+  @Test
+  void release_off_heap_content_of_outdated_versions() {
+    var original = PieceTable.offHeap("abc");
+    var table = original;
+    var compactions = 0;
+    while (compactions < 2) {
+      var edited = table.replace(0, 0, 0, 0, "x");
+      if (edited.getPieceCount() < table.getPieceCount()) {
+        compactions++;
+      }
+      table = edited;
+    }
+
+    // Only the two most recent compacted versions are kept
+    assertThatThrownBy(original::getText).isInstanceOf(ReleasedContentException.class);
+    assertThat(table.getText()).endsWith("abc");
+
+    var latest = table.replace(0, 0, 0, 0, "y");
+    latest.release();
+    assertThat(latest.getText()).startsWith("y").endsWith("abc");
+  }
+
+  @Test
+  void replace_all_off_heap_content_in_the_same_storage() {
+    var table = PieceTable.offHeap("foo");
+
+    var replaced = table.replaceAll("bar\nbaz");
+
+    assertThat(replaced.isOffHeap()).isTrue();
+    assertThat(replaced.getText()).isEqualTo("bar\nbaz");
+    assertThat(replaced.offsetAt(1, 1)).isEqualTo(5);
+    // Previous version is still readable
+    assertThat(table.getText()).isEqualTo("foo");
+    assertThat(PieceTable.of("foo").replaceAll("bar").isOffHeap()).isFalse();
+  }
+
+  @Test
+  void edit_text_with_cr_line_breaks() {
+    var table = PieceTable.of("one\rtwo\rthree");
+
+    assertThat(table.replace(1, 1, 2, 2, "X").getText()).isEqualTo("one\rtXree");
+    assertThat(table.replace(0, 10, 0, 10, "!").getText()).isEqualTo("one!\rtwo\rthree");
+    assertThat(table.offsetAt(2, 0)).isEqualTo(8);
+  }
+
+  @Test
+  void edit_text_with_crlf_line_breaks() {
+    var table = PieceTable.of("one\r\ntwo\r\nthree");
+
+    assertThat(table.replace(1, 0, 1, 3, "2").getText()).isEqualTo("one\r\n2\r\nthree");
+    // Clamped before the "\r\n", not between its two characters
+    assertThat(table.replace(0, 10, 0, 10, "!").getText()).isEqualTo("one!\r\ntwo\r\nthree");
+    assertThat(table.offsetAt(2, 1)).isEqualTo(11);
+  }
+
+  @Test
+  void crlf_split_across_pieces_is_a_single_line_break() {
+    // "\r" and "\n" end up in different pieces
+    var table = PieceTable.of("ab\rcd").replace(3, 3, "\n");
+
+    assertThat(table.getText()).isEqualTo("ab\r\ncd");
+    assertThat(table.offsetAt(1, 0)).isEqualTo(4);
+    assertThat(table.offsetAt(0, 5)).isEqualTo(2);
+    assertThat(table.offsetAt(2, 0)).isEqualTo(6);
+
+    // "\r\n" of the source cut in the middle, then joined again
+    var split = PieceTable.of("ab\r\ncd").replace(3, 4, "");
+    assertThat(split.getText()).isEqualTo("ab\rcd");
+    assertThat(split.offsetAt(1, 0)).isEqualTo(3);
+    assertThat(split.replace(1, 0, 1, 0, "\n").getText()).isEqualTo("ab\r\ncd");
+  }
+
+  @Test
+  void mixed_line_breaks() {
+    var table = PieceTable.of("a\nb\r\nc\rd");
+
+    assertThat(table.offsetAt(1, 0)).isEqualTo(2);
+    assertThat(table.offsetAt(2, 0)).isEqualTo(5);
+    assertThat(table.offsetAt(3, 0)).isEqualTo(7);
+    assertThat(table.replace(3, 0, 3, 1, "D").getText()).isEqualTo("a\nb\r\nc\rD");
+  }
+
+  @Test
+  void offset_of_positions() {
+    var table = PieceTable.of("ab\n\ncd").replace(2, 1, 2, 1, "\n");
+
+    assertThat(table.getText()).isEqualTo("ab\n\nc\nd");
+    assertThat(table.offsetAt(0, 1)).isEqualTo(1);
+    assertThat(table.offsetAt(1, 5)).isEqualTo(3);
+    assertThat(table.offsetAt(3, 0)).isEqualTo(6);
+    assertThat(table.offsetAt(4, 0)).isEqualTo(7);
+  }
+}
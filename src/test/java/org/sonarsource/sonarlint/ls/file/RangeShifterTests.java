@@ -0,0 +1,82 @@
+/*
+ * SonarLint Language Server
+ * Copyright (C) 2009-2022 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.ls.file;
+
+import java.util.List;
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.Range;
+import org.eclipse.lsp4j.TextDocumentContentChangeEvent;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RangeShifterTests {
+
+  private static final Range ISSUE_RANGE = range(2, 4, 2, 10);
+
+  @Test
+  void keep_range_before_edit() {
+    assertThat(RangeShifter.shift(ISSUE_RANGE, List.of(change(2, 10, 2, 10, "foo\nbar")))).contains(ISSUE_RANGE);
+    assertThat(RangeShifter.shift(ISSUE_RANGE, List.of(change(3, 0, 5, 0, "")))).contains(ISSUE_RANGE);
+  }
+
+  @Test
+  void shift_range_after_edit() {
+    assertThat(RangeShifter.shift(ISSUE_RANGE, List.of(change(0, 0, 0, 0, "\n\n")))).contains(range(4, 4, 4, 10));
+    assertThat(RangeShifter.shift(ISSUE_RANGE, List.of(change(2, 0, 2, 2, "")))).contains(range(2, 2, 2, 8));
+    assertThat(RangeShifter.shift(ISSUE_RANGE, List.of(change(1, 3, 2, 1, "")))).contains(range(1, 6, 1, 12));
+    assertThat(RangeShifter.shift(ISSUE_RANGE, List.of(change(2, 4, 2, 4, "a\r\nbc")))).contains(range(3, 2, 3, 8));
+  }
+
+  @Test
+  void resize_range_on_edit_inside() {
+    assertThat(RangeShifter.shift(ISSUE_RANGE, List.of(change(2, 5, 2, 6, "xyz")))).contains(range(2, 4, 2, 12));
+    assertThat(RangeShifter.shift(ISSUE_RANGE, List.of(change(2, 5, 2, 5, "\n")))).contains(range(2, 4, 3, 5));
+  }
+
+  @Test
+  void drop_range_modified_at_boundaries_or_deleted() {
+    assertThat(RangeShifter.shift(ISSUE_RANGE, List.of(change(2, 2, 2, 6, "")))).isEmpty();
+    assertThat(RangeShifter.shift(ISSUE_RANGE, List.of(change(2, 8, 3, 0, "")))).isEmpty();
+    assertThat(RangeShifter.shift(ISSUE_RANGE, List.of(change(2, 4, 2, 10, "")))).isEmpty();
+    assertThat(RangeShifter.shift(ISSUE_RANGE, List.of(change(1, 0, 3, 0, "foo")))).isEmpty();
+  }
+
+  @Test
+  void apply_changes_in_order() {
+    var changes = List.of(change(0, 0, 0, 0, "\n"), change(3, 0, 3, 1, ""));
+
+    assertThat(RangeShifter.shift(ISSUE_RANGE, changes)).contains(range(3, 3, 3, 9));
+  }
+
+  @Test
+  void full_content_change_is_not_incremental() {
+    assertThat(RangeShifter.isIncremental(List.of(change(0, 0, 0, 0, "foo")))).isTrue();
+    assertThat(RangeShifter.isIncremental(List.of(change(0, 0, 0, 0, "foo"), new TextDocumentContentChangeEvent("bar")))).isFalse();
+  }
+
+  private static TextDocumentContentChangeEvent change(int startLine, int startChar, int endLine, int endChar, String text) {
+    return new TextDocumentContentChangeEvent(range(startLine, startChar, endLine, endChar), text);
+  }
+
+  private static Range range(int startLine, int startChar, int endLine, int endChar) {
+    return new Range(new Position(startLine, startChar), new Position(endLine, endChar));
+  }
+}
@@ -27,6 +27,7 @@ import org.eclipse.lsp4j.MessageType;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.sonarsource.sonarlint.ls.SonarLintExtendedLanguageClient;
+import org.sonarsource.sonarlint.ls.settings.AnalysisSettings;
 import org.sonarsource.sonarlint.ls.settings.WorkspaceSettings;
 
 import static org.mockito.Mockito.mock;
@@ -60,7 +61,7 @@ class LanguageClientLogOutputTests {
 
   @Test
   void enable_debug_logs() {
-    underTest.onChange(null, new WorkspaceSettings(false, null, null, null, null, false, true, null));
+    underTest.onChange(null, new WorkspaceSettings(false, null, null, null, null, false, true, null, AnalysisSettings.DEFAULT));
 
     underTest.error("error");
     underTest.warn("warn");
@@ -89,7 +90,7 @@ class LanguageClientLogOutputTests {
 
   @Test
   void enable_analyzer_logs() {
-    underTest.onChange(null, new WorkspaceSettings(false, null, null, null, null, true, false, null));
+    underTest.onChange(null, new WorkspaceSettings(false, null, null, null, null, true, false, null, AnalysisSettings.DEFAULT));
 
     underTest.error("error", true);
     underTest.warn("warn", true);
@@ -105,7 +106,7 @@ class LanguageClientLogOutputTests {
 
   @Test
   void enable_analyzer_debug_logs() {
-    underTest.onChange(null, new WorkspaceSettings(false, null, null, null, null, true, true, null));
+    underTest.onChange(null, new WorkspaceSettings(false, null, null, null, null, true, true, null, AnalysisSettings.DEFAULT));
 
     underTest.error("error", true);
     underTest.warn("warn", true);
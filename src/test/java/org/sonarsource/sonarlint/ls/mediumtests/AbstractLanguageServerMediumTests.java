@@ -354,6 +354,11 @@ public abstract class AbstractLanguageServerMediumTests {
       return CompletableFutures.computeAsync(cancelToken -> isOpenInEditor);
     }
 
+    @Override
+    public CompletableFuture<List<String>> filterOpenInEditor(FilterOpenInEditorParams params) {
+      return CompletableFutures.computeAsync(cancelToken -> isOpenInEditor ? params.getFileUris() : List.of());
+    }
+
     @Override
     public void showFirstSecretDetectionNotification() {
     }
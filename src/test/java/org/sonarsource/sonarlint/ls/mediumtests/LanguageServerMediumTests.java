@@ -305,6 +305,42 @@ class LanguageServerMediumTests extends AbstractLanguageServerMediumTests {
       .containsExactly(tuple(1, 6, 1, 10, "javascript:S1481", "sonarlint", "Remove the declaration of the unused 'toto' variable.", DiagnosticSeverity.Information)));
   }
 
+  @Test
+  void applyIncrementalChangeReceivedRightAfterOpen() throws Exception {
+    var uri = getUri("applyIncrementalChangeReceivedRightAfterOpen.js");
+
+    didOpen(uri, "javascript", "function foo() {\n}");
+    lsProxy.getTextDocumentService()
+      .didChange(new DidChangeTextDocumentParams(new VersionedTextDocumentIdentifier(uri, 2),
+        List.of(new TextDocumentContentChangeEvent(new Range(new Position(0, 16), new Position(0, 16)), "\n  var toto = 0;"))));
+
+    awaitUntilAsserted(() -> assertThat(client.getDiagnostics(uri))
+      .extracting(startLine(), startCharacter(), endLine(), endCharacter(), code(), Diagnostic::getSource, Diagnostic::getMessage, Diagnostic::getSeverity)
+      .containsExactly(tuple(1, 6, 1, 10, "javascript:S1481", "sonarlint", "Remove the declaration of the unused 'toto' variable.", DiagnosticSeverity.Information)));
+  }
+
+  @Test
+  void reuseIssuesWhenFileIsReopenedWithSameContent() throws Exception {
+    setShowVerboseLogs(client.globalSettings, true);
+    notifyConfigurationChangeOnClient();
+
+    var uri = getUri("reuseIssuesWhenFileIsReopenedWithSameContent.js");
+    didOpen(uri, "javascript", "function foo() {\n  var toto = 0;\n}");
+    awaitUntilAsserted(() -> assertThat(client.getDiagnostics(uri)).extracting(code()).containsExactly("javascript:S1481"));
+    lsProxy.getTextDocumentService().didClose(new DidCloseTextDocumentParams(new TextDocumentIdentifier(uri)));
+    client.logs.clear();
+
+    didOpen(uri, "javascript", "function foo() {\n  var toto = 0;\n}");
+
+    awaitUntilAsserted(() -> assertThat(client.logs)
+      .extracting(withoutTimestamp())
+      .contains("[Debug] File '" + uri + "' is unchanged since its last analysis, reuse its issues"));
+    assertThat(client.logs)
+      .extracting(withoutTimestamp())
+      .doesNotContain("[Info] Analyzing file '" + uri + "'...");
+    awaitUntilAsserted(() -> assertThat(client.getDiagnostics(uri)).extracting(code()).containsExactly("javascript:S1481"));
+  }
+
   @Test
   void analyzeSimpleXmlFileOnOpen() throws Exception {
     var uri = getUri("analyzeSimpleXmlFileOnOpen.xml");
@@ -0,0 +1,104 @@
+/*
+ * SonarLint Language Server
+ * Copyright (C) 2009-2022 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.ls.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import org.sonarsource.sonarlint.ls.log.LanguageClientLogger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class AnalysisMetricsTests {
+
+  private final AtomicLong now = new AtomicLong(0);
+  private final AnalysisMetrics underTest = new AnalysisMetrics(now::get);
+
+  @Test
+  void group_durations_by_phase_language_and_binding_mode() {
+    underTest.record("ENGINE_ANALYSIS", "java", AnalysisMetrics.STANDALONE, 100);
+    underTest.record("ENGINE_ANALYSIS", "java", AnalysisMetrics.STANDALONE, 300);
+    underTest.record("ENGINE_ANALYSIS", "java", AnalysisMetrics.CONNECTED, 50);
+    underTest.record("ENGINE_ANALYSIS", "python", AnalysisMetrics.STANDALONE, 10);
+    underTest.record("SCM_CHECK", "java", AnalysisMetrics.ANY, 1);
+
+    assertThat(underTest.getPhaseMetrics())
+      .extracting(PhaseMetrics::getPhase, PhaseMetrics::getLanguage, PhaseMetrics::getBindingMode, PhaseMetrics::getCount, PhaseMetrics::getMeanMs, PhaseMetrics::getMaxMs)
+      .containsExactly(
+        tuple("ENGINE_ANALYSIS", "java", AnalysisMetrics.CONNECTED, 1L, 50L, 50L),
+        tuple("ENGINE_ANALYSIS", "java", AnalysisMetrics.STANDALONE, 2L, 200L, 300L),
+        tuple("ENGINE_ANALYSIS", "python", AnalysisMetrics.STANDALONE, 1L, 10L, 10L),
+        tuple("SCM_CHECK", "java", AnalysisMetrics.ANY, 1L, 1L, 1L));
+  }
+
+  @Test
+  void summary_lists_all_phases() {
+    underTest.record("ENGINE_ANALYSIS", "java", AnalysisMetrics.STANDALONE, 100);
+    underTest.record("PUBLICATION", "java", AnalysisMetrics.STANDALONE, 2);
+
+    assertThat(underTest.summary())
+      .startsWith("Analysis metrics:")
+      .contains("ENGINE_ANALYSIS [java, standalone]: count=1 mean=100ms")
+      .contains("PUBLICATION [java, standalone]: count=1 mean=2ms");
+  }
+
+  @Test
+  void cumulate_counters() {
+    underTest.increment(AnalysisMetrics.ENCODED_BYTES_SAVED, 10);
+    underTest.increment(AnalysisMetrics.ENCODED_BYTES_SAVED, 5);
+
+    assertThat(underTest.getCounter(AnalysisMetrics.ENCODED_BYTES_SAVED)).isEqualTo(15);
+    assertThat(underTest.getCounter("unknown")).isZero();
+    assertThat(underTest.getCounters()).containsOnly(entry(AnalysisMetrics.ENCODED_BYTES_SAVED, 15L));
+    assertThat(underTest.summary()).contains("encodedBytesSaved: 15");
+  }
+
+  @Test
+  void log_summary_periodically() {
+    var logger = mock(LanguageClientLogger.class);
+    underTest.record("ENGINE_ANALYSIS", "java", AnalysisMetrics.STANDALONE, 100);
+
+    underTest.logSummaryIfDue(logger);
+    verify(logger, never()).debug(anyString());
+
+    now.addAndGet(TimeUnit.MINUTES.toMillis(5));
+    underTest.logSummaryIfDue(logger);
+    underTest.logSummaryIfDue(logger);
+    verify(logger, times(1)).debug(contains("ENGINE_ANALYSIS [java, standalone]"));
+  }
+
+  @Test
+  void do_not_log_empty_summary() {
+    var logger = mock(LanguageClientLogger.class);
+
+    now.addAndGet(TimeUnit.MINUTES.toMillis(5));
+    underTest.logSummaryIfDue(logger);
+
+    verify(logger, never()).debug(anyString());
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * SonarLint Language Server
+ * Copyright (C) 2009-2022 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarlint.ls.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HistogramTests {
+
+  @Test
+  void empty_histogram() {
+    var histogram = new Histogram();
+
+    assertThat(histogram.getCount()).isZero();
+    assertThat(histogram.getMeanMs()).isZero();
+    assertThat(histogram.getMaxMs()).isZero();
+    assertThat(histogram.getPercentileMs(50)).isZero();
+  }
+
+  @Test
+  void compute_mean_and_max() {
+    var histogram = new Histogram();
+    histogram.record(10);
+    histogram.record(20);
+    histogram.record(30);
+
+    assertThat(histogram.getCount()).isEqualTo(3);
+    assertThat(histogram.getMeanMs()).isEqualTo(20);
+    assertThat(histogram.getMaxMs()).isEqualTo(30);
+  }
+
+  @Test
+  void approximate_percentiles_by_bucket_upper_bound() {
+    var histogram = new Histogram();
+    for (var i = 0; i < 90; i++) {
+      histogram.record(5);
+    }
+    for (var i = 0; i < 10; i++) {
+      histogram.record(1000);
+    }
+
+    // 5 ms falls in the (4, 6] bucket
+    assertThat(histogram.getPercentileMs(50)).isEqualTo(6);
+    assertThat(histogram.getPercentileMs(90)).isEqualTo(6);
+    // Never report more than the actual max
+    assertThat(histogram.getPercentileMs(99)).isEqualTo(1000);
+  }
+
+  @Test
+  void negative_durations_are_recorded_as_zero() {
+    var histogram = new Histogram();
+    histogram.record(-5);
+
+    assertThat(histogram.getCount()).isEqualTo(1);
+    assertThat(histogram.getMaxMs()).isZero();
+  }
+
+  @Test
+  void very_long_durations_fall_in_last_bucket() {
+    var histogram = new Histogram();
+    histogram.record(Long.MAX_VALUE / 2);
+
+    assertThat(histogram.getPercentileMs(50)).isPositive().isLessThanOrEqualTo(Long.MAX_VALUE / 2);
+  }
+}
@@ -88,6 +88,25 @@ class SettingsManagerTests {
     "  \"showAnalyzerLogs\": true,\n" +
     "  \"showVerboseLogs\": true\n"
     + "},\n" +
+    "  \"analysis\": {\n" +
+    "    \"minDebounceMs\": 100,\n" +
+    "    \"maxDebounceMs\": 3000,\n" +
+    "    \"workers\": 3,\n" +
+    "    \"maxConcurrentAnalyses\": 2,\n" +
+    "    \"bulkChunkSize\": 5,\n" +
+    "    \"largeFileSoftLimitKb\": 512,\n" +
+    "    \"largeFileHardLimitKb\": 0,\n" +
+    "    \"triggerMode\": \"onIdle\",\n" +
+    "    \"idleDelayMs\": 10000,\n" +
+    "    \"maxDiagnosticsPerFile\": 200,\n" +
+    "    \"preFilter\": {\n" +
+    "      \"maxLineLength\": 2000,\n" +
+    "      \"languages\": {\n" +
+    "        \"java\": { \"skipGenerated\": false },\n" +
+    "        \"css\": { \"enabled\": false }\n" +
+    "      }\n" +
+    "    }\n" +
+    "  },\n" +
     "  \"rules\": {\n" +
     "    \"xoo:rule1\": {\n" +
     "      \"level\": \"off\"\n" +
@@ -177,6 +196,23 @@ class SettingsManagerTests {
     assertThat(settings.isDisableTelemetry()).isTrue();
     assertThat(settings.showAnalyzerLogs()).isTrue();
     assertThat(settings.showVerboseLogs()).isTrue();
+    assertThat(settings.getAnalysisSettings().getMinDebounceMs()).isEqualTo(100);
+    assertThat(settings.getAnalysisSettings().getMaxDebounceMs()).isEqualTo(3000);
+    assertThat(settings.getAnalysisSettings().getNbWorkers()).isEqualTo(3);
+    assertThat(settings.getAnalysisSettings().getMaxConcurrentAnalyses()).isEqualTo(2);
+    assertThat(settings.getAnalysisSettings().getBulkChunkSize()).isEqualTo(5);
+    assertThat(settings.getAnalysisSettings().getLargeFileSoftLimit()).isEqualTo(512 * 1024);
+    assertThat(settings.getAnalysisSettings().getLargeFileHardLimit()).isEqualTo(Long.MAX_VALUE);
+    assertThat(settings.getAnalysisSettings().getTriggerMode()).isEqualTo(AnalysisTriggerMode.ON_IDLE);
+    assertThat(settings.getAnalysisSettings().getIdleDelayMs()).isEqualTo(10000);
+    assertThat(settings.getAnalysisSettings().getMaxDiagnosticsPerFile()).isEqualTo(200);
+    var preFilterSettings = settings.getAnalysisSettings().getPreFilterSettings();
+    assertThat(preFilterSettings.getMaxLineLength()).isEqualTo(2000);
+    assertThat(preFilterSettings.forLanguage("javascript")).isSameAs(preFilterSettings);
+    assertThat(preFilterSettings.forLanguage("java").isSkipGenerated()).isFalse();
+    assertThat(preFilterSettings.forLanguage("java").getMaxLineLength()).isEqualTo(2000);
+    assertThat(preFilterSettings.forLanguage("java").getMaxAverageLineLength()).isEqualTo(PreFilterSettings.DEFAULT_MAX_AVERAGE_LINE_LENGTH);
+    assertThat(preFilterSettings.forLanguage("css").isEnabled()).isFalse();
     assertThat(settings.getExcludedRules()).extracting(RuleKey::repository, RuleKey::rule).containsOnly(tuple("xoo", "rule1"), tuple("xoo", "rule2"), tuple("xoo", "notEvenARule"));
     assertThat(settings.getIncludedRules()).extracting(RuleKey::repository, RuleKey::rule).containsOnly(tuple("xoo", "rule3"), tuple("xoo", "rule4"));
     assertThat(settings.getRuleParameters()).hasSize(1).containsOnlyKeys(RuleKey.parse("xoo:rule4"));
@@ -38,7 +38,7 @@ class WorkspaceSettingsTests {
     List.of(RULE_KEY_1),
     List.of(RULE_KEY_2),
     Map.of(RULE_KEY_2, Map.of("param1", "value1")),
-    false, false, "path/to/node");
+    false, false, "path/to/node", AnalysisSettings.DEFAULT);
 
   @Test
   void testHashCode() {
@@ -47,7 +47,7 @@ class WorkspaceSettingsTests {
       List.of(RULE_KEY_1),
       List.of(RULE_KEY_2),
       Map.of(RULE_KEY_2, Map.of("param1", "value1")),
-      false, false, "path/to/node")).hasSameHashCodeAs(SETTINGS);
+      false, false, "path/to/node", AnalysisSettings.DEFAULT)).hasSameHashCodeAs(SETTINGS);
   }
 
   @Test
@@ -60,69 +60,75 @@ class WorkspaceSettingsTests {
         Map.of("serverId", new ServerConnectionSettings("serverId", "serverUrl", "token", "myOrg", true, httpClientProvider)),
         List.of(new RuleKey("repo1", "rule1")),
         List.of(new RuleKey("repo2", "rule2")),
-        Map.of(RULE_KEY_2, Map.of("param1", "value1")), false, false, "path/to/node"))
+        Map.of(RULE_KEY_2, Map.of("param1", "value1")), false, false, "path/to/node", AnalysisSettings.DEFAULT))
       .isNotEqualTo(new WorkspaceSettings(true,
         Map.of("serverId2", new ServerConnectionSettings("serverId2", "serverUrl", "token", "myOrg", true, httpClientProvider)),
         List.of(new RuleKey("repo1", "rule1")),
         List.of(new RuleKey("repo2", "rule2")),
-        Map.of(RULE_KEY_2, Map.of("param1", "value1")), false, false, "path/to/node"))
+        Map.of(RULE_KEY_2, Map.of("param1", "value1")), false, false, "path/to/node", AnalysisSettings.DEFAULT))
       .isNotEqualTo(new WorkspaceSettings(false,
         Map.of("serverId", new ServerConnectionSettings("serverId", "serverUrl2", "token", "myOrg", true, httpClientProvider)),
         List.of(new RuleKey("repo1", "rule1")),
         List.of(new RuleKey("repo2", "rule2")),
-        Map.of(RULE_KEY_2, Map.of("param1", "value1")), false, false, "path/to/node"))
+        Map.of(RULE_KEY_2, Map.of("param1", "value1")), false, false, "path/to/node", AnalysisSettings.DEFAULT))
       .isNotEqualTo(new WorkspaceSettings(false,
         Map.of("serverId", new ServerConnectionSettings("serverId", "serverUrl", "token2", "myOrg", true, httpClientProvider)),
         List.of(new RuleKey("repo1", "rule1")),
         List.of(new RuleKey("repo2", "rule2")),
-        Map.of(RULE_KEY_2, Map.of("param1", "value1")), false, false, "path/to/node"))
+        Map.of(RULE_KEY_2, Map.of("param1", "value1")), false, false, "path/to/node", AnalysisSettings.DEFAULT))
       .isNotEqualTo(new WorkspaceSettings(false,
         Map.of("serverId", new ServerConnectionSettings("serverId", "serverUrl", "token", "myOrg2", true, httpClientProvider)),
         List.of(new RuleKey("repo1", "rule1")),
         List.of(new RuleKey("repo2", "rule2")),
-        Map.of(RULE_KEY_2, Map.of("param1", "value1")), false, false, "path/to/node"))
+        Map.of(RULE_KEY_2, Map.of("param1", "value1")), false, false, "path/to/node", AnalysisSettings.DEFAULT))
       .isNotEqualTo(new WorkspaceSettings(false,
         Map.of("serverId", new ServerConnectionSettings("serverId", "serverUrl", "token", "myOrg", true, httpClientProvider)),
         List.of(new RuleKey("repo1", "rule12")),
         List.of(new RuleKey("repo2", "rule2")),
-        Map.of(RULE_KEY_2, Map.of("param1", "value1")), false, false, "path/to/node"))
+        Map.of(RULE_KEY_2, Map.of("param1", "value1")), false, false, "path/to/node", AnalysisSettings.DEFAULT))
       .isNotEqualTo(new WorkspaceSettings(false,
         Map.of("serverId", new ServerConnectionSettings("serverId", "serverUrl", "token", "myOrg", true, httpClientProvider)),
         List.of(new RuleKey("repo1", "rule1")),
         List.of(new RuleKey("repo2", "rule22")),
-        Map.of(RULE_KEY_2, Map.of("param1", "value1")), false, false, "path/to/node"))
+        Map.of(RULE_KEY_2, Map.of("param1", "value1")), false, false, "path/to/node", AnalysisSettings.DEFAULT))
       .isNotEqualTo(new WorkspaceSettings(false,
         Map.of("serverId", new ServerConnectionSettings("serverId", "serverUrl", "token", "myOrg", true, httpClientProvider)),
         List.of(new RuleKey("repo1", "rule1")),
         List.of(new RuleKey("repo2", "rule22")),
-        Map.of(RULE_KEY_2, Map.of("param1", "value1")), false, false, "path/to/node"))
+        Map.of(RULE_KEY_2, Map.of("param1", "value1")), false, false, "path/to/node", AnalysisSettings.DEFAULT))
       .isNotEqualTo(new WorkspaceSettings(false,
         Map.of("serverId", new ServerConnectionSettings("serverId", "serverUrl", "token", "myOrg", true, httpClientProvider)),
         List.of(RULE_KEY_1),
         List.of(RULE_KEY_2),
-        Map.of(RULE_KEY_2, Map.of("param1", "value2")), false, false, "path/to/node"))
+        Map.of(RULE_KEY_2, Map.of("param1", "value2")), false, false, "path/to/node", AnalysisSettings.DEFAULT))
       .isNotEqualTo(new WorkspaceSettings(false,
         Map.of("serverId", new ServerConnectionSettings("serverId", "serverUrl", "token", "myOrg", true, httpClientProvider)),
         List.of(new RuleKey("repo1", "rule1")),
         List.of(new RuleKey("repo2", "rule2")),
-        Map.of(RULE_KEY_2, Map.of("param1", "value1")), true, false, "path/to/node"))
+        Map.of(RULE_KEY_2, Map.of("param1", "value1")), true, false, "path/to/node", AnalysisSettings.DEFAULT))
       .isNotEqualTo(new WorkspaceSettings(false,
         Map.of("serverId", new ServerConnectionSettings("serverId", "serverUrl", "token", "myOrg", true, httpClientProvider)),
         List.of(new RuleKey("repo1", "rule1")),
         List.of(new RuleKey("repo2", "rule2")),
-        Map.of(RULE_KEY_2, Map.of("param1", "value1")), false, true, "path/to/node"))
+        Map.of(RULE_KEY_2, Map.of("param1", "value1")), false, true, "path/to/node", AnalysisSettings.DEFAULT))
       .isNotEqualTo(new WorkspaceSettings(false,
         Map.of("serverId", new ServerConnectionSettings("serverId", "serverUrl", "token", "myOrg", true, httpClientProvider)),
         List.of(RULE_KEY_1),
         List.of(RULE_KEY_2),
         Map.of(RULE_KEY_2, Map.of("param1", "value1")),
-        false, false, "other/path/to/node"));
+        false, false, "other/path/to/node", AnalysisSettings.DEFAULT))
+      .isNotEqualTo(new WorkspaceSettings(false,
+        Map.of("serverId", new ServerConnectionSettings("serverId", "serverUrl", "token", "myOrg", true, httpClientProvider)),
+        List.of(RULE_KEY_1),
+        List.of(RULE_KEY_2),
+        Map.of(RULE_KEY_2, Map.of("param1", "value1")),
+        false, false, "path/to/node", new AnalysisSettings(100, 1000, 0, 0, 10, 1024, 5120, AnalysisTriggerMode.ON_SAVE, 3000, PreFilterSettings.DEFAULT, 1000)));
   }
 
   @Test
   void testToString() {
     assertThat(SETTINGS).hasToString(
-      "WorkspaceSettings[connections={serverId=ServerConnectionSettings[connectionId=serverId,disableNotifications=true,organizationKey=myOrg,serverUrl=serverUrl,token=token]},disableTelemetry=false,excludedRules=[repo1:rule1],includedRules=[repo2:rule2],pathToNodeExecutable=path/to/node,ruleParameters={repo2:rule2={param1=value1}},showAnalyzerLogs=false,showVerboseLogs=false]");
+      "WorkspaceSettings[analysisSettings=AnalysisSettings[bulkChunkSize=10,idleDelayMs=3000,largeFileHardLimitKb=5120,largeFileSoftLimitKb=1024,maxConcurrentAnalyses=0,maxDebounceMs=5000,maxDiagnosticsPerFile=1000,minDebounceMs=300,preFilterSettings=PreFilterSettings[enabled=true,maxAverageLineLength=500,maxLineLength=10000,maxNonTextPercent=10,perLanguage={},skipGenerated=true],triggerMode=ON_TYPE,workers=0],connections={serverId=ServerConnectionSettings[connectionId=serverId,disableNotifications=true,organizationKey=myOrg,serverUrl=serverUrl,token=token]},disableTelemetry=false,excludedRules=[repo1:rule1],includedRules=[repo2:rule2],pathToNodeExecutable=path/to/node,ruleParameters={repo2:rule2={param1=value1}},showAnalyzerLogs=false,showVerboseLogs=false]");
   }
 
 }